@@ -11,6 +11,11 @@ import org.bukkit.projectiles.*;
  */
 public class ArrowSnowballLogic extends SnowballLogic {
 
+    @Override
+    public boolean canFlyVirtually() {
+        return false;
+    }
+
     @Override
     public void launch(Snowball snowball, SnowballInfo info) {
         super.launch(snowball, info);
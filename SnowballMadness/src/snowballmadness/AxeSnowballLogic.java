@@ -22,8 +22,8 @@ public class AxeSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
         int baseTool = 0; //wooden pick
         switch (toolUsed) {
             case DIAMOND_AXE:
@@ -39,30 +39,16 @@ public class AxeSnowballLogic extends SnowballLogic {
                 baseTool = 1;
                 break;
         }
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
-        final int beginX = snowballLoc.getBlockX() - baseTool;
-        final int beginY = Math.max(0, snowballLoc.getBlockY() - (baseTool * 10));
-        final int beginZ = snowballLoc.getBlockZ() - baseTool;
-        final int endX = beginX + (baseTool * 2);
-        final int endY = Math.min(world.getMaxHeight(), beginY + (baseTool * 20));
-        final int endZ = beginZ + (baseTool * 2);
-
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-
-        for (int x = beginX; x < endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                for (int y = beginY; y <= endY; ++y) {
-                    locationBuffer.setX(x + 0.5);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z + 0.5);
-                    final Block beingMined = world.getBlockAt(x, y, z);
-                    if (beingMined.getType() == Material.LOG || beingMined.getType() == Material.LOG_2) {
-                        beingMined.setType(Material.AIR);
-                    }
-
+        //the axe clears a tall box of logs; the whole tree, we hope. We keep
+        //physics on, so the leaves, vines and cocoa left behind decay or drop.
+        final VoxelShape shape = VoxelShape.of(VoxelShape.Metric.SPHERICAL, -1, Long.MAX_VALUE, baseTool, baseTool * 10, baseTool * 10);
+        submit(info, new TerrainJob(hit.getLocation(), shape, 0, true) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                if (block.getType() == Material.LOG || block.getType() == Material.LOG_2) {
+                    batch.set(block, Material.AIR);
                 }
             }
-        }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,717 @@
+package snowballmadness;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
+import org.bukkit.*;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.block.*;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.*;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.inventory.EntityEquipment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Vector;
+
+/**
+ * This class sets off explosions for TNT snowballs. Bigger TNT snowballs used to call createExplosion() once for each item in
+ * the stack- up to 64 times at nearly the same spot- and each call cast every ray, dropped every block and pushed every entity
+ * all over again.
+ *
+ * Here we work out the whole blast at once. The rays are cast the way Minecraft casts them: from each center, out through the
+ * edge of a 16x16x16 grid, losing strength to the air and to each block's blast resistance, and breaking every block they get
+ * through. Where several explosions go off at one spot, each later one finds the blocks the earlier ones broke already gone,
+ * so we carry each ray on from where the last one stopped instead of starting it over. The directions and the resistances are
+ * worked out once, in tables.
+ *
+ * The rays are cast on a ForkJoin pool, against snapshots of the chunks taken on the main thread. When they are done, the
+ * next tick breaks the blocks in one batch and pushes the entities once, with the force of all the explosions together.
+ */
+public final class BlastEngine {
+
+    private static final Logger logger = Logger.getLogger(BlastEngine.class.getName());
+    private static final int GRID = 16;
+    private static final float STEP = 0.3f;
+    private static final float AIR_COST = 0.22500001f;
+    private static final int RAYS_PER_TASK = 64;
+    private static final float[] RAY_X, RAY_Y, RAY_Z;
+    private static final float[] RESISTANCE = new float[4096];
+    private static final boolean[] SOLID = new boolean[4096];
+    private final ConcurrentLinkedQueue<Blast> finished = new ConcurrentLinkedQueue<Blast>();
+    private final Random random = new Random();
+    private ForkJoinPool pool;
+    private int pendingCount;
+    private long blastCount;
+    private long brokenCount;
+
+    static {
+        int rays = GRID * GRID * GRID - (GRID - 2) * (GRID - 2) * (GRID - 2);
+        RAY_X = new float[rays];
+        RAY_Y = new float[rays];
+        RAY_Z = new float[rays];
+        int ray = 0;
+
+        for (int i = 0; i < GRID; ++i) {
+            for (int j = 0; j < GRID; ++j) {
+                for (int k = 0; k < GRID; ++k) {
+                    if (i == 0 || i == GRID - 1 || j == 0 || j == GRID - 1 || k == 0 || k == GRID - 1) {
+                        double x = i / (GRID - 1.0) * 2.0 - 1.0;
+                        double y = j / (GRID - 1.0) * 2.0 - 1.0;
+                        double z = k / (GRID - 1.0) * 2.0 - 1.0;
+                        double length = Math.sqrt(x * x + y * y + z * z);
+                        RAY_X[ray] = (float) (x / length * STEP);
+                        RAY_Y[ray] = (float) (y / length * STEP);
+                        RAY_Z[ray] = (float) (z / length * STEP);
+                        ++ray;
+                    }
+                }
+            }
+        }
+
+        // blocks we don't list are as tough as wood if they are solid, and
+        // no obstacle at all if they are not.
+        for (Material material : Material.values()) {
+            if (material.isBlock() && material.getId() < RESISTANCE.length) {
+                SOLID[material.getId()] = material.isSolid();
+                RESISTANCE[material.getId()] = material.isSolid() ? 3.0f : 0.0f;
+            }
+        }
+
+        resist(0.1f, Material.SNOW);
+        resist(0.2f, Material.LEAVES, Material.LEAVES_2, Material.SNOW_BLOCK);
+        resist(0.3f, Material.GLASS, Material.STAINED_GLASS, Material.GLOWSTONE);
+        resist(0.4f, Material.NETHERRACK);
+        resist(0.5f, Material.DIRT, Material.SAND, Material.SOUL_SAND, Material.ICE, Material.PACKED_ICE);
+        resist(0.6f, Material.GRASS, Material.GRAVEL, Material.CLAY, Material.SOIL, Material.SPONGE);
+        resist(0.8f, Material.SANDSTONE, Material.RED_SANDSTONE, Material.WOOL, Material.QUARTZ_BLOCK);
+        resist(1.5f, Material.BOOKSHELF);
+        resist(2.0f, Material.LOG, Material.LOG_2);
+        resist(2.5f, Material.WORKBENCH, Material.CHEST);
+        resist(3.5f, Material.FURNACE, Material.BURNING_FURNACE);
+        resist(4.2f, Material.HARD_CLAY, Material.STAINED_CLAY);
+        resist(6.0f, Material.STONE, Material.COBBLESTONE, Material.MOSSY_COBBLESTONE, Material.BRICK, Material.SMOOTH_BRICK,
+                Material.NETHER_BRICK, Material.DOUBLE_STEP, Material.STEP, Material.IRON_BLOCK, Material.GOLD_BLOCK,
+                Material.DIAMOND_BLOCK, Material.EMERALD_BLOCK, Material.COAL_BLOCK, Material.REDSTONE_BLOCK,
+                Material.PRISMARINE, Material.PURPUR_BLOCK);
+        resist(9.0f, Material.ENDER_STONE);
+        resist(100.0f, Material.WATER, Material.STATIONARY_WATER, Material.LAVA, Material.STATIONARY_LAVA);
+        resist(600.0f, Material.ENDER_CHEST);
+        resist(1200.0f, Material.OBSIDIAN, Material.ENCHANTMENT_TABLE, Material.ANVIL);
+        resist(3600000.0f, Material.BEDROCK, Material.ENDER_PORTAL, Material.ENDER_PORTAL_FRAME, Material.COMMAND,
+                Material.BARRIER);
+        resist(0.0f, Material.TNT);
+    }
+
+    private static void resist(float resistance, Material... materials) {
+        for (Material material : materials) {
+            RESISTANCE[material.getId()] = resistance;
+        }
+    }
+
+    /**
+     * This describes one blast: the explosions that make it up, and, once the rays are cast, the blocks it breaks. Explosions
+     * that go off at the same spot are given as one center that goes off several times.
+     */
+    public static final class Blast {
+
+        private final World world;
+        private final float power;
+        private int centerCount;
+        private double[] xs = new double[4], ys = new double[4], zs = new double[4];
+        private int[] times = new int[4];
+        private ChunkSnapshot[] chunks;
+        private int minChunkX, minChunkZ, chunksAcross;
+        private int maxHeight;
+        private long seed;
+        private long[] broken;
+        private int brokenCount;
+        private RuntimeException failure;
+        private final Metrics.CostCenter costCenter = SnowballLogic.getMetrics().getCurrent();
+
+        /**
+         * This creates a blast with no explosions in it yet.
+         *
+         * @param world The world it goes off in.
+         * @param power The power of each explosion, as createExplosion() takes it.
+         */
+        public Blast(World world, float power) {
+            this.world = world;
+            this.power = power;
+        }
+
+        /**
+         * This adds explosions to the blast.
+         *
+         * @param location The spot they go off at.
+         * @param count The number of explosions that go off there.
+         */
+        public void addCenter(Location location, int count) {
+            if (count <= 0) {
+                return;
+            }
+
+            if (centerCount == xs.length) {
+                xs = Arrays.copyOf(xs, centerCount * 2);
+                ys = Arrays.copyOf(ys, centerCount * 2);
+                zs = Arrays.copyOf(zs, centerCount * 2);
+                times = Arrays.copyOf(times, centerCount * 2);
+            }
+
+            xs[centerCount] = location.getX();
+            ys[centerCount] = location.getY();
+            zs[centerCount] = location.getZ();
+            times[centerCount] = count;
+            ++centerCount;
+        }
+
+        /**
+         * This returns the id of the block at a spot, from the snapshots: 0 for air (which is what there is above and below
+         * the world), or -1 if the chunk was not loaded.
+         */
+        private int getTypeId(int x, int y, int z) {
+            if (y < 0 || y >= maxHeight) {
+                return 0;
+            }
+
+            int chunkX = (x >> 4) - minChunkX;
+            int chunkZ = (z >> 4) - minChunkZ;
+
+            if (chunkX < 0 || chunkZ < 0 || chunkX >= chunksAcross || chunkZ >= chunksAcross) {
+                return -1;
+            }
+
+            ChunkSnapshot chunk = chunks[chunkX * chunksAcross + chunkZ];
+            return chunk != null ? chunk.getBlockTypeId(x & 15, y, z & 15) : -1;
+        }
+
+        private boolean isBroken(int x, int y, int z) {
+            return Arrays.binarySearch(broken, 0, brokenCount, pack(x, y, z)) >= 0;
+        }
+
+        /**
+         * This returns the part of an entity the blast can see from a center, sampling the entity's feet, middle and eyes; a
+         * solid block in between hides a sample, unless the blast broke it.
+         */
+        private double getExposure(int center, double x, double y, double z, double eyeY) {
+            int visible = 0;
+
+            for (int sample = 0; sample < 3; ++sample) {
+                double sampleY = y + (eyeY - y) * sample / 2.0;
+
+                if (isVisible(xs[center], ys[center], zs[center], x, sampleY, z)) {
+                    ++visible;
+                }
+            }
+
+            return visible / 3.0;
+        }
+
+        private boolean isVisible(double x0, double y0, double z0, double x1, double y1, double z1) {
+            double dx = x1 - x0, dy = y1 - y0, dz = z1 - z0;
+            int steps = (int) Math.ceil(Math.sqrt(dx * dx + dy * dy + dz * dz) * 4.0);
+
+            for (int step = 1; step < steps; ++step) {
+                double t = step / (double) steps;
+                int x = floor(x0 + dx * t), y = floor(y0 + dy * t), z = floor(z0 + dz * t);
+                int id = getTypeId(x, y, z);
+
+                if (id > 0 && SOLID[id] && !isBroken(x, y, z)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * This method starts a blast: it takes snapshots of the chunks the rays can reach and hands the rays to the pool. The
+     * blocks break and the entities fly on a later tick, when run() finds the rays done.
+     *
+     * @param blast The blast to set off.
+     */
+    public void detonate(final Blast blast) {
+        if (blast.centerCount == 0 || blast.power <= 0) {
+            return;
+        }
+
+        // a ray can't get further than its greatest strength lets it
+        // cross open air.
+        double reach = blast.power * 1.3 / AIR_COST * STEP + 1.0;
+        double minX = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+
+        for (int c = 0; c < blast.centerCount; ++c) {
+            minX = Math.min(minX, blast.xs[c] - reach);
+            minZ = Math.min(minZ, blast.zs[c] - reach);
+            maxX = Math.max(maxX, blast.xs[c] + reach);
+            maxZ = Math.max(maxZ, blast.zs[c] + reach);
+        }
+
+        blast.minChunkX = floor(minX) >> 4;
+        blast.minChunkZ = floor(minZ) >> 4;
+        blast.chunksAcross = Math.max((floor(maxX) >> 4) - blast.minChunkX, (floor(maxZ) >> 4) - blast.minChunkZ) + 1;
+        blast.chunks = new ChunkSnapshot[blast.chunksAcross * blast.chunksAcross];
+        blast.maxHeight = blast.world.getMaxHeight();
+        blast.seed = random.nextLong();
+
+        for (int cx = 0; cx < blast.chunksAcross; ++cx) {
+            for (int cz = 0; cz < blast.chunksAcross; ++cz) {
+                int chunkX = blast.minChunkX + cx, chunkZ = blast.minChunkZ + cz;
+
+                // we don't load chunks for this; rays stop at the edge of
+                // the loaded world.
+                if (blast.world.isChunkLoaded(chunkX, chunkZ)) {
+                    blast.chunks[cx * blast.chunksAcross + cz]
+                            = blast.world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false);
+                }
+            }
+        }
+
+        if (pool == null) {
+            pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        }
+
+        ++pendingCount;
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    RayTask task = new RayTask(blast, 0, RAY_X.length);
+                    task.invoke();
+                    Arrays.sort(task.keys, 0, task.count);
+                    blast.broken = task.keys;
+                    blast.brokenCount = unique(task.keys, task.count);
+                } catch (RuntimeException ex) {
+                    blast.failure = ex;
+                } finally {
+                    finished.add(blast);
+                }
+            }
+        });
+    }
+
+    /**
+     * This method finishes the blasts whose rays are done: it breaks their blocks and pushes the entities near them. This is
+     * called every server tick.
+     */
+    public void run() {
+        Blast blast;
+
+        while ((blast = finished.poll()) != null) {
+            --pendingCount;
+
+            if (blast.failure != null) {
+                logger.log(Level.WARNING, "A TNT snowball blast failed.", blast.failure);
+                continue;
+            }
+
+            // the world may have been unloaded while the rays were cast.
+            if (Bukkit.getWorld(blast.world.getUID()) != blast.world) {
+                continue;
+            }
+
+            Metrics metrics = SnowballLogic.getMetrics();
+            metrics.enter(blast.costCenter);
+
+            try {
+                push(blast);
+                breakBlocks(blast);
+            } finally {
+                long nanos = metrics.exit();
+
+                if (blast.costCenter != null) {
+                    blast.costCenter.workNanos.record(nanos);
+                }
+            }
+
+            ++blastCount;
+        }
+    }
+
+    /**
+     * This returns the number of blasts whose rays are still being cast.
+     *
+     * @return The pending count.
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * This returns the number of blasts finished so far.
+     *
+     * @return The blast count.
+     */
+    public long getBlastCount() {
+        return blastCount;
+    }
+
+    /**
+     * This returns the number of blocks blasts have broken so far.
+     *
+     * @return The broken block count.
+     */
+    public long getBrokenCount() {
+        return brokenCount;
+    }
+
+    /**
+     * This method drops every blast not yet finished and stops the pool; we use this when the plugin is disabled.
+     */
+    public void clear() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+
+        finished.clear();
+        pendingCount = 0;
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Rays
+    //
+    /**
+     * This casts a range of the rays, from every center of a blast, splitting the range between the pool's threads when it
+     * is large. The keys of the blocks broken end up in 'keys'; a block may be there more than once.
+     */
+    private static final class RayTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final Blast blast;
+        private final int firstRay, endRay;
+        private long[] keys = new long[0];
+        private int count;
+
+        public RayTask(Blast blast, int firstRay, int endRay) {
+            this.blast = blast;
+            this.firstRay = firstRay;
+            this.endRay = endRay;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRay - firstRay > RAYS_PER_TASK) {
+                int middle = (firstRay + endRay) >>> 1;
+                RayTask left = new RayTask(blast, firstRay, middle);
+                RayTask right = new RayTask(blast, middle, endRay);
+                invokeAll(left, right);
+                keys = Arrays.copyOf(left.keys, left.count + right.count);
+                System.arraycopy(right.keys, 0, keys, left.count, right.count);
+                count = left.count + right.count;
+                return;
+            }
+
+            keys = new long[256];
+            Random random = new Random(blast.seed + firstRay);
+
+            for (int ray = firstRay; ray < endRay; ++ray) {
+                for (int c = 0; c < blast.centerCount; ++c) {
+                    cast(ray, c, random);
+                }
+            }
+        }
+
+        /**
+         * This casts one ray from one center, once for each explosion there. Each explosion crosses the part of the ray the
+         * ones before it cleared as open air, and carries on from there.
+         */
+        private void cast(int ray, int center, Random random) {
+            double x0 = blast.xs[center], y0 = blast.ys[center], z0 = blast.zs[center];
+            int cleared = 0;
+            long lastBroken = Long.MIN_VALUE;
+
+            for (int explosion = 0; explosion < blast.times[center]; ++explosion) {
+                // a block broken by an earlier explosion is air to this one,
+                // but one it breaks itself still slows it down each time the
+                // ray passes through it.
+                long brokenBefore = lastBroken;
+                float strength = blast.power * (0.7f + random.nextFloat() * 0.6f) - AIR_COST * cleared;
+
+                for (int step = cleared; strength > 0; ++step) {
+                    int x = floor(x0 + RAY_X[ray] * step);
+                    int y = floor(y0 + RAY_Y[ray] * step);
+                    int z = floor(z0 + RAY_Z[ray] * step);
+                    long key = pack(x, y, z);
+
+                    if (key != brokenBefore) {
+                        int id = blast.getTypeId(x, y, z);
+
+                        if (id < 0) {
+                            break;
+                        }
+
+                        if (id != 0) {
+                            strength -= (RESISTANCE[id] + 0.3f) * 0.3f;
+
+                            if (strength <= 0) {
+                                break;
+                            }
+
+                            if (key != lastBroken) {
+                                add(key);
+                                lastBroken = key;
+                            }
+                        }
+                    }
+
+                    cleared = Math.max(cleared, step + 1);
+                    strength -= AIR_COST;
+                }
+            }
+        }
+
+        private void add(long key) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+            }
+
+            keys[count++] = key;
+        }
+    }
+
+    /**
+     * This removes the repeats from a sorted array of keys, and returns how many are left.
+     */
+    private static int unique(long[] keys, int count) {
+        int kept = 0;
+
+        for (int i = 0; i < count; ++i) {
+            if (kept == 0 || keys[kept - 1] != keys[i]) {
+                keys[kept++] = keys[i];
+            }
+        }
+
+        return kept;
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Applying
+    //
+    /**
+     * This pushes and hurts the entities near a blast. The push is that of all its explosions together, but the hurt is only
+     * that of the worst one, as the explosions would have been at nearly the same moment and Minecraft does not let an entity
+     * be hurt again so soon. Items caught in it are destroyed.
+     */
+    private static void push(Blast blast) {
+        double reach = blast.power * 2.0;
+        EntityIndex index = SnowballLogic.getEntityIndex(blast.world);
+        index.beginQuery();
+
+        for (int c = 0; c < blast.centerCount; ++c) {
+            index.collect(blast.xs[c], blast.ys[c], blast.zs[c], reach);
+        }
+
+        for (int r = 0; r < index.getResultCount(); ++r) {
+            int i = index.getResult(r);
+            Entity entity = index.getEntity(i);
+            double x = index.getX(i), y = index.getY(i), z = index.getZ(i);
+            double eyeY = entity instanceof LivingEntity ? y + ((LivingEntity) entity).getEyeHeight() : y;
+            double pushX = 0, pushY = 0, pushZ = 0, damage = 0;
+            boolean caught = false;
+
+            for (int c = 0; c < blast.centerCount; ++c) {
+                double dx = x - blast.xs[c], dy = y - blast.ys[c], dz = z - blast.zs[c];
+                double distance = Math.sqrt(dx * dx + dy * dy + dz * dz) / reach;
+                dy = eyeY - blast.ys[c];
+                double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+                if (distance > 1.0 || length == 0) {
+                    continue;
+                }
+
+                double impact = (1.0 - distance) * blast.getExposure(c, x, y, z, eyeY);
+                int times = blast.times[c];
+                damage = Math.max(damage, (int) ((impact * impact + impact) / 2.0 * 7.0 * reach + 1.0));
+                pushX += dx / length * impact * times;
+                pushY += dy / length * impact * times;
+                pushZ += dz / length * impact * times;
+                caught = true;
+            }
+
+            if (!caught) {
+                continue;
+            }
+
+            if (entity instanceof Item || entity instanceof ExperienceOrb) {
+                if (damage >= 5.0) {
+                    entity.remove();
+                    SnowballLogic.getMetrics().countRemoved();
+                }
+
+                continue;
+            }
+
+            if (entity instanceof LivingEntity) {
+                hurt((LivingEntity) entity, damage);
+            }
+
+            entity.setVelocity(entity.getVelocity().add(new Vector(pushX, pushY, pushZ)));
+        }
+    }
+
+    /**
+     * This hurts an entity as an explosion would. damage() would fire a second, custom damage event of its own and skip armor,
+     * so instead we fire the explosion's damage event, take off what armor and Blast Protection take off, and then take what is
+     * left from the entity's health directly, with the event as its last damage cause.
+     *
+     * Armor is worked out as vanilla does (armor and toughness, then two points of protection for each level of Blast Protection
+     * on each piece), but we don't reproduce everything damage() does: the Resistance effect, absorption hearts, the Protection
+     * enchantment, wear on the armor, the time the entity can't be hurt again, and the hurt sound are all left out. Players in
+     * creative or spectator mode are not hurt at all.
+     */
+    private static void hurt(LivingEntity entity, double damage) {
+        if (entity.isDead()) {
+            return;
+        }
+
+        if (entity instanceof Player) {
+            GameMode mode = ((Player) entity).getGameMode();
+
+            if (mode == GameMode.CREATIVE || mode == GameMode.SPECTATOR) {
+                return;
+            }
+        }
+
+        EntityDamageEvent event = new EntityDamageEvent(entity, EntityDamageEvent.DamageCause.BLOCK_EXPLOSION, damage);
+        Bukkit.getPluginManager().callEvent(event);
+
+        if (event.isCancelled()) {
+            return;
+        }
+
+        double armor = getAttribute(entity, Attribute.GENERIC_ARMOR);
+        double toughness = getAttribute(entity, Attribute.GENERIC_ARMOR_TOUGHNESS);
+        double reduced = event.getDamage();
+        double armorPoints = Math.min(20.0, Math.max(armor / 5.0, armor - reduced / (2.0 + toughness / 4.0)));
+        reduced *= 1.0 - armorPoints / 25.0;
+
+        int protection = 0;
+        EntityEquipment equipment = entity.getEquipment();
+
+        if (equipment != null) {
+            for (ItemStack piece : equipment.getArmorContents()) {
+                if (piece != null) {
+                    protection += piece.getEnchantmentLevel(Enchantment.PROTECTION_EXPLOSIONS) * 2;
+                }
+            }
+        }
+
+        reduced *= 1.0 - Math.min(20, protection) / 25.0;
+
+        if (reduced <= 0) {
+            return;
+        }
+
+        entity.setLastDamageCause(event);
+        entity.playEffect(EntityEffect.HURT);
+        entity.setHealth(Math.max(0.0, entity.getHealth() - reduced));
+    }
+
+    private static double getAttribute(LivingEntity entity, Attribute attribute) {
+        AttributeInstance instance = entity.getAttribute(attribute);
+        return instance != null ? instance.getValue() : 0.0;
+    }
+
+    /**
+     * This breaks the blocks the rays reached, in one batch. As with an explosion, a few of them drop items and any TNT is set
+     * off; the world may have changed since the snapshots, so we look at each block again first.
+     *
+     * Other plugins are told of the blocks with a BlockExplodeEvent first, as they would be for an explosion; they may cancel
+     * it, take blocks off its list, or change the share of blocks that drop items.
+     */
+    private void breakBlocks(Blast blast) {
+        World world = blast.world;
+        List<Block> blocks = new ArrayList<Block>(blast.brokenCount);
+
+        for (int n = 0; n < blast.brokenCount; ++n) {
+            long key = blast.broken[n];
+            int x = unpackX(key), y = unpackY(key), z = unpackZ(key);
+
+            if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+                continue;
+            }
+
+            Block block = world.getBlockAt(x, y, z);
+
+            if (block.getType() != Material.AIR) {
+                blocks.add(block);
+            }
+        }
+
+        Block origin = world.getBlockAt(floor(blast.xs[0]), floor(blast.ys[0]), floor(blast.zs[0]));
+        BlockExplodeEvent event = new BlockExplodeEvent(origin, blocks, 1.0f / blast.power);
+        Bukkit.getPluginManager().callEvent(event);
+
+        if (!event.isCancelled()) {
+            breakBlocks(blast, event.blockList(), event.getYield());
+        }
+
+        // an explosion with no power breaks and pushes nothing, but still
+        // makes the bang and the smoke.
+        for (int c = 0; c < blast.centerCount; ++c) {
+            world.createExplosion(blast.xs[c], blast.ys[c], blast.zs[c], 0.0f, false, false);
+        }
+    }
+
+    private void breakBlocks(Blast blast, List<Block> blocks, float dropChance) {
+        World world = blast.world;
+        BlockEditBatch batch = new BlockEditBatch(world, floor(blast.xs[0]), floor(blast.zs[0]), true);
+        Set<Block> seen = new HashSet<Block>();
+
+        for (Block block : blocks) {
+            Material type = block.getType();
+
+            // a plugin may have changed a block, or listed it twice.
+            if (type == Material.AIR || !seen.add(block)) {
+                continue;
+            }
+
+            int x = block.getX(), y = block.getY(), z = block.getZ();
+            Location center = new Location(world, x + 0.5, y + 0.5, z + 0.5);
+
+            if (type == Material.TNT) {
+                TNTPrimed primed = world.spawn(center, TNTPrimed.class);
+                primed.setFuseTicks(10 + random.nextInt(20));
+            } else if (random.nextFloat() < dropChance) {
+                for (ItemStack drop : block.getDrops()) {
+                    world.dropItemNaturally(center, drop);
+                }
+            }
+
+            batch.set(x, y, z, Material.AIR);
+        }
+
+        int broken = batch.apply();
+        brokenCount += broken;
+        SnowballLogic.getMetrics().countBlocksWritten(broken);
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Packing
+    //
+    // x and z get 26 bits each, and y gets 12, as in BlockEditBatch.
+    //
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static int unpackX(long key) {
+        return (int) (key >> 38);
+    }
+
+    private static int unpackY(long key) {
+        return (int) (key & 0xFFF);
+    }
+
+    private static int unpackZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+
+    private static int floor(double value) {
+        return (int) Math.floor(value);
+    }
+}
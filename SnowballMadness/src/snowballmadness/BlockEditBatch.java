@@ -0,0 +1,340 @@
+package snowballmadness;
+
+import com.google.common.base.*;
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.block.*;
+
+/**
+ * This class collects the block changes a logic wants to make, and then makes them all at once. Each change is kept as a packed
+ * position and a packed material and data value, so even a very large batch is just a few arrays.
+ *
+ * When we apply the batch we sort the changes by chunk (nearest the center first) and then by section, so we work through one
+ * chunk at a time; we skip any change that would set a block to what it already is, and if a position was changed more than
+ * once only the last change counts. We can also turn off physics for the whole batch, which most area logics are happy with.
+ *
+ * A batch can be applied a piece at a time; apply() takes a limit and remembers where it stopped.
+ */
+public final class BlockEditBatch {
+
+    private static final Material[] MATERIALS = Material.values();
+    private final World world;
+    private final int centerChunkX, centerChunkZ;
+    private final boolean applyPhysics;
+    private long[] positions = new long[64];
+    private int[] values = new int[64];
+    private int count;
+    private int[] order;
+    private int cursor;
+    private int changed;
+
+    /**
+     * This creates an empty batch.
+     *
+     * @param world The world the changes are for.
+     * @param centerX The x coordinate of the center of the change; chunks near this are done first.
+     * @param centerZ The z coordinate of the center of the change.
+     * @param applyPhysics False to change blocks without a physics update; true to update physics for each.
+     */
+    public BlockEditBatch(World world, int centerX, int centerZ, boolean applyPhysics) {
+        this.world = Preconditions.checkNotNull(world);
+        this.centerChunkX = centerX >> 4;
+        this.centerChunkZ = centerZ >> 4;
+        this.applyPhysics = applyPhysics;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * This adds a change to the batch; the block will get the material with data 0.
+     *
+     * @param x The x coordinate of the block.
+     * @param y The y coordinate of the block.
+     * @param z The z coordinate of the block.
+     * @param material The material to set.
+     */
+    public void set(int x, int y, int z, Material material) {
+        set(x, y, z, material, (byte) 0);
+    }
+
+    /**
+     * This adds a change to the batch.
+     *
+     * @param x The x coordinate of the block.
+     * @param y The y coordinate of the block.
+     * @param z The z coordinate of the block.
+     * @param material The material to set.
+     * @param data The data value to set.
+     */
+    public void set(int x, int y, int z, Material material, byte data) {
+        Preconditions.checkState(order == null, "The batch has already been applied.");
+
+        if (y < 0 || y >= world.getMaxHeight()) {
+            return;
+        }
+
+        if (count == positions.length) {
+            positions = Arrays.copyOf(positions, count * 2);
+            values = Arrays.copyOf(values, count * 2);
+        }
+
+        positions[count] = pack(x, y, z);
+        values[count] = (material.ordinal() << 8) | (data & 0xFF);
+        ++count;
+    }
+
+    /**
+     * This adds a change to the batch; if the block already has the material (and data 0) we don't bother.
+     *
+     * @param block The block to change.
+     * @param material The material to set.
+     */
+    public void set(Block block, Material material) {
+        set(block, material, (byte) 0);
+    }
+
+    /**
+     * This adds a change to the batch; if the block already has the material and data, we don't bother.
+     *
+     * @param block The block to change.
+     * @param material The material to set.
+     * @param data The data value to set.
+     */
+    public void set(Block block, Material material, byte data) {
+        if (block.getType() != material || block.getData() != data) {
+            set(block.getX(), block.getY(), block.getZ(), material, data);
+        }
+    }
+
+    /**
+     * This returns the number of changes in the batch, including any already applied.
+     *
+     * @return The number of changes.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * This returns the number of changes not yet applied.
+     *
+     * @return The number remaining.
+     */
+    public int getRemaining() {
+        return count - cursor;
+    }
+
+    /**
+     * This returns true once every change has been applied.
+     *
+     * @return True if there is nothing left to do.
+     */
+    public boolean isDone() {
+        return cursor >= count;
+    }
+
+    /**
+     * This returns the number of blocks actually changed so far; this does not count changes we skipped because the block was
+     * already right.
+     *
+     * @return The number of blocks changed.
+     */
+    public int getChangedCount() {
+        return changed;
+    }
+
+    /**
+     * This applies every change in the batch.
+     *
+     * @return The number of blocks actually changed.
+     */
+    public int apply() {
+        return apply(Integer.MAX_VALUE);
+    }
+
+    /**
+     * This applies changes until we run out or have looked at the number given. If we stop part way, the next call picks up
+     * where we left off. Once this has been called, you can't add more changes.
+     *
+     * @param maxEdits The largest number of changes to look at.
+     * @return The number of blocks actually changed by this call.
+     */
+    public int apply(int maxEdits) {
+        if (order == null) {
+            sort();
+        }
+
+        int changedBefore = changed;
+        int end = (int) Math.min((long) cursor + Math.max(0, maxEdits), count);
+        Chunk chunk = null;
+        int chunkX = 0, chunkZ = 0;
+
+        for (; cursor < end; ++cursor) {
+            int index = order[cursor];
+            long position = positions[index];
+
+            // a later change to the same block wins; the order is stable,
+            // so the later one comes next.
+            if (cursor + 1 < count && positions[order[cursor + 1]] == position) {
+                continue;
+            }
+
+            int x = unpackX(position);
+            int y = unpackY(position);
+            int z = unpackZ(position);
+
+            if (chunk == null || chunkX != (x >> 4) || chunkZ != (z >> 4)) {
+                chunkX = x >> 4;
+                chunkZ = z >> 4;
+                chunk = world.getChunkAt(chunkX, chunkZ);
+            }
+
+            Block block = chunk.getBlock(x & 15, y, z & 15);
+            Material material = MATERIALS[values[index] >>> 8];
+            byte data = (byte) (values[index] & 0xFF);
+
+            if (block.getType() != material || block.getData() != data) {
+                block.setType(material, applyPhysics);
+
+                if (data != 0) {
+                    block.setData(data, applyPhysics);
+                }
+
+                ++changed;
+            }
+        }
+
+        return changed - changedBefore;
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Ordering
+    //
+    private void sort() {
+        order = new int[count];
+
+        for (int i = 0; i < count; ++i) {
+            order[i] = i;
+        }
+
+        sort(0, count - 1);
+    }
+
+    private void sort(int low, int high) {
+        while (high - low > 16) {
+            int pivot = order[(low + high) >>> 1];
+            int i = low, j = high;
+
+            while (i <= j) {
+                while (compare(order[i], pivot) < 0) {
+                    ++i;
+                }
+
+                while (compare(order[j], pivot) > 0) {
+                    --j;
+                }
+
+                if (i <= j) {
+                    int t = order[i];
+                    order[i] = order[j];
+                    order[j] = t;
+                    ++i;
+                    --j;
+                }
+            }
+
+            // recurse into the smaller side, and loop on the larger, so the
+            // stack stays shallow.
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+
+        for (int i = low + 1; i <= high; ++i) {
+            int item = order[i];
+            int j = i - 1;
+
+            while (j >= low && compare(order[j], item) > 0) {
+                order[j + 1] = order[j];
+                --j;
+            }
+
+            order[j + 1] = item;
+        }
+    }
+
+    /**
+     * This compares two changes by chunk (nearest the center first), then section, then position, and finally by the order they
+     * were added in.
+     */
+    private int compare(int left, int right) {
+        if (left == right) {
+            return 0;
+        }
+
+        long a = positions[left];
+        long b = positions[right];
+
+        if (a != b) {
+            int ax = unpackX(a) >> 4, az = unpackZ(a) >> 4;
+            int bx = unpackX(b) >> 4, bz = unpackZ(b) >> 4;
+
+            if (ax != bx || az != bz) {
+                int c = compareInts(chunkDistance(ax, az), chunkDistance(bx, bz));
+
+                if (c == 0) {
+                    c = compareInts(ax, bx);
+                }
+
+                return c != 0 ? c : compareInts(az, bz);
+            }
+
+            int ay = unpackY(a), by = unpackY(b);
+
+            if ((ay >> 4) != (by >> 4)) {
+                return compareInts(ay >> 4, by >> 4);
+            }
+
+            return a < b ? -1 : 1;
+        }
+
+        return compareInts(left, right);
+    }
+
+    private int chunkDistance(int chunkX, int chunkZ) {
+        int dx = chunkX - centerChunkX;
+        int dz = chunkZ - centerChunkZ;
+        return dx * dx + dz * dz;
+    }
+
+    private static int compareInts(int left, int right) {
+        return left < right ? -1 : (left == right ? 0 : 1);
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Packing
+    //
+    // x and z get 26 bits each, and y gets 12, as Minecraft does it.
+    //
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static int unpackX(long position) {
+        return (int) (position >> 38);
+    }
+
+    private static int unpackY(long position) {
+        return (int) (position & 0xFFF);
+    }
+
+    private static int unpackZ(long position) {
+        return (int) (position << 26 >> 38);
+    }
+}
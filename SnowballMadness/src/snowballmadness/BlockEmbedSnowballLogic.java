@@ -155,10 +155,10 @@ public class BlockEmbedSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
 
-        Location loc = snowball.getLocation().clone();
+        Location loc = hit.getLocation().clone();
         Block block = loc.getBlock();
 
         if (block.getType() == Material.LONG_GRASS) {
@@ -1,6 +1,7 @@
 package snowballmadness;
 
 import com.google.common.base.*;
+import java.util.*;
 import org.bukkit.*;
 import org.bukkit.block.*;
 import org.bukkit.entity.*;
@@ -20,15 +21,43 @@ public class BlockPlacementSnowballLogic extends SnowballLogic {
         this.durability = Preconditions.checkNotNull(durability);
     }
 
+    private static final EnumMap<Material, BlockPlacementSnowballLogic[]> sharedLogics
+            = new EnumMap<Material, BlockPlacementSnowballLogic[]>(Material.class);
+
+    /**
+     * This method returns a logic that places the block given. These logics have no state of their own, so we keep one for each
+     * material and data value and hand it out to every snowball that needs it.
+     *
+     * @param toPlace The block material to place.
+     * @param durability The data value for the block.
+     * @return The logic to use.
+     */
+    public static BlockPlacementSnowballLogic fromMaterial(Material toPlace, short durability) {
+        if (durability < 0 || durability >= 16) {
+            return new BlockPlacementSnowballLogic(toPlace, durability);
+        }
+
+        BlockPlacementSnowballLogic[] byData = sharedLogics.get(toPlace);
+
+        if (byData == null) {
+            byData = new BlockPlacementSnowballLogic[16];
+            sharedLogics.put(toPlace, byData);
+        }
+
+        if (byData[durability] == null) {
+            byData[durability] = new BlockPlacementSnowballLogic(toPlace, durability);
+        }
+
+        return byData[durability];
+    }
+
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
 
-        Location loc = snowball.getLocation().clone();
+        Location loc = hit.getLocation().clone();
 
-        if (toPlace.name().endsWith("STEP")
-                || toPlace.name().endsWith("SLAB")
-                || toPlace.name().endsWith("SLAB2")) {
+        if (MaterialClass.SLAB.contains(toPlace)) {
             if (loc.getBlock().getType() == Material.AIR && loc.getY() > 2) {
                 loc.setY(loc.getY() - 1);
             }
@@ -0,0 +1,144 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.entity.*;
+import org.bukkit.util.Vector;
+
+/**
+ * This class merges snowballs that are flying together. When two snowballs from the same family, with the same logic, are
+ * within a block of each other and moving at nearly the same velocity, we remove one and add its count to the other; the
+ * survivor is the 'carrier', and its FlightState's multiplicity says how many snowballs it stands for.
+ *
+ * Only logics whose canCoalesce() returns true are merged; those logics must use the multiplicity to scale what they do.
+ */
+public final class Coalescer {
+
+    /**
+     * Snowballs closer than this many blocks may be merged.
+     */
+    private static final double RADIUS = 1.0;
+    /**
+     * Snowballs whose velocities differ by less than this (squared, in blocks per tick) may be merged.
+     */
+    private static final double VELOCITY_TOLERANCE_SQUARED = 0.01;
+    private final InFlightRegistry registry;
+    private final Map<Key, Integer> carriers = new HashMap<Key, Integer>();
+    private long mergedCount;
+
+    public Coalescer(InFlightRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * This returns the number of snowballs we've removed by merging them into others.
+     *
+     * @return The merged count.
+     */
+    public long getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * This method looks for snowballs to merge, and merges them.
+     *
+     * @return The number of snowballs removed.
+     */
+    public int run() {
+        int merged = 0;
+
+        // we go backwards, since removing an entry moves the last one into its
+        // slot, and we've already looked at that one.
+        for (int slot = registry.size() - 1; slot >= 0; --slot) {
+            SnowballLogic logic = registry.logicAt(slot);
+
+            if (!logic.canCoalesce()) {
+                continue;
+            }
+
+            Snowball snowball = registry.snowballAt(slot);
+
+            if (!snowball.isValid()) {
+                continue;
+            }
+
+            Location loc = snowball.getLocation();
+            Key key = new Key(
+                    loc.getWorld(), registry.stateAt(slot).getLineage(), logic,
+                    (int) Math.floor(loc.getX() / RADIUS),
+                    (int) Math.floor(loc.getY() / RADIUS),
+                    (int) Math.floor(loc.getZ() / RADIUS));
+            Integer carrierId = carriers.get(key);
+            int carrierSlot = carrierId != null ? registry.indexOf(carrierId) : -1;
+
+            if (carrierSlot >= 0 && canMerge(registry.snowballAt(carrierSlot), snowball, loc)) {
+                FlightState state = registry.stateAt(slot);
+                registry.stateAt(carrierSlot).addMultiplicity(state.getMultiplicity());
+                registry.removeAt(slot);
+                snowball.remove();
+                ++merged;
+            } else {
+                carriers.put(key, registry.idAt(slot));
+            }
+        }
+
+        carriers.clear();
+        mergedCount += merged;
+        return merged;
+    }
+
+    private static boolean canMerge(Snowball carrier, Snowball snowball, Location loc) {
+        if (!carrier.isValid() || carrier.getLocation().distanceSquared(loc) > RADIUS * RADIUS) {
+            return false;
+        }
+
+        Vector difference = carrier.getVelocity().subtract(snowball.getVelocity());
+        return difference.lengthSquared() <= VELOCITY_TOLERANCE_SQUARED;
+    }
+
+    /**
+     * This class identifies the snowballs that may be merged together: those in the same cell of space, with the same family
+     * and logic. Keeping families apart means cancelling one never takes snowballs of another with it.
+     */
+    private static final class Key {
+
+        private final World world;
+        private final Lineage lineage;
+        private final SnowballLogic logic;
+        private final int x, y, z;
+
+        public Key(World world, Lineage lineage, SnowballLogic logic, int x, int y, int z) {
+            this.world = world;
+            this.lineage = lineage;
+            this.logic = logic;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return world == other.world
+                    && lineage == other.lineage
+                    && logic == other.logic
+                    && x == other.x
+                    && y == other.y
+                    && z == other.z;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = System.identityHashCode(logic);
+            h = h * 31 + System.identityHashCode(lineage);
+            h = h * 31 + x;
+            h = h * 31 + y;
+            h = h * 31 + z;
+            return h;
+        }
+    }
+}
@@ -10,40 +10,61 @@ import org.bukkit.util.Vector;
  *
  * @author christopherjohnson
  */
-public class ComeAlongSnowballLogic extends LingeringSnowballLogic<Entity> {
+public class ComeAlongSnowballLogic extends LingeringSnowballLogic<ComeAlongSnowballLogic.Knock> {
 
     private final Material trigger;
-    private Vector bounce;
 
     public ComeAlongSnowballLogic(Material trigger) {
         this.trigger = Preconditions.checkNotNull(trigger);
     }
 
+    /**
+     * This logic only does anything to entities, and virtual snowballs can't hit those.
+     */
+    @Override
+    public boolean canFlyVirtually() {
+        return false;
+    }
+
     @Override
     public double damage(Snowball snowball, SnowballInfo info, Entity target, double proposedDamage) {
-        bounce = snowball.getVelocity().clone();
+        Vector bounce = snowball.getVelocity().clone();
         bounce.multiply(Math.pow(info.power, 2) / 6.0);
         switch (trigger) {
             case OBSIDIAN:
                 bounce.setY(Math.abs(bounce.getY()));
-                beginLinger(info, 2, 3, target);                //everything bounces away
+                beginLinger(info, target, 2, 3, new Knock(target, bounce));                //everything bounces away
                 break;
             case FISHING_ROD:
                 bounce.setY(Math.abs(bounce.getY()));
                 bounce.setX(-(bounce.getX()));
                 bounce.setZ(-(bounce.getZ()));
-                beginLinger(info, 2, 3, target);               //everything comes back atcha
+                beginLinger(info, target, 2, 3, new Knock(target, bounce));               //everything comes back atcha
                 break;
         }
         return super.damage(snowball, info, target, proposedDamage);
     }
 
     @Override
-    protected boolean linger(SnowballInfo info, int counter, Entity target) {
+    protected boolean linger(SnowballInfo info, int counter, Knock knock) {
 
-        target.setVelocity(bounce.clone().add(target.getVelocity()));
-        target.setFallDistance(0);
+        knock.target.setVelocity(knock.bounce.clone().add(knock.target.getVelocity()));
+        knock.target.setFallDistance(0);
         return true;
 
     }
+
+    /**
+     * This holds the entity we hit and the push we give it; the logic itself is shared, so these can't be fields of it.
+     */
+    static final class Knock {
+
+        public final Entity target;
+        public final Vector bounce;
+
+        public Knock(Entity target, Vector bounce) {
+            this.target = target;
+            this.bounce = bounce;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.entity.*;
+
+/**
+ * This class removes entities when a world has too many. A logic that finds the world crowded asks us to remove some entities
+ * of a type, and we do it a few at a time over the next ticks, starting with the ones farthest from any player, so the culling
+ * happens where nobody is watching.
+ */
+public final class CullQueue {
+
+    /**
+     * This is the most entities we remove in one tick.
+     */
+    public static final int REMOVALS_PER_TICK = 16;
+    private static final Comparator<Candidate> FARTHEST_FIRST = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate left, Candidate right) {
+            return Double.compare(right.distanceSquared, left.distanceSquared);
+        }
+    };
+    private final EntityCensus census;
+    private final List<Request> requests = new ArrayList<Request>();
+    private long culledCount;
+
+    public CullQueue(EntityCensus census) {
+        this.census = census;
+    }
+
+    /**
+     * This method asks for entities of a type to be removed. If we are already removing that type in that world, we remove at
+     * least as many as asked for this time; requests don't add up, since the census won't see what we've removed until we get to
+     * it.
+     *
+     * @param world The world to remove entities from.
+     * @param type The type of entity to remove.
+     * @param count The number to remove.
+     */
+    public void request(World world, EntityType type, int count) {
+        if (count <= 0 || type.getEntityClass() == null) {
+            return;
+        }
+
+        for (Request request : requests) {
+            if (request.world == world && request.type == type) {
+                request.remaining = Math.max(request.remaining, count);
+                return;
+            }
+        }
+
+        requests.add(new Request(world, type, count));
+    }
+
+    /**
+     * This method removes up to REMOVALS_PER_TICK of the entities asked for, working through the requests in order.
+     */
+    public void run() {
+        int budget = REMOVALS_PER_TICK;
+
+        while (budget > 0 && !requests.isEmpty()) {
+            Request request = requests.get(0);
+
+            if (request.candidates == null) {
+                request.findCandidates();
+            }
+
+            while (budget > 0 && request.remaining > 0 && request.next < request.candidates.size()) {
+                Entity victim = request.candidates.get(request.next++).entity;
+
+                if (victim.isValid()) {
+                    census.remove(victim);
+                    victim.remove();
+                    SnowballLogic.getMetrics().countRemoved();
+                    --request.remaining;
+                    --budget;
+                    ++culledCount;
+                }
+            }
+
+            if (request.remaining <= 0 || request.next >= request.candidates.size()) {
+                requests.remove(0);
+            }
+        }
+    }
+
+    /**
+     * This returns the number of entities we've removed.
+     *
+     * @return The culled count.
+     */
+    public long getCulledCount() {
+        return culledCount;
+    }
+
+    /**
+     * This returns the number of entities we have yet to remove.
+     *
+     * @return The number waiting to be culled.
+     */
+    public int getPendingCount() {
+        int total = 0;
+
+        for (Request request : requests) {
+            total += request.remaining;
+        }
+
+        return total;
+    }
+
+    /**
+     * This method drops every request.
+     */
+    public void clear() {
+        requests.clear();
+    }
+
+    /**
+     * This class holds one request; when we start on it, we find the entities of its type and sort them farthest first, and then
+     * we work down that list over as many ticks as it takes.
+     */
+    private static final class Request {
+
+        public final World world;
+        public final EntityType type;
+        public int remaining;
+        public List<Candidate> candidates;
+        public int next;
+
+        public Request(World world, EntityType type, int remaining) {
+            this.world = world;
+            this.type = type;
+            this.remaining = remaining;
+        }
+
+        public void findCandidates() {
+            List<Location> players = new ArrayList<Location>();
+
+            for (Player player : world.getPlayers()) {
+                players.add(player.getLocation());
+            }
+
+            candidates = new ArrayList<Candidate>();
+
+            for (Entity entity : world.getEntitiesByClass(type.getEntityClass())) {
+                if (entity instanceof Player) {
+                    continue;
+                }
+
+                Location loc = entity.getLocation();
+                double nearest = Double.MAX_VALUE;
+
+                for (Location player : players) {
+                    double dx = player.getX() - loc.getX();
+                    double dy = player.getY() - loc.getY();
+                    double dz = player.getZ() - loc.getZ();
+                    nearest = Math.min(nearest, dx * dx + dy * dy + dz * dz);
+                }
+
+                candidates.add(new Candidate(entity, nearest));
+            }
+
+            Collections.sort(candidates, FARTHEST_FIRST);
+        }
+    }
+
+    private static final class Candidate {
+
+        public final Entity entity;
+        public final double distanceSquared;
+
+        public Candidate(Entity entity, double distanceSquared) {
+            this.entity = entity;
+            this.distanceSquared = distanceSquared;
+        }
+    }
+}
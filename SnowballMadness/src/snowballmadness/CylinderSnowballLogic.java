@@ -19,15 +19,15 @@ public class CylinderSnowballLogic extends SnowballLogic {
 
     public CylinderSnowballLogic(Material chestplateType, InventorySlice inventory) {
         this.chestplateType = chestplateType;
-        this.inventory = Preconditions.checkNotNull(inventory);
+        this.inventory = Preconditions.checkNotNull(inventory).snapshot();
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
-        ProjectileSource shooter = snowball.getShooter();
-        Material wallMaterial = inventory.getBottomItem().getType();
-        if (wallMaterial == Material.CHEST) {
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
+        ProjectileSource shooter = hit.getShooter();
+        final Material wallMaterial = inventory.getBottomMaterial();
+        if (wallMaterial == null || wallMaterial == Material.CHEST) {
             return;
         }
 
@@ -51,41 +51,21 @@ public class CylinderSnowballLogic extends SnowballLogic {
         }
 
         final int radius = baseTool;
-        final int diameter = radius * 2;
         final double distanceSquaredLimit = (radius * (double) radius) + 1.0;
+        // the wall runs from two thirds of the radius below the snowball, to a third above.
+        final int below = (int) (radius * 0.66666f);
+        final VoxelShape shape = VoxelShape.of(VoxelShape.Metric.CYLINDRICAL,
+                VoxelShape.atMost((distanceSquaredLimit * 0.9) - 9.0),
+                VoxelShape.atMost(distanceSquaredLimit),
+                radius, below, radius - below);
 
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
-
-        // while in theory x anx z are unlimited, we want to keep y
-        // within the normal world.
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(1, snowballLoc.getBlockY() - (int) (radius * 0.66666f));
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = Math.min(world.getMaxHeight(), beginY + radius);
-        final int endZ = beginZ + diameter;
-        final Location movingYBuffer = new Location(world, 0, 0, 0);
-        double distanceSquared = 0;
-
-        // no worries- all this executes before Minecraft can send anything
-        // back to the client, so we can set the blocks in any order. This one
-        // is convenient!
-        for (int x = beginX; x <= endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                for (int y = beginY; y <= endY; ++y) {
-                    movingYBuffer.setX(x);
-                    movingYBuffer.setY(snowballLoc.getY());
-                    movingYBuffer.setZ(z);
-                    distanceSquared = snowballLoc.distanceSquared(movingYBuffer);
-                    if (distanceSquared > ((distanceSquaredLimit * 0.9) - 9.0)
-                            && distanceSquared <= distanceSquaredLimit) {
-                        Block target = world.getBlockAt(x, y, z);
-                        Material material = target.getType();
-                        target.setType(wallMaterial);
-                    }
-                }
+        // the wall may be made of anything in the inventory, sand or water
+        // included, so we keep physics on.
+        submit(info, new TerrainJob(hit.getLocation(), shape, 1, true) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                batch.set(block, wallMaterial);
             }
-        }
+        });
     }
 }
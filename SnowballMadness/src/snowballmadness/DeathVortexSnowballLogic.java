@@ -16,18 +16,20 @@ import org.bukkit.Location;
  */
 public class DeathVortexSnowballLogic extends SnowballLogic {
 
-    private Vector previousTarget;
-
     @Override
-    public void tick(Snowball snowball, SnowballInfo info) {
-        super.tick(snowball, info);
+    public void tick(Snowball snowball, SnowballInfo info, FlightState state) {
+        super.tick(snowball, info, state);
 
         World world = snowball.getWorld();
         Vector target = snowball.getLocation().toVector();
         Vector momentum = snowball.getVelocity().normalize();
+        // like the magnet's, the pull is scaled by the ticks since the last one.
+        double step = getTickStep(snowball) / (double) DEFAULT_TICK_INTERVAL;
 
         // on the first tick, we approximate the previous location by
         // using the snowball's present location. Close enough!
+        Vector previousTarget = state.getPreviousLocation();
+
         if (previousTarget == null) {
             Location shooterLoc = snowball.getLocation();
 
@@ -38,59 +40,34 @@ public class DeathVortexSnowballLogic extends SnowballLogic {
             }
         }
 
-        for (Entity victim : world.getEntities()) {
-            /*if ((victim instanceof Snowball) || (victim == snowball.getShooter())) {
-                accelerate(victim, target, (0.03 * info.power));
-                //victim is another snowball or the shooter, we make them less interactive
-            } else {*/
-            accelerate(victim, target, info.power);
-            accelerate(victim, previousTarget, info.power);
-            /*if (victim instanceof ExperienceOrb) {
-                victim.remove();
-                }
-            }*/
-        }
-        previousTarget = target;
+        getForceEngine().addVortex(world, info.power, step, state.getMultiplicity(), target, previousTarget);
+        state.setPreviousLocation(target);
     }
 
     @Override
-    public double damage(Snowball snowball, SnowballInfo info, Entity target, double proposedDamage) {
-        target.teleport(target.getLocation().add(target.getVelocity()));
-        //if you hit things with the death vortex snowball, you knock 'em away from you
-        return 0;
+    public boolean canFlyVirtually() {
+        return false;
+    }
+
+    @Override
+    public boolean canCoalesce() {
+        return true;
     }
 
     /**
-     * This method applies acceleration of a victim towards a target. We a vector for 'target' instead of a Location because the
-     * methods we need are found on it; semantically this is a location.
+     * This returns the distance beyond which accelerate() does nothing at the power given.
      *
-     * @param victim The entity to accelerate.
-     * @param target The target to move the entity towards.
-     * @param power The snowball power; accelerate speed depends on this.
+     * @param power The snowball power.
+     * @return The distance in blocks.
      */
-    private void accelerate(Entity victim, Vector target, double power) {
-        Vector eLoc = victim.getLocation().toVector();
-        double dist = target.distance(eLoc);
-
-        if (dist > 0.0) {
-            double factor = power / dist;
-            if (factor > 0.01) {
-                Vector vel = victim.getVelocity().clone();
-                double restraint = 1.0 / ((Math.pow(vel.length(), 3)) + 1.0);
-                factor *= restraint;
-
-                Vector d = target.clone();
-                d.subtract(eLoc);
-                d.normalize();
-                d.multiply(factor);
+    static double getReach(double power) {
+        return power / 0.01;
+    }
 
-                if (eLoc.getY() < (target.getY() + 4.0)) {
-                    d.setY(Math.abs(d.getY())); //vortex tends to make victims go up!
-                }
-                vel.add(d);
-                victim.setVelocity(vel);
-                victim.setFallDistance(0); //stop damage while going up
-            }
-        }
+    @Override
+    public double damage(Snowball snowball, SnowballInfo info, Entity target, double proposedDamage) {
+        target.teleport(target.getLocation().add(target.getVelocity()));
+        //if you hit things with the death vortex snowball, you knock 'em away from you
+        return 0;
     }
 }
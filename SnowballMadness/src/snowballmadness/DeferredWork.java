@@ -0,0 +1,154 @@
+package snowballmadness;
+
+import java.util.*;
+import java.util.logging.*;
+
+/**
+ * This class holds small jobs that must wait for the next tick, such as putting a snowball back in a player's hand or dressing
+ * a mob we just spawned; Bukkit won't let some changes 'stick' on the tick they are made. Before this, each of these was its own
+ * BukkitRunnable, so a big multiplier of eggs could make hundreds of scheduler tasks at once.
+ *
+ * The jobs are kept in a ring buffer and all run at the start of the next tick, by our own ticker. A job is a Task (usually one
+ * shared object, made once) plus the things it works on, so deferring a job allocates nothing. Jobs deferred while the queue is
+ * running wait for the tick after.
+ */
+public final class DeferredWork {
+
+    private static final Logger logger = Logger.getLogger(DeferredWork.class.getName());
+    private Task[] tasks = new Task[64];
+    private Object[] subjects = new Object[64];
+    private Object[] contexts = new Object[64];
+    private int[] args = new int[64];
+    private int head;
+    private int count;
+    private int highWater;
+    private long runCount;
+
+    /**
+     * This is a job that can be deferred; the same task can be deferred many times with different arguments.
+     */
+    public interface Task {
+
+        /**
+         * This is called on the tick after the task was deferred.
+         *
+         * @param subject The thing the task works on.
+         * @param context More information for the task; may be null.
+         * @param arg A number for the task; what it means is up to the task.
+         */
+        void run(Object subject, Object context, int arg);
+    }
+
+    /**
+     * This method adds a job to run on the next tick.
+     *
+     * @param task The task to run.
+     * @param subject The thing the task works on.
+     * @param context More information for the task; may be null.
+     * @param arg A number for the task.
+     */
+    public void defer(Task task, Object subject, Object context, int arg) {
+        if (count == tasks.length) {
+            grow();
+        }
+
+        int slot = (head + count) & (tasks.length - 1);
+        tasks[slot] = task;
+        subjects[slot] = subject;
+        contexts[slot] = context;
+        args[slot] = arg;
+        ++count;
+        highWater = Math.max(highWater, count);
+    }
+
+    /**
+     * This method runs every job that was waiting when it was called. A job that throws is logged and dropped; the rest still
+     * run.
+     *
+     * @return The number of jobs run.
+     */
+    public int run() {
+        int due = count;
+
+        for (int n = 0; n < due; ++n) {
+            Task task = tasks[head];
+            Object subject = subjects[head];
+            Object context = contexts[head];
+            int arg = args[head];
+            tasks[head] = null;
+            subjects[head] = null;
+            contexts[head] = null;
+            head = (head + 1) & (tasks.length - 1);
+            --count;
+
+            try {
+                task.run(subject, context, arg);
+            } catch (RuntimeException ex) {
+                logger.log(Level.WARNING, "A deferred snowball task failed.", ex);
+            }
+        }
+
+        runCount += due;
+        return due;
+    }
+
+    /**
+     * This returns the number of jobs waiting.
+     *
+     * @return The queue depth.
+     */
+    public int getDepth() {
+        return count;
+    }
+
+    /**
+     * This returns the most jobs that have been waiting at once.
+     *
+     * @return The deepest the queue has been.
+     */
+    public int getHighWater() {
+        return highWater;
+    }
+
+    /**
+     * This returns the number of jobs run so far.
+     *
+     * @return The run count.
+     */
+    public long getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * This method drops every waiting job.
+     */
+    public void clear() {
+        Arrays.fill(tasks, null);
+        Arrays.fill(subjects, null);
+        Arrays.fill(contexts, null);
+        head = 0;
+        count = 0;
+    }
+
+    private void grow() {
+        int capacity = tasks.length * 2;
+        Task[] newTasks = new Task[capacity];
+        Object[] newSubjects = new Object[capacity];
+        Object[] newContexts = new Object[capacity];
+        int[] newArgs = new int[capacity];
+
+        for (int n = 0; n < count; ++n) {
+            int slot = (head + n) & (tasks.length - 1);
+            newTasks[n] = tasks[slot];
+            newSubjects[n] = subjects[slot];
+            newContexts[n] = contexts[slot];
+            newArgs[n] = args[slot];
+        }
+
+        tasks = newTasks;
+        subjects = newSubjects;
+        contexts = newContexts;
+        args = newArgs;
+        head = 0;
+    }
+}
@@ -0,0 +1,347 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.entity.*;
+import org.bukkit.event.entity.*;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * This class keeps dropped items and experience orbs from piling up into thousands of entities. TNT, item drop snowballs and
+ * the like can drop far more than anyone will ever pick up, and every drop is an entity the server must move and send.
+ *
+ * When a drop spawns, we look for a pile of the same thing in the same small cell of the grid- a 2x2x2 block cube- and, if
+ * there is one with room, add the drop to that pile instead of letting it spawn. Experience orbs always merge this way. We
+ * also count the items in each chunk, and once a chunk has as many as we allow, a drop that can't join any pile in the chunk
+ * is not spawned at all- but only if snowball logic caused it. What players throw, and what dies drops, is never thrown away,
+ * though it may still join a pile.
+ *
+ * The counts are kept from events- spawns, despawns, merges and pickups- and not by looking at the world's entities. Items can
+ * vanish without an event (burnt up, say), so a chunk that seems full is counted again from its own entities, at most once a
+ * second.
+ */
+public final class DropAggregator {
+
+    /**
+     * This is the number of items we allow in a chunk unless configured otherwise.
+     */
+    public static final int DEFAULT_ITEMS_PER_CHUNK = 256;
+    private static final int CELL_SHIFT = 1;
+    private static final int PILES_PER_CHUNK = 16;
+    private static final int RECOUNT_INTERVAL = 20;
+    private final Map<World, Map<Long, ChunkDrops>> worlds = new WeakHashMap<World, Map<Long, ChunkDrops>>();
+    private int itemsPerChunk = DEFAULT_ITEMS_PER_CHUNK;
+    private long mergedCount;
+    private long discardedCount;
+    private boolean snowballCaused;
+    private int sparedDrops;
+    private long sparedTick = -1;
+
+    /**
+     * This sets the number of items we allow in a chunk.
+     *
+     * @param limit The most items a chunk may have.
+     */
+    public void setItemsPerChunk(int limit) {
+        itemsPerChunk = Math.max(1, limit);
+    }
+
+    /**
+     * This sets whether the drops spawning now are caused by snowball logic; only those may be thrown away.
+     *
+     * @param caused True while snowball logic is running.
+     * @return The setting before this call, to be put back afterwards.
+     */
+    public boolean setSnowballCaused(boolean caused) {
+        boolean was = snowballCaused;
+        snowballCaused = caused;
+        return was;
+    }
+
+    /**
+     * This returns the number of drops we've added to piles instead of spawning.
+     *
+     * @return The merged count.
+     */
+    public long getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * This returns the number of drops we've thrown away because their chunk was full.
+     *
+     * @return The discarded count.
+     */
+    public long getDiscardedCount() {
+        return discardedCount;
+    }
+
+    /**
+     * This returns the number of items we've counted in every chunk.
+     *
+     * @return The item count.
+     */
+    public long getItemCount() {
+        long total = 0;
+
+        for (Map<Long, ChunkDrops> chunks : worlds.values()) {
+            for (ChunkDrops drops : chunks.values()) {
+                total += drops.items;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * This method handles an entity about to spawn; if it is an item or an orb, we may merge it into a pile or cancel it.
+     *
+     * @param e The spawn event.
+     * @param tick The current tick.
+     */
+    public void onSpawn(EntitySpawnEvent e, long tick) {
+        Entity entity = e.getEntity();
+
+        if (entity instanceof Item) {
+            onItemSpawn(e, (Item) entity, tick);
+        } else if (entity instanceof ExperienceOrb) {
+            onOrbSpawn(e, (ExperienceOrb) entity, tick);
+        }
+    }
+
+    private void onItemSpawn(EntitySpawnEvent e, Item item, long tick) {
+        Location location = e.getLocation();
+        Chunk chunk = location.getChunk();
+        ChunkDrops drops = forChunk(chunk, tick);
+        int cell = cellOf(location);
+        ItemStack stack = item.getItemStack();
+        boolean discardable = snowballCaused && !isSpared(tick);
+
+        if (drops.mergeItem(cell, stack)) {
+            e.setCancelled(true);
+            ++mergedCount;
+        } else if (!isFull(drops, chunk, tick)) {
+            ++drops.items;
+            drops.addPile(cell, item);
+        } else if (drops.mergeItem(-1, stack)) {
+            // a full chunk still takes the drop if any pile in it will.
+            e.setCancelled(true);
+            ++mergedCount;
+        } else if (discardable) {
+            e.setCancelled(true);
+            ++discardedCount;
+        } else {
+            ++drops.items;
+            drops.addPile(cell, item);
+        }
+    }
+
+    /**
+     * This tells us whether an item spawning is one of the drops of something that has just died; a snowball may have killed
+     * it, but its drops are spared all the same.
+     */
+    private boolean isSpared(long tick) {
+        if (sparedDrops > 0 && sparedTick == tick) {
+            --sparedDrops;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void onOrbSpawn(EntitySpawnEvent e, ExperienceOrb orb, long tick) {
+        Location location = e.getLocation();
+        ChunkDrops drops = forChunk(location.getChunk(), tick);
+        int cell = cellOf(location);
+
+        if (drops.mergeOrb(cell, orb.getExperience())) {
+            e.setCancelled(true);
+            ++mergedCount;
+        } else {
+            drops.addPile(cell, orb);
+        }
+    }
+
+    /**
+     * This method notes that something has died; the items it drops, which spawn just after this event, are never thrown
+     * away.
+     *
+     * @param e The event data.
+     * @param tick The current tick.
+     */
+    public void onDeath(EntityDeathEvent e, long tick) {
+        sparedDrops = e.getDrops().size();
+        sparedTick = tick;
+    }
+
+    /**
+     * This method uncounts an item that has despawned.
+     *
+     * @param e The event data.
+     */
+    public void onDespawn(ItemDespawnEvent e) {
+        uncount(e.getEntity());
+    }
+
+    /**
+     * This method uncounts an item that Minecraft has merged into another.
+     *
+     * @param e The event data.
+     */
+    public void onMerge(ItemMergeEvent e) {
+        uncount(e.getEntity());
+    }
+
+    /**
+     * This method uncounts an item that has been picked up.
+     *
+     * @param e The event data.
+     */
+    public void onPickup(EntityPickupItemEvent e) {
+        if (e.getRemaining() <= 0) {
+            uncount(e.getItem());
+        }
+    }
+
+    private void uncount(Item item) {
+        Location location = item.getLocation();
+        Map<Long, ChunkDrops> chunks = worlds.get(location.getWorld());
+
+        if (chunks != null) {
+            ChunkDrops drops = chunks.get(chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+
+            if (drops != null) {
+                drops.items = Math.max(0, drops.items - 1);
+            }
+        }
+    }
+
+    /**
+     * This method forgets the counts for a chunk that is unloading; if it loads again, it is counted afresh.
+     *
+     * @param chunk The chunk.
+     */
+    public void forget(Chunk chunk) {
+        Map<Long, ChunkDrops> chunks = worlds.get(chunk.getWorld());
+
+        if (chunks != null) {
+            chunks.remove(chunkKey(chunk.getX(), chunk.getZ()));
+        }
+    }
+
+    /**
+     * This method forgets every count and pile; we use this when the plugin is disabled.
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    private boolean isFull(ChunkDrops drops, Chunk chunk, long tick) {
+        if (drops.items >= itemsPerChunk && tick - drops.countedTick >= RECOUNT_INTERVAL) {
+            drops.recount(chunk, tick);
+        }
+
+        return drops.items >= itemsPerChunk;
+    }
+
+    private ChunkDrops forChunk(Chunk chunk, long tick) {
+        Map<Long, ChunkDrops> chunks = worlds.get(chunk.getWorld());
+
+        if (chunks == null) {
+            chunks = new HashMap<Long, ChunkDrops>();
+            worlds.put(chunk.getWorld(), chunks);
+        }
+
+        long key = chunkKey(chunk.getX(), chunk.getZ());
+        ChunkDrops drops = chunks.get(key);
+
+        if (drops == null) {
+            drops = new ChunkDrops();
+            drops.recount(chunk, tick);
+            chunks.put(key, drops);
+        }
+
+        return drops;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * This returns the cell of a location within its chunk, as a single number.
+     */
+    private static int cellOf(Location location) {
+        int x = (location.getBlockX() & 15) >> CELL_SHIFT;
+        int z = (location.getBlockZ() & 15) >> CELL_SHIFT;
+        int y = Math.max(0, location.getBlockY()) >> CELL_SHIFT;
+        return (y << 6) | (x << 3) | z;
+    }
+
+    /**
+     * This class holds the item count for one chunk, and the last few piles drops spawned in it, with the cell each is in.
+     */
+    private static final class ChunkDrops {
+
+        public final Entity[] piles = new Entity[PILES_PER_CHUNK];
+        public final int[] cells = new int[PILES_PER_CHUNK];
+        public int nextPile;
+        public int items;
+        public long countedTick;
+
+        /**
+         * This adds a stack to a pile of the same items in the cell, if one has room for all of it; a cell of -1 means any pile
+         * in the chunk will do.
+         */
+        public boolean mergeItem(int cell, ItemStack stack) {
+            for (int i = 0; i < piles.length; ++i) {
+                if (piles[i] instanceof Item && (cell < 0 || cells[i] == cell) && piles[i].isValid()) {
+                    Item pile = (Item) piles[i];
+                    ItemStack pileStack = pile.getItemStack();
+                    int amount = pileStack.getAmount() + stack.getAmount();
+
+                    if (pileStack.isSimilar(stack) && amount <= pileStack.getMaxStackSize()) {
+                        pileStack.setAmount(amount);
+                        pile.setItemStack(pileStack);
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        public boolean mergeOrb(int cell, int experience) {
+            for (int i = 0; i < piles.length; ++i) {
+                if (piles[i] instanceof ExperienceOrb && cells[i] == cell && piles[i].isValid()) {
+                    ExperienceOrb pile = (ExperienceOrb) piles[i];
+                    pile.setExperience(pile.getExperience() + experience);
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * This remembers a new pile, in place of the oldest.
+         */
+        public void addPile(int cell, Entity pile) {
+            piles[nextPile] = pile;
+            cells[nextPile] = cell;
+            nextPile = (nextPile + 1) % piles.length;
+        }
+
+        public void recount(Chunk chunk, long tick) {
+            items = 0;
+
+            for (Entity entity : chunk.getEntities()) {
+                if (entity instanceof Item) {
+                    ++items;
+                }
+            }
+
+            countedTick = tick;
+        }
+    }
+}
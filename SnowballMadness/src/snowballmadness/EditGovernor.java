@@ -0,0 +1,154 @@
+package snowballmadness;
+
+import java.util.*;
+
+/**
+ * This class limits how many blocks snowballs may look at and change per tick, across the whole server. The budget is split
+ * evenly between the players who have terrain work going this tick, so one player with a huge job can't use it all; whatever a
+ * player does not need is given to the rest.
+ *
+ * When a job won't fit, the policy decides what happens to it: it can wait its turn, be cut down to what fits, or be refused.
+ * We count the blocks in each case, so server owners can see how much is being held back.
+ */
+public final class EditGovernor {
+
+    /**
+     * This says what happens to a terrain job that won't fit in its owner's share of this tick's budget.
+     */
+    public enum Policy {
+
+        /**
+         * The job is queued, and done over the next few ticks.
+         */
+        QUEUE,
+        /**
+         * The middle of the job, as much as fits, is done at once; the rest is dropped.
+         */
+        DEGRADE,
+        /**
+         * The job is dropped entirely.
+         */
+        REFUSE
+    }
+    /**
+     * This is the number of blocks we look at per tick, for all players together.
+     */
+    public static final int DEFAULT_BUDGET_PER_TICK = 16384;
+    private final Map<UUID, Integer> spent = new HashMap<UUID, Integer>();
+    private int budgetPerTick = DEFAULT_BUDGET_PER_TICK;
+    private int spentThisTick;
+    private Policy policy = Policy.QUEUE;
+    private long admitted, deferred, rejected;
+
+    /**
+     * This sets the number of blocks all players together may look at per tick.
+     *
+     * @param budgetPerTick The budget; at least 1.
+     */
+    public void setBudgetPerTick(int budgetPerTick) {
+        this.budgetPerTick = Math.max(1, budgetPerTick);
+    }
+
+    public int getBudgetPerTick() {
+        return budgetPerTick;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy != null ? policy : Policy.QUEUE;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * This method starts a new tick; it forgets what each player has spent, and notes the players who have work waiting, since
+     * they will each want a share.
+     *
+     * @param waitingOwners The UUIDs of the owners of the jobs in the queue.
+     */
+    public void beginTick(Collection<UUID> waitingOwners) {
+        spent.clear();
+        spentThisTick = 0;
+
+        for (UUID owner : waitingOwners) {
+            spent.put(owner, 0);
+        }
+    }
+
+    /**
+     * This returns the number of blocks a player may still look at this tick. Asking for this counts the player as active, so
+     * it also reduces everyone else's share.
+     *
+     * @param owner The UUID of the player who owns the work; may be null.
+     * @return The number of blocks the player may use; 0 if none.
+     */
+    public int getAllowance(UUID owner) {
+        Integer used = spent.get(owner);
+
+        if (used == null) {
+            used = 0;
+            spent.put(owner, used);
+        }
+
+        int share = Math.max(1, budgetPerTick / spent.size());
+        return Math.max(0, Math.min(share - used, getRemaining()));
+    }
+
+    /**
+     * This returns the number of blocks left in this tick's budget, for all players together.
+     *
+     * @return The blocks remaining.
+     */
+    public int getRemaining() {
+        return Math.max(0, budgetPerTick - spentThisTick);
+    }
+
+    /**
+     * This method records blocks looked at for a player, and counts them as admitted.
+     *
+     * @param owner The UUID of the player who owns the work.
+     * @param voxels The number of blocks.
+     */
+    public void charge(UUID owner, int voxels) {
+        Integer used = spent.get(owner);
+        spent.put(owner, (used != null ? used : 0) + voxels);
+        spentThisTick += voxels;
+        admitted += voxels;
+    }
+
+    void recordDeferred(int voxels) {
+        deferred += voxels;
+    }
+
+    void recordRejected(int voxels) {
+        rejected += voxels;
+    }
+
+    /**
+     * This returns the total number of blocks we've allowed snowballs to look at.
+     *
+     * @return The admitted count.
+     */
+    public long getAdmittedCount() {
+        return admitted;
+    }
+
+    /**
+     * This returns the total number of blocks put off to a later tick, because they did not fit when their job was submitted.
+     *
+     * @return The deferred count.
+     */
+    public long getDeferredCount() {
+        return deferred;
+    }
+
+    /**
+     * This returns the total number of blocks we dropped, because the policy would not allow them.
+     *
+     * @return The rejected count.
+     */
+    public long getRejectedCount() {
+        return rejected;
+    }
+}
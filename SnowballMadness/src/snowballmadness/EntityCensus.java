@@ -0,0 +1,135 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.entity.*;
+
+/**
+ * This class counts the living entities in each world, in total and by type, so that logics that spawn mobs can check the
+ * numbers without asking the world for a list of every entity each time.
+ *
+ * The counts are kept up to date from events: spawns and chunk loads add entities, deaths and chunk unloads take them away.
+ * Bukkit has no event for an entity that is simply removed (a mob that despawns, say), so the counts can drift; every so often
+ * we count a world again from scratch to put that right.
+ */
+public final class EntityCensus {
+
+    /**
+     * This is how often, in ticks, we recount each world.
+     */
+    public static final int RECOUNT_INTERVAL = 600;
+    private final Map<World, Counts> worlds = new WeakHashMap<World, Counts>();
+
+    /**
+     * This returns the number of living entities in a world.
+     *
+     * @param world The world of interest.
+     * @return The living entity count.
+     */
+    public int getLivingCount(World world) {
+        return forWorld(world).living;
+    }
+
+    /**
+     * This returns the number of living entities of one type in a world.
+     *
+     * @param world The world of interest.
+     * @param type The type to count.
+     * @return The count of that type.
+     */
+    public int getCount(World world, EntityType type) {
+        return forWorld(world).byType[type.ordinal()];
+    }
+
+    /**
+     * This method counts an entity that has entered its world.
+     *
+     * @param entity The entity; we ignore it if it is not alive.
+     */
+    public void add(Entity entity) {
+        change(entity, 1);
+    }
+
+    /**
+     * This method uncounts an entity that has left its world, whether by dying, being removed, or having its chunk unload.
+     *
+     * @param entity The entity; we ignore it if it is not alive.
+     */
+    public void remove(Entity entity) {
+        change(entity, -1);
+    }
+
+    private void change(Entity entity, int delta) {
+        if (entity instanceof LivingEntity) {
+            // a world we have not counted yet will be counted in full when
+            // someone first asks about it.
+            Counts counts = worlds.get(entity.getWorld());
+
+            if (counts != null) {
+                counts.add(entity.getType(), delta);
+            }
+        }
+    }
+
+    /**
+     * This method counts the entities of each world we know about again, every RECOUNT_INTERVAL ticks; worlds are recounted on
+     * different ticks, so the work is spread out.
+     *
+     * @param tick The current tick.
+     */
+    public void recount(long tick) {
+        for (Map.Entry<World, Counts> entry : worlds.entrySet()) {
+            Counts counts = entry.getValue();
+
+            if (tick - counts.countedTick >= RECOUNT_INTERVAL) {
+                counts.recount(entry.getKey());
+                counts.countedTick = tick;
+                return;
+            }
+        }
+    }
+
+    /**
+     * This method forgets every count; we use this when the plugin is disabled.
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    private Counts forWorld(World world) {
+        Counts counts = worlds.get(world);
+
+        if (counts == null) {
+            counts = new Counts();
+            counts.recount(world);
+            worlds.put(world, counts);
+        }
+
+        return counts;
+    }
+
+    /**
+     * This class holds the counts for one world.
+     */
+    private static final class Counts {
+
+        public final int[] byType = new int[EntityType.values().length];
+        public int living;
+        public long countedTick;
+
+        public void add(EntityType type, int delta) {
+            living = Math.max(0, living + delta);
+            byType[type.ordinal()] = Math.max(0, byType[type.ordinal()] + delta);
+        }
+
+        public void recount(World world) {
+            Arrays.fill(byType, 0);
+            List<LivingEntity> entities = world.getLivingEntities();
+            living = entities.size();
+
+            for (LivingEntity entity : entities) {
+                ++byType[entity.getType().ordinal()];
+            }
+        }
+    }
+}
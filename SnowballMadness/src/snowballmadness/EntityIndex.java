@@ -0,0 +1,262 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.entity.*;
+
+/**
+ * This class holds the entities of one world, filed by the 16x16 column of blocks they are in, so that we can quickly find the
+ * ones near a point. We build it at most once per tick, the first time a snowball asks for it, and every snowball that tick
+ * shares it; before this each magnet looked at every entity in the world.
+ *
+ * We keep each entity's position as of when we built the index. Entities don't move during our tick (they move in their own),
+ * so this is good enough; entities spawned later in the tick are left out until the next one.
+ *
+ * To use it, call beginQuery(), then collect() once for each box you are interested in; the entities found are in the results,
+ * each only once even if it was in more than one box.
+ */
+public final class EntityIndex {
+
+    private static final int CELL_SHIFT = 4;
+    private static final Map<World, EntityIndex> indexes = new WeakHashMap<World, EntityIndex>();
+    private long builtTick = Long.MIN_VALUE;
+    private int count;
+    private Entity[] entities = new Entity[0];
+    private double[] xs = new double[0], ys = new double[0], zs = new double[0];
+    private int[] next = new int[0];
+    private int[] seen = new int[0];
+    private long[] cellKeys = new long[0];
+    private int[] cellHeads = new int[0];
+    private int[] results = new int[16];
+    private int resultCount;
+    private int queryStamp;
+
+    private EntityIndex() {
+    }
+
+    /**
+     * This returns the index for a world, building it if it has not been built yet this tick.
+     *
+     * @param world The world whose entities are wanted.
+     * @param tick The current tick.
+     * @return The index.
+     */
+    public static EntityIndex forWorld(World world, long tick) {
+        EntityIndex index = indexes.get(world);
+
+        if (index == null) {
+            index = new EntityIndex();
+            indexes.put(world, index);
+        }
+
+        if (index.builtTick != tick) {
+            index.build(world.getEntities());
+            index.builtTick = tick;
+        }
+
+        return index;
+    }
+
+    /**
+     * This method forgets every index; we use this when the plugin is disabled.
+     */
+    public static void clearAll() {
+        indexes.clear();
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Entity getEntity(int index) {
+        return entities[index];
+    }
+
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    public double getZ(int index) {
+        return zs[index];
+    }
+
+    /**
+     * This method starts a new query, discarding the results of the last.
+     */
+    public void beginQuery() {
+        resultCount = 0;
+
+        if (++queryStamp == 0) {
+            Arrays.fill(seen, 0);
+            queryStamp = 1;
+        }
+    }
+
+    /**
+     * This method adds the entities within a box to the results of the current query; entities already found are not added
+     * again.
+     *
+     * @param minX The least x of the box.
+     * @param minY The least y of the box.
+     * @param minZ The least z of the box.
+     * @param maxX The greatest x of the box.
+     * @param maxY The greatest y of the box.
+     * @param maxZ The greatest z of the box.
+     */
+    public void collect(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (count == 0) {
+            return;
+        }
+
+        long minCellX = (long) Math.floor(minX) >> CELL_SHIFT;
+        long maxCellX = (long) Math.floor(maxX) >> CELL_SHIFT;
+        long minCellZ = (long) Math.floor(minZ) >> CELL_SHIFT;
+        long maxCellZ = (long) Math.floor(maxZ) >> CELL_SHIFT;
+        double cells = (maxCellX - minCellX + 1.0) * (maxCellZ - minCellZ + 1.0);
+
+        // a big enough box covers more cells than we have entities; then
+        // it's quicker to just check them all.
+        if (cells > count) {
+            for (int i = 0; i < count; ++i) {
+                consider(i, minX, minY, minZ, maxX, maxY, maxZ);
+            }
+
+            return;
+        }
+
+        for (long cellX = minCellX; cellX <= maxCellX; ++cellX) {
+            for (long cellZ = minCellZ; cellZ <= maxCellZ; ++cellZ) {
+                int slot = findCell(cellKey((int) cellX, (int) cellZ));
+
+                if (slot >= 0) {
+                    for (int i = cellHeads[slot]; i >= 0; i = next[i]) {
+                        consider(i, minX, minY, minZ, maxX, maxY, maxZ);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This method adds the entities within a distance of a point to the results of the current query. We check the box around
+     * the sphere; the caller must still check the distance where it matters.
+     *
+     * @param x The x of the point.
+     * @param y The y of the point.
+     * @param z The z of the point.
+     * @param radius The distance.
+     */
+    public void collect(double x, double y, double z, double radius) {
+        collect(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius);
+    }
+
+    public int getResultCount() {
+        return resultCount;
+    }
+
+    /**
+     * This returns one result of the current query, as an index into this object; use getEntity() and so on to get at it.
+     *
+     * @param which The result wanted, from 0 to getResultCount()-1.
+     * @return The entity's index.
+     */
+    public int getResult(int which) {
+        return results[which];
+    }
+
+    private void consider(int i, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (seen[i] != queryStamp
+                && xs[i] >= minX && xs[i] <= maxX
+                && ys[i] >= minY && ys[i] <= maxY
+                && zs[i] >= minZ && zs[i] <= maxZ) {
+            seen[i] = queryStamp;
+
+            if (resultCount == results.length) {
+                results = Arrays.copyOf(results, resultCount * 2);
+            }
+
+            results[resultCount++] = i;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Building
+    //
+    private void build(List<Entity> worldEntities) {
+        Arrays.fill(entities, 0, count, null);
+        count = worldEntities.size();
+
+        if (entities.length < count) {
+            int capacity = Math.max(16, Integer.highestOneBit(count) * 2);
+            entities = new Entity[capacity];
+            xs = new double[capacity];
+            ys = new double[capacity];
+            zs = new double[capacity];
+            next = new int[capacity];
+            seen = new int[capacity];
+            cellKeys = new long[capacity * 2];
+            cellHeads = new int[capacity * 2];
+        }
+
+        Arrays.fill(cellHeads, -1);
+        Arrays.fill(seen, 0);
+        queryStamp = 0;
+        resultCount = 0;
+
+        for (int i = 0; i < count; ++i) {
+            Entity entity = worldEntities.get(i);
+            Location loc = entity.getLocation();
+            entities[i] = entity;
+            xs[i] = loc.getX();
+            ys[i] = loc.getY();
+            zs[i] = loc.getZ();
+
+            long key = cellKey(loc.getBlockX() >> CELL_SHIFT, loc.getBlockZ() >> CELL_SHIFT);
+            int slot = findOrAddCell(key);
+            next[i] = cellHeads[slot];
+            cellHeads[slot] = i;
+        }
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private int findCell(long key) {
+        int mask = cellKeys.length - 1;
+
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            if (cellHeads[slot] < 0) {
+                return -1;
+            }
+
+            if (cellKeys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    private int findOrAddCell(long key) {
+        int mask = cellKeys.length - 1;
+
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            if (cellHeads[slot] < 0) {
+                cellKeys[slot] = key;
+                return slot;
+            }
+
+            if (cellKeys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -16,9 +16,17 @@ import org.bukkit.util.*;
  */
 public class FeatherSnowballLogic extends LingeringSnowballLogic<Entity> {
 
+    /**
+     * This logic only does anything to entities, and virtual snowballs can't hit those.
+     */
+    @Override
+    public boolean canFlyVirtually() {
+        return false;
+    }
+
     @Override
     public double damage(Snowball snowball, final SnowballInfo info, final Entity target, double proposedDamage) {
-        beginLinger(info, 2, 100, target);
+        beginLinger(info, target, 2, 100, target);
 
         return super.damage(snowball, info, target, proposedDamage);
     }
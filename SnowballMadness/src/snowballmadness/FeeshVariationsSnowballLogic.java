@@ -25,50 +25,32 @@ public class FeeshVariationsSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
         int baseTool = 4;
         final double totalEffectiveness = baseTool * info.power;
         final int radius = (int) (Math.sqrt(totalEffectiveness) * baseTool);
         final double distanceSquaredLimit = (radius * (double) radius) + 1.0;
-        final int diameter = (int) (radius * 2);
+        final VoxelShape shape = VoxelShape.ball(VoxelShape.atMost(distanceSquaredLimit));
 
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(2, snowballLoc.getBlockY() - radius);
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = Math.min(world.getMaxHeight(), beginY + diameter);
-        final int endZ = beginZ + diameter;
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-
-        for (int x = beginX; x <= endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                for (int y = beginY; y <= endY; ++y) {
-                    locationBuffer.setX(x);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z);
-                    if (snowballLoc.distanceSquared(locationBuffer) <= distanceSquaredLimit) {
-                        Block target = world.getBlockAt(x, y, z);
-                        if (target.getType() == Material.STONE) {
-                            target.setType(Material.MONSTER_EGGS);
-                            target.setData((byte) 0);
-                        }
-                        if (target.getType() == Material.COBBLESTONE) {
-                            target.setType(Material.MONSTER_EGGS);
-                            target.setData((byte) 1);
-                        }
-                        if (target.getType() == Material.SMOOTH_BRICK) {
-                            byte dataType = target.getData();
-                            dataType = (byte) (dataType + 2);
-                            target.setType(Material.MONSTER_EGGS);
-                            target.setData(dataType);
-                        }
-                        //there, all possible blocks have been feeshed!
-                    }
+        // stone becomes stone with silverfish in it; nothing moves, so we skip physics.
+        submit(info, new TerrainJob(hit.getLocation(), shape, 2, false) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                final Material material = block.getType();
+                if (material == Material.STONE) {
+                    batch.set(block, Material.MONSTER_EGGS, (byte) 0);
+                }
+                if (material == Material.COBBLESTONE) {
+                    batch.set(block, Material.MONSTER_EGGS, (byte) 1);
+                }
+                if (material == Material.SMOOTH_BRICK) {
+                    byte dataType = block.getData();
+                    dataType = (byte) (dataType + 2);
+                    batch.set(block, Material.MONSTER_EGGS, dataType);
                 }
+                //there, all possible blocks have been feeshed!
             }
-        }
+        });
     }
 }
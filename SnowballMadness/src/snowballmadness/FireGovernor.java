@@ -0,0 +1,183 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.block.*;
+
+/**
+ * This class keeps fire from spreading out of hand. Rather than turn fire spread off, we let it burn, but keep a measure of
+ * how much fire each chunk has seen lately: fire lit by snowballs, and each burn and ignite event, add to it, and it dies away
+ * by half every HALF_LIFE ticks. Every second we look for chunks over their budget, and put out all the fire in each one at
+ * once, with a terrain job. Much noise and fury, but it burns itself out unnaturally fast.
+ *
+ * This used to be done for each burn event, by looking at the blocks next to the burning one; that was a handful of block reads
+ * per event, and did nothing about a flint and steel snowball lighting thousands of fires at once.
+ */
+public final class FireGovernor {
+
+    /**
+     * This is the budget for each chunk unless configured otherwise.
+     */
+    public static final int DEFAULT_FIRES_PER_CHUNK = 256;
+    private static final double HALF_LIFE = 100.0;
+    private static final int CHECK_INTERVAL = 20;
+    private final TerrainJobQueue terrain;
+    private final Map<World, Map<Long, ChunkFire>> worlds = new WeakHashMap<World, Map<Long, ChunkFire>>();
+    private int firesPerChunk = DEFAULT_FIRES_PER_CHUNK;
+    private World lastWorld;
+    private long lastKey;
+    private ChunkFire lastChunk;
+    private long dousedCount;
+
+    public FireGovernor(TerrainJobQueue terrain) {
+        this.terrain = terrain;
+    }
+
+    /**
+     * This sets the amount of fire a chunk may see before we put it all out.
+     *
+     * @param limit The budget for each chunk.
+     */
+    public void setFiresPerChunk(int limit) {
+        firesPerChunk = Math.max(1, limit);
+    }
+
+    /**
+     * This returns the number of chunks we've put the fire out in.
+     *
+     * @return The doused count.
+     */
+    public long getDousedCount() {
+        return dousedCount;
+    }
+
+    /**
+     * This method records fire at a block.
+     *
+     * @param block The block that is burning, or that was set alight.
+     * @param tick The current tick.
+     */
+    public void addFire(Block block, long tick) {
+        ChunkFire fire = forChunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+        fire.decay(tick);
+        fire.heat += 1.0;
+        fire.minY = Math.min(fire.minY, block.getY());
+        fire.maxY = Math.max(fire.maxY, block.getY());
+    }
+
+    /**
+     * This method looks, every CHECK_INTERVAL ticks, for chunks that are over their budget, and puts out their fire. Chunks
+     * whose fire has died away are forgotten.
+     *
+     * @param tick The current tick.
+     */
+    public void run(long tick) {
+        if (tick % CHECK_INTERVAL != 0) {
+            return;
+        }
+
+        for (Map.Entry<World, Map<Long, ChunkFire>> world : worlds.entrySet()) {
+            for (Iterator<Map.Entry<Long, ChunkFire>> it = world.getValue().entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Long, ChunkFire> entry = it.next();
+                ChunkFire fire = entry.getValue();
+                fire.decay(tick);
+
+                if (fire.heat > firesPerChunk) {
+                    douse(world.getKey(), entry.getKey(), fire);
+                    it.remove();
+                } else if (fire.heat < 1.0) {
+                    it.remove();
+                }
+            }
+        }
+
+        lastChunk = null;
+    }
+
+    /**
+     * This method forgets every chunk; we use this when the plugin is disabled.
+     */
+    public void clear() {
+        worlds.clear();
+        lastWorld = null;
+        lastChunk = null;
+    }
+
+    /**
+     * This puts out the fire in a chunk, between the lowest and highest fire we heard of there.
+     */
+    private void douse(World world, long key, ChunkFire fire) {
+        int chunkX = (int) (key >> 32), chunkZ = (int) key;
+
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            return;
+        }
+
+        // a burning block sets fire to the blocks around it, so we look a
+        // block further up and down than the fire we know of.
+        int below = 1 + (fire.maxY - fire.minY) / 2;
+        int above = 1 + (fire.maxY - fire.minY + 1) / 2;
+        Location center = new Location(world, (chunkX << 4) + 8, fire.minY + below - 1, (chunkZ << 4) + 8);
+        VoxelShape shape = VoxelShape.of(VoxelShape.Metric.CYLINDRICAL, -1, Long.MAX_VALUE, 8, below, above);
+
+        // no player owns this job, and the chunk is forgotten once it is
+        // submitted, so it must not be cut down or refused.
+        terrain.submitAlways(new TerrainJob(center, shape, 0, false) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                if (block.getType() == Material.FIRE) {
+                    batch.set(block, Material.AIR);
+                }
+            }
+        });
+
+        ++dousedCount;
+    }
+
+    private ChunkFire forChunk(World world, int chunkX, int chunkZ) {
+        long key = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+
+        // fire comes in bursts in one place, so we keep the last chunk handy.
+        if (lastChunk != null && lastWorld == world && lastKey == key) {
+            return lastChunk;
+        }
+
+        Map<Long, ChunkFire> chunks = worlds.get(world);
+
+        if (chunks == null) {
+            chunks = new HashMap<Long, ChunkFire>();
+            worlds.put(world, chunks);
+        }
+
+        ChunkFire fire = chunks.get(key);
+
+        if (fire == null) {
+            fire = new ChunkFire();
+            chunks.put(key, fire);
+        }
+
+        lastWorld = world;
+        lastKey = key;
+        lastChunk = fire;
+        return fire;
+    }
+
+    /**
+     * This class holds the measure of fire for one chunk, and the range of heights we've seen fire at.
+     */
+    private static final class ChunkFire {
+
+        public double heat;
+        public long heatTick = Long.MIN_VALUE;
+        public int minY = Integer.MAX_VALUE;
+        public int maxY = Integer.MIN_VALUE;
+
+        public void decay(long tick) {
+            if (heatTick != Long.MIN_VALUE && tick > heatTick) {
+                heat *= Math.pow(0.5, (tick - heatTick) / HALF_LIFE);
+            }
+
+            heatTick = tick;
+        }
+    }
+}
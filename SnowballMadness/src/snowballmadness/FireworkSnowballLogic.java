@@ -22,11 +22,11 @@ public class FireworkSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
-        Location loc = snowball.getLocation().clone();
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
+        Location loc = hit.getLocation().clone();
 
-        Firework fw = (Firework) snowball.getWorld().spawn(loc, Firework.class);
+        Firework fw = (Firework) hit.getWorld().spawn(loc, Firework.class);
         FireworkMeta meta = fw.getFireworkMeta().clone();
         meta.setPower((int) Math.sqrt(info.power));
         //height of firework relates to how powerful you are.
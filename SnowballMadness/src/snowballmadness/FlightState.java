@@ -0,0 +1,146 @@
+package snowballmadness;
+
+import org.bukkit.entity.*;
+import org.bukkit.util.*;
+
+/**
+ * This class holds what a logic needs to remember about one snowball while it is in flight. Logics themselves must not change
+ * once created, so that one logic object can serve any number of snowballs; anything that differs from one snowball to the next
+ * goes here instead.
+ *
+ * The in-flight registry owns these and reuses them, so a logic must not keep a reference to one after tick() or hit() returns.
+ */
+public final class FlightState {
+
+    private boolean hasPreviousLocation;
+    private double previousX, previousY, previousZ;
+    private int multiplicity = 1;
+    private Lineage lineage;
+    private int generation;
+
+    /**
+     * This returns true if setPreviousLocation() has been called for this snowball.
+     *
+     * @return True if there is a previous location.
+     */
+    public boolean hasPreviousLocation() {
+        return hasPreviousLocation;
+    }
+
+    /**
+     * This returns the location recorded by the last call to setPreviousLocation(); logics use this to know where the snowball
+     * was on its last tick.
+     *
+     * @return A new vector holding the location; null if none has been recorded.
+     */
+    public Vector getPreviousLocation() {
+        if (!hasPreviousLocation) {
+            return null;
+        }
+
+        return new Vector(previousX, previousY, previousZ);
+    }
+
+    /**
+     * This records a location for the next tick to use.
+     *
+     * @param location The location to remember; we copy it.
+     */
+    public void setPreviousLocation(Vector location) {
+        previousX = location.getX();
+        previousY = location.getY();
+        previousZ = location.getZ();
+        hasPreviousLocation = true;
+    }
+
+    /**
+     * This returns the number of snowballs this one stands for; this is more than 1 if other snowballs have been merged into
+     * it, and logics that allow that should scale their effect by it.
+     *
+     * @return The multiplicity, at least 1.
+     */
+    public int getMultiplicity() {
+        return multiplicity;
+    }
+
+    /**
+     * This records that more snowballs have been merged into this one.
+     *
+     * @param count The number of snowballs merged in.
+     */
+    public void addMultiplicity(int count) {
+        multiplicity = (int) Math.min(Integer.MAX_VALUE, (long) multiplicity + count);
+    }
+
+    /**
+     * This returns the family this snowball belongs to.
+     *
+     * @return The lineage; null only for a snowball that was never launched.
+     */
+    public Lineage getLineage() {
+        return lineage;
+    }
+
+    /**
+     * This returns how many multipliers lie between this snowball and the one the player threw; that one is generation 0.
+     *
+     * @return The generation.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * This records the family of this snowball, and its place in it.
+     *
+     * @param lineage The family.
+     * @param generation The generation of this snowball within it.
+     */
+    void setLineage(Lineage lineage, int generation) {
+        this.lineage = lineage;
+        this.generation = generation;
+    }
+
+    /**
+     * This puts this snowball into the family of the snowball that spawned it, one generation down; if there is no parent, it
+     * starts a family of its own.
+     *
+     * @param parent The flight state of the snowball that spawned this one; may be null.
+     * @param shooter The player who threw it.
+     */
+    void joinFamily(FlightState parent, Player shooter) {
+        if (parent != null && parent.lineage != null) {
+            setLineage(parent.lineage, parent.generation + 1);
+        } else {
+            setLineage(Lineage.start(shooter), 0);
+        }
+    }
+
+    /**
+     * This copies everything from another state into this one; we use this when a snowball gets a new entity.
+     *
+     * @param other The state to copy.
+     */
+    void copyFrom(FlightState other) {
+        hasPreviousLocation = other.hasPreviousLocation;
+        previousX = other.previousX;
+        previousY = other.previousY;
+        previousZ = other.previousZ;
+        multiplicity = other.multiplicity;
+        lineage = other.lineage;
+        generation = other.generation;
+    }
+
+    /**
+     * This clears the state so it can be used for another snowball.
+     */
+    void reset() {
+        hasPreviousLocation = false;
+        previousX = 0;
+        previousY = 0;
+        previousZ = 0;
+        multiplicity = 1;
+        lineage = null;
+        generation = 0;
+    }
+}
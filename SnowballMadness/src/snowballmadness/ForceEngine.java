@@ -0,0 +1,351 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.entity.*;
+import org.bukkit.util.Vector;
+
+/**
+ * This class applies the pull of magnet and vortex snowballs to entities. Rather than each snowball setting the velocity of
+ * each entity it moves (which can mean dozens of velocity updates, and packets, for one entity in one tick), the snowballs add
+ * their fields here while they are ticked, and we work them all out together at the end of the tick. Each entity moved then
+ * gets one setVelocity() and one setFallDistance().
+ *
+ * The fields are applied to each entity in the same order as the snowballs added them, and each one sees the velocity left by
+ * the last, just as when each snowball set the velocity itself; so the result is the same.
+ *
+ * The sources are kept in flat arrays of numbers; a 'group' is one snowball's fields, and each group has one or more points.
+ */
+public final class ForceEngine {
+
+    private static final int MAGNET = 0;
+    private static final int VORTEX = 1;
+    private static final byte MOVED = 1;
+    private int groupCount;
+    private int[] groupKind = new int[16];
+    private World[] groupWorld = new World[16];
+    private Object[] groupExcluded = new Object[16];
+    private double[] groupPower = new double[16];
+    private double[] groupStep = new double[16];
+    private int[] groupRepeat = new int[16];
+    private int[] groupFirstPoint = new int[16];
+    private int[] groupPointCount = new int[16];
+    private int pointCount;
+    private double[] pointX = new double[64];
+    private double[] pointY = new double[64];
+    private double[] pointZ = new double[64];
+    private final Map<EntityIndex, Accumulator> accumulators = new IdentityHashMap<EntityIndex, Accumulator>();
+
+    /**
+     * This method adds the field of a magnet snowball. It pulls each entity towards each point given, except for snowballs
+     * and the entity excluded (the shooter).
+     *
+     * @param world The world the snowball is in.
+     * @param excluded An entity not to pull; may be null.
+     * @param power The snowball's power.
+     * @param step The time since the snowball's last tick, in units of 4 server ticks.
+     * @param multiplicity The number of snowballs this one stands for; the field is applied this many times.
+     * @param points The points to pull towards, in order.
+     */
+    public void addMagnet(World world, Object excluded, double power, double step, int multiplicity, Vector... points) {
+        addGroup(MAGNET, world, excluded, power, step, multiplicity, points);
+    }
+
+    /**
+     * This method adds the field of a death vortex snowball; this pulls everything, including snowballs, towards the points
+     * given, and upwards.
+     *
+     * @param world The world the snowball is in.
+     * @param power The snowball's power.
+     * @param step The time since the snowball's last tick, in units of 4 server ticks.
+     * @param multiplicity The number of snowballs this one stands for; the field is applied this many times.
+     * @param points The points to pull towards, in order.
+     */
+    public void addVortex(World world, double power, double step, int multiplicity, Vector... points) {
+        addGroup(VORTEX, world, null, power, step, multiplicity, points);
+    }
+
+    private void addGroup(int kind, World world, Object excluded, double power, double step, int multiplicity, Vector[] points) {
+        if (groupCount == groupKind.length) {
+            int capacity = groupCount * 2;
+            groupKind = Arrays.copyOf(groupKind, capacity);
+            groupWorld = Arrays.copyOf(groupWorld, capacity);
+            groupExcluded = Arrays.copyOf(groupExcluded, capacity);
+            groupPower = Arrays.copyOf(groupPower, capacity);
+            groupStep = Arrays.copyOf(groupStep, capacity);
+            groupRepeat = Arrays.copyOf(groupRepeat, capacity);
+            groupFirstPoint = Arrays.copyOf(groupFirstPoint, capacity);
+            groupPointCount = Arrays.copyOf(groupPointCount, capacity);
+        }
+
+        while (pointCount + points.length > pointX.length) {
+            int capacity = pointX.length * 2;
+            pointX = Arrays.copyOf(pointX, capacity);
+            pointY = Arrays.copyOf(pointY, capacity);
+            pointZ = Arrays.copyOf(pointZ, capacity);
+        }
+
+        groupKind[groupCount] = kind;
+        groupWorld[groupCount] = world;
+        groupExcluded[groupCount] = excluded;
+        groupPower[groupCount] = power;
+        groupStep[groupCount] = step;
+        groupRepeat[groupCount] = Math.max(1, multiplicity);
+        groupFirstPoint[groupCount] = pointCount;
+        groupPointCount[groupCount] = points.length;
+        ++groupCount;
+
+        for (Vector point : points) {
+            pointX[pointCount] = point.getX();
+            pointY[pointCount] = point.getY();
+            pointZ[pointCount] = point.getZ();
+            ++pointCount;
+        }
+    }
+
+    /**
+     * This returns the number of fields added since the last flush.
+     *
+     * @return The number of groups waiting.
+     */
+    public int getPendingCount() {
+        return groupCount;
+    }
+
+    /**
+     * This method works out the effect of every field added this tick, and then updates each entity moved, once.
+     *
+     * @param tick The current tick; we use the entity index for this tick.
+     */
+    public void flush(long tick) {
+        try {
+            for (int g = 0; g < groupCount; ++g) {
+                EntityIndex index = EntityIndex.forWorld(groupWorld[g], tick);
+                Accumulator acc = accumulators.get(index);
+
+                if (acc == null) {
+                    acc = new Accumulator();
+                    accumulators.put(index, acc);
+                }
+
+                acc.prepare(index, tick);
+                applyGroup(g, index, acc);
+            }
+
+            for (Accumulator acc : accumulators.values()) {
+                acc.apply();
+            }
+        } finally {
+            Arrays.fill(groupWorld, 0, groupCount, null);
+            Arrays.fill(groupExcluded, 0, groupCount, null);
+            groupCount = 0;
+            pointCount = 0;
+        }
+    }
+
+    /**
+     * This method drops all pending fields, and forgets the entities we were tracking.
+     */
+    public void clear() {
+        Arrays.fill(groupWorld, 0, groupCount, null);
+        Arrays.fill(groupExcluded, 0, groupCount, null);
+        groupCount = 0;
+        pointCount = 0;
+        accumulators.clear();
+    }
+
+    private void applyGroup(int g, EntityIndex index, Accumulator acc) {
+        final int kind = groupKind[g];
+        final double power = groupPower[g];
+        final double step = groupStep[g];
+        final int repeat = groupRepeat[g];
+        final int first = groupFirstPoint[g];
+        final int end = first + groupPointCount[g];
+        // only entities within reach of one of the points can be moved at
+        // all; the index finds those.
+        final double reach = kind == MAGNET
+                ? MagneticSnowballLogic.getReach(power)
+                : DeathVortexSnowballLogic.getReach(power);
+
+        index.beginQuery();
+
+        for (int p = first; p < end; ++p) {
+            index.collect(pointX[p], pointY[p], pointZ[p], reach);
+        }
+
+        for (int r = 0; r < index.getResultCount(); ++r) {
+            final int i = index.getResult(r);
+            final Entity victim = index.getEntity(i);
+
+            if (!victim.isValid()) {
+                continue;
+            }
+
+            if (kind == MAGNET) {
+                if (victim instanceof Snowball || victim == groupExcluded[g]) {
+                    continue; //does not apply to other snowballs
+                }
+
+                // a merged snowball pulls as hard as the snowballs it
+                // stands for would have, one after another.
+                for (int n = 0; n < repeat; ++n) {
+                    for (int p = first; p < end; ++p) {
+                        magnet(acc, i, index, pointX[p], pointY[p], pointZ[p], power, step);
+                    }
+                }
+            } else {
+                for (int n = 0; n < repeat; ++n) {
+                    for (int p = first; p < end; ++p) {
+                        vortex(acc, i, index, pointX[p], pointY[p], pointZ[p], power, step);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This applies a magnet's pull towards a point to one entity. To get a funny 'hang in the air' effect, this actually repels
+     * when the victim is within a block of the target.
+     */
+    private static void magnet(Accumulator acc, int i, EntityIndex index, double tx, double ty, double tz, double power, double step) {
+        double dx = tx - index.getX(i);
+        double dy = ty - index.getY(i);
+        double dz = tz - index.getZ(i);
+        double distSq = dx * dx + dy * dy + dz * dz;
+        double dist = Math.sqrt(distSq);
+        double distFactor = (1.0 - (1.0 / (dist + 1)));
+        distSq -= 1.0;
+
+        if (distSq != 0.0) {
+            double factor = (power * 2) / distSq;
+            if (factor > 0.001) {
+                double scale = factor * step;
+                dx = dx / dist * scale;
+                dy = dy / dist * scale;
+                dz = dz / dist * scale;
+                if (dy < 0) {
+                    dy = dy * distFactor;
+                    //levitate factor: if we're near the snowball we tend not to fall
+                }
+
+                acc.load(i);
+                double vx = acc.vx[i] + dx;
+                double vy = acc.vy[i] + dy;
+                double vz = acc.vz[i] + dz;
+                double speed = Math.sqrt(vx * vx + vy * vy + vz * vz);
+                if (speed > (dist / 8)) {
+                    if (speed > 1) {
+                        vx /= speed;
+                        vy /= speed;
+                        vz /= speed;
+                        //avoid normalizing speeds up
+                    }
+                    //max speed is related to closeness to snowball
+                }
+                acc.vx[i] = vx;
+                acc.vy[i] = vy;
+                acc.vz[i] = vz;
+            }
+        }
+    }
+
+    /**
+     * This applies a vortex's pull towards a point to one entity; the faster the entity already goes, the less it is pulled.
+     */
+    private static void vortex(Accumulator acc, int i, EntityIndex index, double tx, double ty, double tz, double power, double step) {
+        double ey = index.getY(i);
+        double dx = tx - index.getX(i);
+        double dy = ty - ey;
+        double dz = tz - index.getZ(i);
+        double dist = Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        if (dist > 0.0) {
+            double factor = power / dist;
+            if (factor > 0.01) {
+                acc.load(i);
+                double vx = acc.vx[i];
+                double vy = acc.vy[i];
+                double vz = acc.vz[i];
+                double speed = Math.sqrt(vx * vx + vy * vy + vz * vz);
+                double restraint = 1.0 / ((Math.pow(speed, 3)) + 1.0);
+                factor *= restraint * step;
+
+                dx = dx / dist * factor;
+                dy = dy / dist * factor;
+                dz = dz / dist * factor;
+
+                if (ey < (ty + 4.0)) {
+                    dy = Math.abs(dy); //vortex tends to make victims go up!
+                }
+                acc.vx[i] = vx + dx;
+                acc.vy[i] = vy + dy;
+                acc.vz[i] = vz + dz;
+            }
+        }
+    }
+
+    /**
+     * This class holds the velocities we are working out for the entities of one world's index, in arrays that parallel the
+     * index's own.
+     */
+    private static final class Accumulator {
+
+        public EntityIndex index;
+        public long tick = Long.MIN_VALUE;
+        public double[] vx = new double[0], vy = new double[0], vz = new double[0];
+        public byte[] flags = new byte[0];
+        public int[] moved = new int[16];
+        public int movedCount;
+
+        public void prepare(EntityIndex index, long tick) {
+            if (this.tick == tick) {
+                return;
+            }
+
+            this.index = index;
+            this.tick = tick;
+            int size = index.size();
+
+            if (flags.length < size) {
+                vx = new double[size];
+                vy = new double[size];
+                vz = new double[size];
+                flags = new byte[size];
+            } else {
+                Arrays.fill(flags, 0, size, (byte) 0);
+            }
+
+            movedCount = 0;
+        }
+
+        /**
+         * This reads the entity's velocity the first time we move it this tick; after that we use our copy.
+         */
+        public void load(int i) {
+            if ((flags[i] & MOVED) == 0) {
+                Vector velocity = index.getEntity(i).getVelocity();
+                vx[i] = velocity.getX();
+                vy[i] = velocity.getY();
+                vz[i] = velocity.getZ();
+                flags[i] |= MOVED;
+
+                if (movedCount == moved.length) {
+                    moved = Arrays.copyOf(moved, movedCount * 2);
+                }
+
+                moved[movedCount++] = i;
+            }
+        }
+
+        public void apply() {
+            for (int m = 0; m < movedCount; ++m) {
+                int i = moved[m];
+                Entity victim = index.getEntity(i);
+                victim.setVelocity(new Vector(vx[i], vy[i], vz[i]));
+                victim.setFallDistance(0); //also stop damage while under magnetism
+            }
+
+            movedCount = 0;
+        }
+    }
+}
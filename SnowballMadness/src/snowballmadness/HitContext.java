@@ -0,0 +1,69 @@
+package snowballmadness;
+
+import com.google.common.base.*;
+import org.bukkit.*;
+import org.bukkit.entity.*;
+import org.bukkit.projectiles.ProjectileSource;
+import org.bukkit.util.Vector;
+
+/**
+ * This class describes where and how a snowball hit: the place, its velocity, and who threw it. This is all most logics need
+ * from the snowball when it hits, and a virtual snowball (see VirtualSnowballs) can supply it without an entity.
+ *
+ * Like a Snowball, this hands out a new Location and Vector each time you ask, so callers may change what they get.
+ */
+public final class HitContext {
+
+    private final World world;
+    private final double x, y, z;
+    private final double vx, vy, vz;
+    private final ProjectileSource shooter;
+
+    /**
+     * This creates a context for a hit at a place.
+     *
+     * @param location Where the snowball hit; we copy this.
+     * @param velocity The snowball's velocity as it hit; we copy this.
+     * @param shooter Who threw it; may be null.
+     */
+    public HitContext(Location location, Vector velocity, ProjectileSource shooter) {
+        this.world = Preconditions.checkNotNull(location.getWorld());
+        this.x = location.getX();
+        this.y = location.getY();
+        this.z = location.getZ();
+        this.vx = velocity.getX();
+        this.vy = velocity.getY();
+        this.vz = velocity.getZ();
+        this.shooter = shooter;
+    }
+
+    /**
+     * This creates a context for a real snowball's hit.
+     *
+     * @param snowball The snowball.
+     */
+    public HitContext(Snowball snowball) {
+        this(snowball.getLocation(), snowball.getVelocity(), snowball.getShooter());
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Location getLocation() {
+        return new Location(world, x, y, z);
+    }
+
+    public Vector getVelocity() {
+        return new Vector(vx, vy, vz);
+    }
+
+    /**
+     * This returns whoever threw the snowball.
+     *
+     * @return The shooter, or null if there is none.
+     */
+    public ProjectileSource getShooter() {
+        return shooter;
+    }
+}
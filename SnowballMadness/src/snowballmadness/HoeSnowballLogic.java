@@ -21,8 +21,8 @@ public class HoeSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
         int baseTool = 0; //wooden pick
         switch (toolUsed) {
             case DIAMOND_HOE:
@@ -44,39 +44,19 @@ public class HoeSnowballLogic extends SnowballLogic {
 
         //size is heavily dependent on tool type, power expands so aggressively with
         //doubling that we must control it. Max will still be very huge.
-        final int diameter = (int) (radius * 2);
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(0, snowballLoc.getBlockY() - radius);
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = Math.min(world.getMaxHeight(), beginY + diameter);
-        final int endZ = beginZ + diameter;
-
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-
-        for (int x = beginX; x < endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                for (int y = beginY; y <= endY; ++y) {
-                    locationBuffer.setX(x + 0.5);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z + 0.5);
-                    if (snowballLoc.distanceSquared(locationBuffer) < distanceSquaredLimit) {
-                        final Block beingMined = world.getBlockAt(x, y, z);
-                        if (beingMined.getType() == Material.GRASS) {
-                            beingMined.setType(Material.GRASS_PATH);
-                        }
-                        if (beingMined.getType() == Material.LONG_GRASS
-                                || beingMined.getType() == Material.DOUBLE_PLANT
-                                || beingMined.getType() == Material.RED_ROSE
-                                || beingMined.getType() == Material.YELLOW_FLOWER
-                                || beingMined.getType() == Material.DEAD_BUSH) {
-                            beingMined.setType(Material.AIR);
-                        }
-                    }
+        //paths and cleared foliage hold nothing up, so we can skip physics.
+        final VoxelShape shape = VoxelShape.ball(VoxelShape.below(distanceSquaredLimit));
+        submit(info, new TerrainJob(hit.getLocation(), shape, 0, false) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                final Material material = block.getType();
+                if (material == Material.GRASS) {
+                    batch.set(block, Material.GRASS_PATH);
+                }
+                if (MaterialClass.FOLIAGE.contains(material)) {
+                    batch.set(block, Material.AIR);
                 }
             }
-        }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,368 @@
+package snowballmadness;
+
+import com.google.common.base.*;
+import java.util.*;
+import org.bukkit.entity.*;
+
+/**
+ * This class holds the snowballs that are in flight, along with the logic and info for each. It replaces the weak hash map we
+ * used to keep; entries are keyed on the entity id and are removed explicitly when the snowball hits, is removed from the world,
+ * or has its chunk unloaded, so we know exactly how many are live.
+ *
+ * The entries themselves are kept in dense parallel arrays, in the order they were added; removing one moves the last entry
+ * into its place. An open-addressed table of entity ids maps onto these slots. This means iterating the slots from 0 to size()
+ * touches only live entries, and never walks a chain of buckets.
+ *
+ * Since we hold the snowballs strongly now, anything that makes a snowball go away without a hit must call remove(), or
+ * sweepInvalid() will find it on the next pass.
+ */
+public final class InFlightRegistry {
+
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 64;
+    private int[] keys;
+    private int[] keySlots;
+    private int keyMask;
+    private int[] ids;
+    private Snowball[] snowballs;
+    private SnowballLogic[] logics;
+    private SnowballInfo[] infos;
+    private FlightState[] states;
+    private long[] lastTicks;
+    private long[] nextTicks;
+    private int size;
+
+    public InFlightRegistry() {
+        allocateSlots(INITIAL_CAPACITY);
+        allocateKeys(INITIAL_CAPACITY * 2);
+    }
+
+    /**
+     * This returns the exact number of snowballs being tracked.
+     *
+     * @return The number of live entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method records a snowball and its logic; if the snowball is already present, its logic and info are replaced.
+     *
+     * @param snowball The snowball being launched.
+     * @param logic The logic to attach to it.
+     * @param info The info that goes with it.
+     * @return The slot the snowball was placed in.
+     */
+    public int put(Snowball snowball, SnowballLogic logic, SnowballInfo info) {
+        Preconditions.checkNotNull(snowball);
+        int id = snowball.getEntityId();
+        int existing = indexOf(id);
+
+        if (existing >= 0) {
+            snowballs[existing] = snowball;
+            logics[existing] = logic;
+            infos[existing] = info;
+            states[existing].reset();
+            return existing;
+        }
+
+        if (size == ids.length) {
+            growSlots();
+        }
+
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+
+        int slot = size++;
+        ids[slot] = id;
+        snowballs[slot] = snowball;
+        logics[slot] = logic;
+        infos[slot] = info;
+        lastTicks[slot] = 0;
+        nextTicks[slot] = 0;
+
+        if (states[slot] == null) {
+            states[slot] = new FlightState();
+        } else {
+            states[slot].reset();
+        }
+
+        insertKey(id, slot);
+        return slot;
+    }
+
+    /**
+     * This returns the slot that holds the snowball given.
+     *
+     * @param snowball The snowball to look for; may be null.
+     * @return The slot index, or -1 if the snowball is not in flight.
+     */
+    public int indexOf(Snowball snowball) {
+        if (snowball == null) {
+            return -1;
+        }
+
+        return indexOf(snowball.getEntityId());
+    }
+
+    /**
+     * This returns the slot that holds the snowball with the entity id given.
+     *
+     * @param entityId The entity id to look for.
+     * @return The slot index, or -1 if no such snowball is in flight.
+     */
+    public int indexOf(int entityId) {
+        int i = mix(entityId) & keyMask;
+
+        while (true) {
+            int key = keys[i];
+
+            if (key == entityId) {
+                return keySlots[i];
+            } else if (key == FREE) {
+                return -1;
+            }
+
+            i = (i + 1) & keyMask;
+        }
+    }
+
+    public int idAt(int slot) {
+        return ids[slot];
+    }
+
+    public Snowball snowballAt(int slot) {
+        return snowballs[slot];
+    }
+
+    public SnowballLogic logicAt(int slot) {
+        return logics[slot];
+    }
+
+    public SnowballInfo infoAt(int slot) {
+        return infos[slot];
+    }
+
+    /**
+     * This returns the per-flight state for the snowball in the slot. These objects are reused once their snowball is gone, so
+     * don't hang onto them.
+     *
+     * @param slot The slot of interest.
+     * @return The state object.
+     */
+    public FlightState stateAt(int slot) {
+        return states[slot];
+    }
+
+    /**
+     * This returns the tick on which the snowball in the slot was last ticked (or launched, if it has not been ticked yet).
+     *
+     * @param slot The slot of interest.
+     * @return The tick count.
+     */
+    public long lastTickAt(int slot) {
+        return lastTicks[slot];
+    }
+
+    /**
+     * This returns the tick on which the snowball in the slot is next due to be ticked.
+     *
+     * @param slot The slot of interest.
+     * @return The tick count.
+     */
+    public long nextTickAt(int slot) {
+        return nextTicks[slot];
+    }
+
+    /**
+     * This records when the snowball in the slot was last ticked, and when it should be ticked next.
+     *
+     * @param slot The slot to update.
+     * @param lastTick The tick on which it was last ticked.
+     * @param nextTick The tick on which it is next due.
+     */
+    public void setTicks(int slot, long lastTick, long nextTick) {
+        Preconditions.checkElementIndex(slot, size);
+        lastTicks[slot] = lastTick;
+        nextTicks[slot] = nextTick;
+    }
+
+    /**
+     * This removes a snowball from the registry.
+     *
+     * @param snowball The snowball to remove; may be null.
+     * @return True if it was present.
+     */
+    public boolean remove(Snowball snowball) {
+        int slot = indexOf(snowball);
+
+        if (slot >= 0) {
+            removeAt(slot);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * This removes the entry at the slot given. The last entry is moved into the slot, so if you are removing while iterating,
+     * iterate from the end.
+     *
+     * @param slot The slot to clear.
+     */
+    public void removeAt(int slot) {
+        Preconditions.checkElementIndex(slot, size);
+        removeKey(ids[slot]);
+
+        int last = --size;
+
+        if (slot != last) {
+            // we swap the states, so the removed one stays around to be
+            // reused by the next snowball we put in.
+            FlightState removed = states[slot];
+            ids[slot] = ids[last];
+            snowballs[slot] = snowballs[last];
+            logics[slot] = logics[last];
+            infos[slot] = infos[last];
+            states[slot] = states[last];
+            states[last] = removed;
+            lastTicks[slot] = lastTicks[last];
+            nextTicks[slot] = nextTicks[last];
+            keySlots[findKey(ids[slot])] = slot;
+        }
+
+        snowballs[last] = null;
+        logics[last] = null;
+        infos[last] = null;
+    }
+
+    /**
+     * This removes every snowball whose entity is no longer valid; these are snowballs that were removed from the world, or that
+     * were in chunks that unloaded without our hearing about it.
+     *
+     * @return The number of entries removed.
+     */
+    public int sweepInvalid() {
+        int removed = 0;
+
+        for (int slot = size - 1; slot >= 0; --slot) {
+            if (!snowballs[slot].isValid()) {
+                removeAt(slot);
+                ++removed;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * This removes everything; we do this when the plugin is disabled.
+     */
+    public void clear() {
+        for (int slot = 0; slot < size; ++slot) {
+            snowballs[slot] = null;
+            logics[slot] = null;
+            infos[slot] = null;
+        }
+
+        size = 0;
+        Arrays.fill(keys, FREE);
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Id Table
+    //
+    private void allocateSlots(int capacity) {
+        ids = new int[capacity];
+        snowballs = new Snowball[capacity];
+        logics = new SnowballLogic[capacity];
+        infos = new SnowballInfo[capacity];
+        states = new FlightState[capacity];
+        lastTicks = new long[capacity];
+        nextTicks = new long[capacity];
+    }
+
+    private void allocateKeys(int capacity) {
+        keys = new int[capacity];
+        keySlots = new int[capacity];
+        keyMask = capacity - 1;
+        Arrays.fill(keys, FREE);
+    }
+
+    private void growSlots() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        snowballs = Arrays.copyOf(snowballs, capacity);
+        logics = Arrays.copyOf(logics, capacity);
+        infos = Arrays.copyOf(infos, capacity);
+        states = Arrays.copyOf(states, capacity);
+        lastTicks = Arrays.copyOf(lastTicks, capacity);
+        nextTicks = Arrays.copyOf(nextTicks, capacity);
+    }
+
+    private void rehash(int capacity) {
+        allocateKeys(capacity);
+
+        for (int slot = 0; slot < size; ++slot) {
+            insertKey(ids[slot], slot);
+        }
+    }
+
+    private void insertKey(int id, int slot) {
+        int i = mix(id) & keyMask;
+
+        while (keys[i] != FREE) {
+            i = (i + 1) & keyMask;
+        }
+
+        keys[i] = id;
+        keySlots[i] = slot;
+    }
+
+    private int findKey(int id) {
+        int i = mix(id) & keyMask;
+
+        while (keys[i] != id) {
+            i = (i + 1) & keyMask;
+        }
+
+        return i;
+    }
+
+    /**
+     * This removes a key using backward-shift deletion, so the table never accumulates tombstones no matter how many snowballs
+     * come and go.
+     */
+    private void removeKey(int id) {
+        int hole = findKey(id);
+        int i = hole;
+
+        while (true) {
+            i = (i + 1) & keyMask;
+            int key = keys[i];
+
+            if (key == FREE) {
+                break;
+            }
+
+            int home = mix(key) & keyMask;
+
+            // the entry at i can move into the hole only if its home
+            // position is not between the hole and i (cyclically).
+            if (((i - home) & keyMask) >= ((i - hole) & keyMask)) {
+                keys[hole] = key;
+                keySlots[hole] = keySlots[i];
+                hole = i;
+            }
+        }
+
+        keys[hole] = FREE;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
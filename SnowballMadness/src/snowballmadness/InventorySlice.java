@@ -3,8 +3,10 @@ package snowballmadness;
 import com.google.common.base.*;
 import java.util.*;
 
+import org.bukkit.*;
 import org.bukkit.entity.*;
 import org.bukkit.inventory.*;
+import org.bukkit.inventory.meta.*;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
 
@@ -18,24 +20,44 @@ import org.bukkit.scheduler.BukkitRunnable;
  * changes while a snowball is in flight, you can see the changes when th e
  * snowball hits.
  *
+ * You can also call snapshot() to get a copy of the slice as it is now; this
+ * keeps the items in plain arrays, so reading it is cheap, and it does not
+ * hold onto the player. Logics that keep a slice for the whole flight should
+ * keep a snapshot.
+ *
  * @author DanJ
  */
 public final class InventorySlice extends AbstractList<ItemStack> {
 
     private static final InventorySlice EMPTY = new InventorySlice();
+    private static final Material[] MATERIALS = Material.values();
     private final Player player;
     private final int x, y;
+    private final Snapshot snapshot;
+    private final int start;
 
     private InventorySlice() {
         this.player = null;
         this.x = 0;
         this.y = 0;
+        this.snapshot = null;
+        this.start = 0;
     }
 
     private InventorySlice(Player player, int x, int y) {
         this.player = Preconditions.checkNotNull(player);
         this.x = x;
         this.y = y;
+        this.snapshot = null;
+        this.start = 0;
+    }
+
+    private InventorySlice(Snapshot snapshot, int start) {
+        this.player = null;
+        this.x = 0;
+        this.y = 0;
+        this.snapshot = Preconditions.checkNotNull(snapshot);
+        this.start = start;
     }
 
     /**
@@ -76,11 +98,137 @@ public final class InventorySlice extends AbstractList<ItemStack> {
     public ItemStack getBottomItem() {
         if (player != null) {
             return player.getInventory().getItem(getSlotIndex(x, y));
+        } else if (snapshot != null && start < snapshot.materials.length) {
+            return snapshot.getItem(start);
         } else {
             return null;
         }
     }
 
+    /**
+     * This returns the material of the bottommost item of the slice. For a
+     * snapshot this reads the arrays and builds no item stack.
+     *
+     * @return The material, or null if the slice is empty or the bottom slot
+     * contains nothing.
+     */
+    public Material getBottomMaterial() {
+        if (snapshot != null) {
+            int index = start < snapshot.materials.length ? snapshot.materials[start] : -1;
+            return index >= 0 ? MATERIALS[index] : null;
+        }
+
+        ItemStack stack = getBottomItem();
+        return stack != null ? stack.getType() : null;
+    }
+
+    /**
+     * This returns the number of items in the bottom slot of the slice.
+     *
+     * @return The amount, or 0 if the slot is empty.
+     */
+    public int getBottomAmount() {
+        if (snapshot != null) {
+            return hasBottom() ? snapshot.amounts[start] : 0;
+        }
+
+        ItemStack stack = getBottomItem();
+        return stack != null ? stack.getAmount() : 0;
+    }
+
+    /**
+     * This returns the data value (or durability) of the bottommost item.
+     *
+     * @return The data value, or 0 if the slot is empty.
+     */
+    public short getBottomData() {
+        if (snapshot != null) {
+            return hasBottom() ? snapshot.data[start] : 0;
+        }
+
+        ItemStack stack = getBottomItem();
+        return stack != null ? stack.getDurability() : 0;
+    }
+
+    /**
+     * This returns the display name of the bottommost item; snapshots keep
+     * this only for snowballs.
+     *
+     * @return The display name, or null if it has none.
+     */
+    public String getBottomName() {
+        if (snapshot != null) {
+            return hasBottom() && snapshot.names != null ? snapshot.names[start] : null;
+        }
+
+        ItemStack stack = getBottomItem();
+
+        if (stack != null && stack.hasItemMeta() && stack.getItemMeta().hasDisplayName()) {
+            return stack.getItemMeta().getDisplayName();
+        }
+
+        return null;
+    }
+
+    private boolean hasBottom() {
+        return start < snapshot.materials.length && snapshot.materials[start] >= 0;
+    }
+
+    /**
+     * This returns a slice that holds a copy of the items in this one, as
+     * they are right now. Changes to the inventory after this will not be
+     * seen in the copy, and the copy cannot be changed.
+     *
+     * We keep only the material, data value and amount of each item; we also
+     * keep the display name of snowballs, and a full copy of tipped arrows,
+     * because logics look at those.
+     *
+     * @return The snapshot slice; if this slice is a snapshot already, this
+     * returns it unchanged.
+     */
+    public InventorySlice snapshot() {
+        if (player == null) {
+            return this;
+        }
+
+        int count = size();
+        int[] materials = new int[count];
+        short[] data = new short[count];
+        int[] amounts = new int[count];
+        String[] names = null;
+        ItemStack[] kept = null;
+
+        for (int i = 0; i < count; ++i) {
+            ItemStack stack = get(i);
+
+            if (stack == null) {
+                materials[i] = -1;
+                continue;
+            }
+
+            Material material = stack.getType();
+            materials[i] = material.ordinal();
+            data[i] = stack.getDurability();
+            amounts[i] = stack.getAmount();
+
+            if (material == Material.SNOW_BALL && stack.hasItemMeta() && stack.getItemMeta().hasDisplayName()) {
+                if (names == null) {
+                    names = new String[count];
+                }
+
+                names[i] = stack.getItemMeta().getDisplayName();
+            } else if (material == Material.TIPPED_ARROW) {
+                if (kept == null) {
+                    kept = new ItemStack[count];
+                }
+
+                kept[i] = stack.clone();
+            }
+        }
+
+        return new InventorySlice(new Snapshot(materials, data, amounts, names, kept), 0);
+    }
+
     /**
      * This returns a slice that includes all the items in this one, but not the
      * bottommost 'count'. This can return an empty slice.
@@ -92,10 +240,18 @@ public final class InventorySlice extends AbstractList<ItemStack> {
      * @return A slice that does not include these slots.
      */
     public InventorySlice skip(int count) {
-        if (count <= 0 || player == null) {
+        if (count <= 0 || (player == null && snapshot == null)) {
             return this;
         }
 
+        if (snapshot != null) {
+            if (start + count < snapshot.materials.length) {
+                return new InventorySlice(snapshot, start + count);
+            } else {
+                return empty();
+            }
+        }
+
         int offsetY = y - count;
 
         if (offsetY >= 0) {
@@ -110,6 +266,8 @@ public final class InventorySlice extends AbstractList<ItemStack> {
         if (player != null) {
             int offsetY = y - index;
             return player.getInventory().getItem(getSlotIndex(x, offsetY));
+        } else if (snapshot != null) {
+            return snapshot.getItem(start + Preconditions.checkElementIndex(index, size()));
         }
 
         throw new IndexOutOfBoundsException();
@@ -117,7 +275,9 @@ public final class InventorySlice extends AbstractList<ItemStack> {
 
     @Override
     public ItemStack set(int index, ItemStack stack) {
-        if (player != null) {
+        if (snapshot != null) {
+            throw new UnsupportedOperationException("Inventory snapshots cannot be changed.");
+        } else if (player != null) {
             int offsetY = y - index;
             int slotIndex = getSlotIndex(x, offsetY);
             PlayerInventory inv = player.getInventory();
@@ -132,7 +292,9 @@ public final class InventorySlice extends AbstractList<ItemStack> {
 
     @Override
     public int size() {
-        if (player == null) {
+        if (snapshot != null) {
+            return snapshot.materials.length - start;
+        } else if (player == null) {
             return 0;
         } else {
             return y + 1;
@@ -156,4 +318,52 @@ public final class InventorySlice extends AbstractList<ItemStack> {
 
         throw new IndexOutOfBoundsException();
     }
+
+    /**
+     * This class holds the items of a snapshot slice; the arrays are indexed
+     * from the bottom of the slice, like get(). Slices made by skip() share
+     * the same snapshot.
+     */
+    private static final class Snapshot {
+
+        public final int[] materials;
+        public final short[] data;
+        public final int[] amounts;
+        public final String[] names;
+        public final ItemStack[] kept;
+
+        public Snapshot(int[] materials, short[] data, int[] amounts, String[] names, ItemStack[] kept) {
+            this.materials = materials;
+            this.data = data;
+            this.amounts = amounts;
+            this.names = names;
+            this.kept = kept;
+        }
+
+        /**
+         * This builds a new item stack for the item at the index given.
+         *
+         * @param index The index into the snapshot arrays.
+         * @return A new stack, or null if the slot was empty.
+         */
+        public ItemStack getItem(int index) {
+            if (materials[index] < 0) {
+                return null;
+            }
+
+            if (kept != null && kept[index] != null) {
+                return kept[index].clone();
+            }
+
+            ItemStack stack = new ItemStack(MATERIALS[materials[index]], amounts[index], data[index]);
+
+            if (names != null && names[index] != null) {
+                ItemMeta meta = stack.getItemMeta();
+                meta.setDisplayName(names[index]);
+                stack.setItemMeta(meta);
+            }
+
+            return stack;
+        }
+    }
 }
@@ -33,25 +33,25 @@ public class ItemDropSnowballLogic extends SnowballLogic {
      * This method decides what entity to spawn; by default it returns null and we spawn none. however, this lets you tack on an
      * entity with your item when desired.
      *
-     * @param snowball The snowball whose impact spawns things.
+     * @param hit Where and how the snowball hit.
      * @param info Info about the snowball.
      * @return The type of entity to spawn, or null for nothing.
      */
-    protected EntityType getEntityToSpawn(Snowball snowball, SnowballInfo info) {
+    protected EntityType getEntityToSpawn(HitContext hit, SnowballInfo info) {
         return null;
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
 
         if (chanceToDrop < 1.0 && itemPickRandom.nextDouble() > chanceToDrop) {
             // you failed your die roll, you get nothing.
             return;
         }
 
-        World world = snowball.getWorld();
-        Location location = snowball.getLocation();
+        World world = hit.getWorld();
+        Location location = hit.getLocation();
 
         int randomIndex = itemPickRandom.nextInt(droppableItems.length);
         Material itemDropped = droppableItems[randomIndex];
@@ -66,10 +66,10 @@ public class ItemDropSnowballLogic extends SnowballLogic {
             world.dropItem(location, stack);
         }
 
-        EntityType entityDropped = getEntityToSpawn(snowball, info);
+        EntityType entityDropped = getEntityToSpawn(hit, info);
 
         if (entityDropped != null) {
-            if (world.getLivingEntities().size() < 900) {
+            if (getEntityCensus().getLivingCount(world) < 900) {
                 world.spawnEntity(location, entityDropped);
             }
         }
@@ -14,6 +14,11 @@ import org.bukkit.potion.*;
  */
 public class JetpackSnowballLogic extends SnowballLogic {
 
+    @Override
+    public boolean canFlyVirtually() {
+        return false;
+    }
+
     @Override
     public void launch(Snowball snowball, SnowballInfo info) {
         super.launch(snowball, info);
@@ -0,0 +1,104 @@
+package snowballmadness;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * This class counts durations in buckets that grow with the duration, so we can give percentiles without keeping every sample.
+ * Each power of two is split into SUB_BUCKETS equal buckets, so a percentile is never more than 1/SUB_BUCKETS off, from a
+ * nanosecond up to about half an hour; longer durations all go in the last bucket.
+ *
+ * Recording takes no lock, so the CSV dump can read this from another thread while the server thread records.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_MAGNITUDE = 40;
+    private static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_MAGNITUDE - SUB_BITS + 2) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * This method records one duration.
+     *
+     * @param nanos The duration in nanoseconds; negative durations count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(Math.min(value, MAX_VALUE)));
+        count.increment();
+        total.add(value);
+
+        long seen = max.get();
+
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * This returns the sum of every duration recorded.
+     *
+     * @return The total in nanoseconds.
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * This returns the duration that the fraction given of the samples do not exceed, to within the bucket's width.
+     *
+     * @param fraction The fraction, from 0 to 1; 0.99 gives the 99th percentile.
+     * @return The duration in nanoseconds; 0 if nothing was recorded.
+     */
+    public long getPercentile(double fraction) {
+        long samples = count.sum();
+
+        if (samples == 0) {
+            return 0;
+        }
+
+        long wanted = Math.max(1, (long) Math.ceil(samples * Math.min(1.0, fraction)));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length(); ++i) {
+            seen += counts.get(i);
+
+            if (seen >= wanted) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
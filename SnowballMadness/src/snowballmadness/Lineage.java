@@ -0,0 +1,125 @@
+package snowballmadness;
+
+import java.util.UUID;
+import org.bukkit.entity.*;
+
+/**
+ * This class describes one 'family' of snowballs: a snowball a player threw, and every snowball spawned from it by multipliers,
+ * however deeply they are nested. Every snowball in flight has one, in its FlightState, along with its generation (0 for the
+ * thrown one, 1 for what it spawns, and so on).
+ *
+ * A stack of multipliers can grow one throw into 64 to the power of the stack's height, so each family may only spawn so many
+ * snowballs; once it has, the secondaries it would spawn are folded into one snowball if their logic can stand for several,
+ * and otherwise dropped, and we count those. An admin can also
+ * cancel a family by its root id, which removes what is in flight and stops it spawning any more.
+ */
+public final class Lineage {
+
+    /**
+     * This is the number of snowballs a family may spawn by default.
+     */
+    public static final int DEFAULT_BUDGET = 4096;
+    private static int nextRootId = 1;
+    private final int rootId;
+    private final UUID shooterId;
+    private final String shooterName;
+    private int descendants;
+    private int dropped;
+    private boolean cancelled;
+
+    private Lineage(int rootId, Player shooter) {
+        this.rootId = rootId;
+        this.shooterId = shooter != null ? shooter.getUniqueId() : null;
+        this.shooterName = shooter != null ? shooter.getName() : null;
+    }
+
+    /**
+     * This creates the lineage for a newly thrown snowball, with a new root id.
+     *
+     * @param shooter The player who threw it; may be null.
+     * @return The new lineage.
+     */
+    public static Lineage start(Player shooter) {
+        int rootId = nextRootId++;
+
+        if (nextRootId <= 0) {
+            nextRootId = 1;
+        }
+
+        return new Lineage(rootId, shooter);
+    }
+
+    /**
+     * This returns the id that identifies this family; this is what an admin gives to cancel it.
+     *
+     * @return The root id.
+     */
+    public int getRootId() {
+        return rootId;
+    }
+
+    /**
+     * This returns the player who threw the first snowball of the family.
+     *
+     * @return The player, or null if we don't know or they are no longer online.
+     */
+    public Player getShooter() {
+        return PlayerSession.getPlayer(shooterId);
+    }
+
+    /**
+     * This returns the number of snowballs this family has spawned so far, not counting the one thrown.
+     *
+     * @return The descendant count.
+     */
+    public int getDescendants() {
+        return descendants;
+    }
+
+    /**
+     * This returns the number of snowballs the family's budget kept from being spawned, and that no other snowball stands for.
+     *
+     * @return The dropped count.
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
+    void recordDropped(int count) {
+        dropped = (int) Math.min(Integer.MAX_VALUE, (long) dropped + Math.max(0, count));
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * This method marks the family cancelled, so it spawns no more snowballs.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * This method asks to spawn some snowballs, and returns how many the family's budget allows; the count returned is charged
+     * against it. A cancelled family gets none.
+     *
+     * @param wanted The number of snowballs the caller would like to spawn.
+     * @param budget The most snowballs a family may spawn in all.
+     * @return The number the caller may spawn, from 0 to wanted.
+     */
+    public int claim(int wanted, int budget) {
+        if (cancelled) {
+            return 0;
+        }
+
+        int allowed = Math.max(0, Math.min(wanted, budget - descendants));
+        descendants += allowed;
+        return allowed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d (%s)", rootId, shooterName != null ? shooterName : "nobody");
+    }
+}
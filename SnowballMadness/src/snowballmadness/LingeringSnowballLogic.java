@@ -4,8 +4,7 @@
  */
 package snowballmadness;
 
-import org.bukkit.entity.Snowball;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.entity.*;
 
 /**
  * This is a logic used for snowballs that affect their target for a short time
@@ -22,35 +21,34 @@ public abstract class LingeringSnowballLogic<TData> extends SnowballLogic {
     /**
      * This is called by the subclass to start the 'lingering' process; you
      * indicate how often linger() below is called; it is called at a rate
-     * given, and a specific number of times.
+     * given, and a specific number of times. This stops early if the target
+     * dies or is unloaded.
      *
      * @param info The info that is passed to the linger() method.
+     * @param target The entity being affected; may be null.
      * @param tickRate The rate, in ticks (1/20ths of a second), at which to
      * call linger().
      * @param lingerCount The number of times to call linger().
      * @param data An additional object that is passed to linger().
      */
-    protected final void beginLinger(final SnowballInfo info, int tickRate, final int lingerCount, final TData data) {
+    protected final void beginLinger(final SnowballInfo info, Entity target, int tickRate, final int lingerCount, final TData data) {
         if (lingerCount <= 0) {
             return;
         }
 
-        new BukkitRunnable() {
+        getTimingWheel().schedule(new TimingWheel.Timer() {
             private int counter = 0;
 
             @Override
-            public void run() {
+            protected boolean run() {
                 if (!linger(info, counter, data)) {
-                    cancel();
-                } else {
-                    ++counter;
-
-                    if (counter >= lingerCount) {
-                        cancel();
-                    }
+                    return false;
                 }
+
+                ++counter;
+                return counter < lingerCount;
             }
-        }.runTaskTimer(info.plugin, tickRate, tickRate);
+        }, target, tickRate, tickRate);
     }
 
     /**
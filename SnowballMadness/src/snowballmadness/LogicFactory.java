@@ -0,0 +1,21 @@
+package snowballmadness;
+
+import org.bukkit.inventory.*;
+
+/**
+ * This interface is implemented by the entries in the table SnowballLogic.createLogic() uses; each one makes the logic for a
+ * snowball thrown with a particular hint material. A factory may return the same logic every time, if that logic keeps no state
+ * of its own.
+ */
+public interface LogicFactory {
+
+    /**
+     * This method creates (or returns) the logic for a snowball.
+     *
+     * @param hint The stack immediately above the snowball in the inventory.
+     * @param slice The inventory slice above the snowball, starting with the hint; this is null when we are building a shared
+     * logic ahead of time.
+     * @return The logic to use, or null for an illogical snowball.
+     */
+    SnowballLogic create(ItemStack hint, InventorySlice slice);
+}
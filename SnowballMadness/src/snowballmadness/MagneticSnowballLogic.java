@@ -19,18 +19,26 @@ import org.bukkit.util.*;
  */
 public class MagneticSnowballLogic extends SnowballLogic {
 
-    private Vector previousTarget;
+    /**
+     * When no player is near enough to see the magnet at work, we tick it this rarely.
+     */
+    private static final int FAR_TICK_INTERVAL = 20;
 
     @Override
-    public void tick(Snowball snowball, SnowballInfo info) {
-        super.tick(snowball, info);
+    public void tick(Snowball snowball, SnowballInfo info, FlightState state) {
+        super.tick(snowball, info, state);
 
         World world = snowball.getWorld();
         Vector target = snowball.getLocation().toVector();
         Vector momentum = snowball.getVelocity().normalize();
+        // the forces were tuned for a tick every 4 server ticks; we scale them
+        // by the time that has passed so the pull is the same however often we run.
+        double step = getTickStep(snowball) / (double) DEFAULT_TICK_INTERVAL;
 
         // on the first tick, we approximate the previous location by
         // using the snowball's present location. Close enough!
+        Vector previousTarget = state.getPreviousLocation();
+
         if (previousTarget == null) {
             Location shooterLoc = snowball.getLocation();
 
@@ -41,73 +49,60 @@ public class MagneticSnowballLogic extends SnowballLogic {
             }
         }
        
-        for (Entity victim : world.getEntities()) {
-            if ( victim instanceof Snowball || (victim == snowball.getShooter())) {
-                //does not apply to other snowballs
-            } else {
-                accelerate(victim, target, info.power);
-                if (!(victim instanceof Snowball)) {
-                    accelerate(victim, momentum, info.power);
-                }
-                accelerate(victim, target.getMidpoint(previousTarget), info.power);
-                accelerate(victim, previousTarget, info.power);
-            }
-        }
-        previousTarget = target;
+        // momentum is a direction, but it is used as a place, so it also
+        // pulls towards the world's origin.
+        Vector midpoint = target.getMidpoint(previousTarget);
+        getForceEngine().addMagnet(world, snowball.getShooter(), info.power, step, state.getMultiplicity(), target, momentum, midpoint, previousTarget);
+        state.setPreviousLocation(target);
     }
 
+    /**
+     * Magnets flying together just pull harder, so we can merge them.
+     */
     @Override
-    public double damage(Snowball snowball, SnowballInfo info, Entity target, double proposedDamage) {
-        target.teleport(target.getLocation().add(target.getVelocity()));
-        //if you hit things with the magnet snowball, you knock 'em away from you somewhat
-        //if there are many snowballs the velocity will be instantly clamped
-        return 0;
+    public boolean canCoalesce() {
+        return true;
+    }
+
+    @Override
+    public boolean canFlyVirtually() {
+        return false;
     }
 
     /**
-     * This method applies acceleration of a victim towards a target. We a
-     * vector for 'target' instead of a Location because the methods we need are
-     * found on it; semantically this is a location.
-     *
-     * To get a funny 'hang in the air' effect, this method actually repels when
-     * the victim is within a block of the target.
-     *
-     * @param victim The entity to accelerate.
-     * @param target The target to move the entity towards.
-     * @param power The snowball power; accelerate speed depends on this.
+     * A magnet near a player is ticked every server tick, so its pull looks smooth; one that nobody is near enough to see is
+     * ticked only now and then.
      */
-    private void accelerate(Entity victim, Vector target, double power) {
-        Vector eLoc = victim.getLocation().toVector();
-        double dist = target.distance(eLoc);
-        double distSq = target.distanceSquared(eLoc);
-        double distFactor = (1.0 - (1.0 / (dist + 1)));
-        distSq -= 1.0;
+    @Override
+    public int getTickInterval(Snowball snowball, SnowballInfo info) {
+        Location loc = snowball.getLocation();
+        double reach = getReach(info.power) + 16.0;
+        double reachSq = reach * reach;
 
-        if (distSq != 0.0) {
-            double factor = (power * 2) / distSq;
-            if (factor > 0.001) {
-                Vector d = target.clone();
-                d.subtract(eLoc);
-                d.normalize();
-                d.multiply(factor);
-                if (d.getY() < 0) {
-                    d.setY(d.getY() * distFactor);
-                    //levitate factor: if we're near the snowball we tend not to fall
-                }
-                Vector vel = victim.getVelocity().clone().add(d);
-                if (vel.length() > (dist / 8)) {
-                    if (vel.length() > 1) {
-                        vel.normalize();
-                        //avoid normalizing speeds up
-                    }
-                    //max speed is related to closeness to snowball
-                }
-                victim.setVelocity(vel);
-                victim.setFallDistance(0); //also stop damage while under magnetism
+        for (Player player : loc.getWorld().getPlayers()) {
+            if (player.getLocation().distanceSquared(loc) <= reachSq) {
+                return 1;
             }
         }
-        if (victim instanceof Snowball && dist < 2 && !(victim == target)) {
-            victim.remove(); //we will cut down on the clustering slightly this way
-        }
+
+        return FAR_TICK_INTERVAL;
+    }
+
+    /**
+     * This returns the distance beyond which accelerate() does nothing at the power given.
+     *
+     * @param power The snowball power.
+     * @return The distance in blocks.
+     */
+    static double getReach(double power) {
+        return Math.sqrt((power * 2) / 0.001 + 1.0);
+    }
+
+    @Override
+    public double damage(Snowball snowball, SnowballInfo info, Entity target, double proposedDamage) {
+        target.teleport(target.getLocation().add(target.getVelocity()));
+        //if you hit things with the magnet snowball, you knock 'em away from you somewhat
+        //if there are many snowballs the velocity will be instantly clamped
+        return 0;
     }
 }
\ No newline at end of file
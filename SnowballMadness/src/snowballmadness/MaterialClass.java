@@ -0,0 +1,145 @@
+package snowballmadness;
+
+import java.util.*;
+import java.util.logging.*;
+import org.bukkit.*;
+import org.bukkit.block.*;
+import org.bukkit.configuration.*;
+
+/**
+ * This enum names the groups of materials that logics care about: what a sphere may overwrite, what a spade can dig, and so on.
+ * Each group is a bit set indexed by material ordinal, so checking a block is one lookup, however long the list.
+ *
+ * The lists come from the 'materials' section of config.yml; any group missing from there uses the list built in here, which is
+ * what the logics used before the lists were configurable.
+ */
+public enum MaterialClass {
+
+    /**
+     * Blocks a sphere or box may build over: air, liquids and other flimsy things.
+     */
+    REPLACEABLE("replaceable",
+            Material.AIR, Material.WATER, Material.STATIONARY_WATER, Material.LAVA, Material.STATIONARY_LAVA, Material.WEB,
+            Material.TNT, Material.MONSTER_EGGS, Material.FIRE, Material.LONG_GRASS, Material.RED_ROSE, Material.YELLOW_FLOWER),
+    /**
+     * Blocks a spade digs up.
+     */
+    SPADE_MINEABLE("mineable-by-spade",
+            Material.DIRT, Material.GRASS, Material.SAND, Material.GRAVEL, Material.SNOW, Material.SNOW_BLOCK, Material.SOIL,
+            Material.SOUL_SAND),
+    /**
+     * Plants growing on the ground, which a hoe clears.
+     */
+    FOLIAGE("foliage",
+            Material.LONG_GRASS, Material.DOUBLE_PLANT, Material.RED_ROSE, Material.YELLOW_FLOWER, Material.DEAD_BUSH),
+    /**
+     * Blocks a torch snowball looks down through on its second step down, before it gets as far as the leaves and plants: air
+     * and tall plants.
+     */
+    TORCH_SKIPPABLE("torch-skippable",
+            Material.AIR, Material.DOUBLE_PLANT),
+    /**
+     * Blocks a torch snowball looks down through on its last step down, and may put its torch in place of: air, leaves and
+     * plants.
+     */
+    TORCH_REPLACEABLE("torch-replaceable",
+            Material.AIR, Material.LEAVES, Material.LEAVES_2, Material.LONG_GRASS, Material.DOUBLE_PLANT, Material.RED_ROSE,
+            Material.YELLOW_FLOWER, Material.DEAD_BUSH),
+    /**
+     * Blocks shears clear away: leaves, plants and crops.
+     */
+    SHEARABLE("shearable",
+            Material.LEAVES, Material.LEAVES_2, Material.LONG_GRASS, Material.DOUBLE_PLANT, Material.RED_ROSE,
+            Material.YELLOW_FLOWER, Material.DEAD_BUSH, Material.SNOW, Material.CACTUS, Material.CROPS, Material.MELON,
+            Material.MELON_STEM, Material.POTATO, Material.PUMPKIN, Material.PUMPKIN_STEM),
+    /**
+     * Blocks a player must not be spawned on top of.
+     */
+    UNSAFE_GROUND("unsafe-ground",
+            Material.WATER, Material.STATIONARY_WATER, Material.LAVA, Material.STATIONARY_LAVA, Material.WEB, Material.TNT,
+            Material.FIRE, Material.CACTUS, Material.PORTAL, Material.ENDER_PORTAL),
+    /**
+     * Slabs, which are placed as a flat pad instead of a column.
+     */
+    SLAB("slab",
+            Material.STEP, Material.DOUBLE_STEP, Material.WOOD_STEP, Material.WOOD_DOUBLE_STEP, Material.STONE_SLAB2,
+            Material.DOUBLE_STONE_SLAB2, Material.PURPUR_SLAB, Material.PURPUR_DOUBLE_SLAB);
+    private final String configName;
+    private final Material[] defaults;
+    private BitSet members;
+
+    private MaterialClass(String configName, Material... defaults) {
+        this.configName = configName;
+        this.defaults = defaults;
+        this.members = toBits(Arrays.asList(defaults));
+    }
+
+    /**
+     * This returns the name of this group's list in the config file.
+     *
+     * @return The config name.
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * This tests a material for membership in this group.
+     *
+     * @param material The material to test; may be null.
+     * @return True if the material is in the group.
+     */
+    public boolean contains(Material material) {
+        return material != null && members.get(material.ordinal());
+    }
+
+    /**
+     * This tests a block's material for membership in this group.
+     *
+     * @param block The block to test.
+     * @return True if the block's material is in the group.
+     */
+    public boolean contains(Block block) {
+        return contains(block.getType());
+    }
+
+    /**
+     * This method rebuilds every group from the config section given. Groups not listed there get their built-in lists, and
+     * names we don't recognize are logged and skipped.
+     *
+     * @param section The 'materials' section of the config; may be null.
+     * @param logger The logger to complain to.
+     */
+    public static void compile(ConfigurationSection section, Logger logger) {
+        for (MaterialClass materialClass : values()) {
+            if (section == null || !section.isList(materialClass.configName)) {
+                materialClass.members = toBits(Arrays.asList(materialClass.defaults));
+                continue;
+            }
+
+            List<Material> materials = new ArrayList<Material>();
+
+            for (String name : section.getStringList(materialClass.configName)) {
+                Material material = Material.matchMaterial(name);
+
+                if (material == null) {
+                    logger.warning(String.format("Unknown material '%s' in materials.%s.", name, materialClass.configName));
+                } else {
+                    materials.add(material);
+                }
+            }
+
+            materialClass.members = toBits(materials);
+        }
+    }
+
+    private static BitSet toBits(Collection<Material> materials) {
+        BitSet bits = new BitSet(Material.values().length);
+
+        for (Material material : materials) {
+            bits.set(material.ordinal());
+        }
+
+        return bits;
+    }
+}
@@ -0,0 +1,321 @@
+package snowballmadness;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * This class keeps counts and timings for each kind of snowball, and for each of the engines our ticker runs, so an op can see
+ * where the time goes without turning on logsnowballs. Each of these is a CostCenter.
+ *
+ * The server thread says which cost center it is working for with enter() and exit(); these nest, and the time a cost center
+ * gets is only its own, not the time of those entered inside it. Counts of blocks and entities go to whichever cost center is
+ * current. Terrain jobs and blasts, which finish after the snowball has gone, remember the cost center that made them.
+ *
+ * The counts themselves need no lock, so the CSV dump can read them from another thread.
+ */
+public final class Metrics {
+
+    private static final int MAX_DEPTH = 32;
+    private final ConcurrentMap<String, CostCenter> centers = new ConcurrentHashMap<String, CostCenter>();
+    private final ConcurrentMap<Class<?>, CostCenter> logicCenters = new ConcurrentHashMap<Class<?>, CostCenter>();
+    private final CostCenter[] stack = new CostCenter[MAX_DEPTH];
+    private final long[] startNanos = new long[MAX_DEPTH];
+    private final long[] innerNanos = new long[MAX_DEPTH];
+    private final LongAdder throwCount = new LongAdder();
+    private int depth;
+    private CostCenter current;
+
+    /**
+     * This returns the cost center with the name given, creating it if need be.
+     *
+     * @param name The name of the cost center.
+     * @return The cost center.
+     */
+    public CostCenter forName(String name) {
+        CostCenter center = centers.get(name);
+
+        if (center == null) {
+            CostCenter created = new CostCenter(name);
+            center = centers.putIfAbsent(name, created);
+
+            if (center == null) {
+                center = created;
+            }
+        }
+
+        return center;
+    }
+
+    /**
+     * This returns the cost center for a logic; logics of the same class share one. Anonymous logics are named for the class
+     * they extend.
+     *
+     * @param logic The logic.
+     * @return The cost center.
+     */
+    public CostCenter forLogic(SnowballLogic logic) {
+        Class<?> logicClass = logic.getClass();
+        CostCenter center = logicCenters.get(logicClass);
+
+        if (center == null) {
+            Class<?> named = logicClass;
+
+            while (named.isAnonymousClass()) {
+                named = named.getSuperclass();
+            }
+
+            center = forName(named.getSimpleName());
+            logicCenters.put(logicClass, center);
+        }
+
+        return center;
+    }
+
+    /**
+     * This returns the cost center the server thread is working for.
+     *
+     * @return The current cost center, or null if there is none.
+     */
+    public CostCenter getCurrent() {
+        return current;
+    }
+
+    /**
+     * This method starts working for a cost center, until the matching exit().
+     *
+     * @param center The cost center.
+     */
+    public void enter(CostCenter center) {
+        // past MAX_DEPTH we only count the entries, so the exits match up.
+        if (depth < MAX_DEPTH) {
+            stack[depth] = current;
+            startNanos[depth] = System.nanoTime();
+            innerNanos[depth] = 0;
+            current = center;
+        }
+
+        ++depth;
+    }
+
+    /**
+     * This method stops working for the current cost center, and goes back to the one before it.
+     *
+     * @return The time spent on the cost center since enter(), less the time spent on cost centers entered inside it.
+     */
+    public long exit() {
+        if (depth <= 0) {
+            return 0;
+        }
+
+        --depth;
+
+        if (depth >= MAX_DEPTH) {
+            return 0;
+        }
+
+        long elapsed = System.nanoTime() - startNanos[depth];
+        current = stack[depth];
+        stack[depth] = null;
+
+        if (depth > 0) {
+            innerNanos[depth - 1] += elapsed;
+        }
+
+        return elapsed - innerNanos[depth];
+    }
+
+    /**
+     * This method ends the work for the current cost center, counting the time as its tick time, and starts on the one named.
+     * The ticker uses this to time each engine in turn.
+     *
+     * @param name The name of the next cost center.
+     */
+    public void next(String name) {
+        CostCenter finished = current;
+        long nanos = exit();
+
+        if (finished != null) {
+            finished.tickNanos.record(nanos);
+        }
+
+        enter(forName(name));
+    }
+
+    /**
+     * This method ends the work for the current cost center, counting the time as its tick time.
+     */
+    public void finish() {
+        CostCenter finished = current;
+        long nanos = exit();
+
+        if (finished != null) {
+            finished.tickNanos.record(nanos);
+        }
+    }
+
+    /**
+     * This method forgets any cost centers left entered; an exception may have skipped their exit(). The ticker calls this
+     * before it starts.
+     */
+    public void reset() {
+        Arrays.fill(stack, null);
+        depth = 0;
+        current = null;
+    }
+
+    public void countBlocksRead(int count) {
+        if (current != null) {
+            current.blocksRead.add(count);
+        }
+    }
+
+    public void countBlocksWritten(int count) {
+        if (current != null) {
+            current.blocksWritten.add(count);
+        }
+    }
+
+    public void countSpawned() {
+        if (current != null) {
+            current.entitiesSpawned.increment();
+        }
+    }
+
+    public void countRemoved() {
+        if (current != null) {
+            current.entitiesRemoved.increment();
+        }
+    }
+
+    /**
+     * This method counts a snowball with logic thrown by a player.
+     */
+    public void countThrow() {
+        throwCount.increment();
+    }
+
+    /**
+     * This returns the number of snowballs with logic players have thrown since the plugin was enabled; this only goes up, even
+     * as players come and go.
+     *
+     * @return The throw count.
+     */
+    public long getThrowCount() {
+        return throwCount.sum();
+    }
+
+    /**
+     * This returns the cost centers that have taken the most time, most first.
+     *
+     * @param limit The most cost centers to return.
+     * @return The cost centers.
+     */
+    public List<CostCenter> getTopCenters(int limit) {
+        List<CostCenter> sorted = new ArrayList<CostCenter>(centers.values());
+
+        Collections.sort(sorted, new Comparator<CostCenter>() {
+            @Override
+            public int compare(CostCenter left, CostCenter right) {
+                return Long.compare(right.getTotalNanos(), left.getTotalNanos());
+            }
+        });
+
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    /**
+     * This method adds a row to a CSV file for each count of each cost center, and for each gauge given, all with the same
+     * time. The file is created, with a header, if it is missing. This only reads the counts, so it may be called from another
+     * thread; the gauges must be read on the server thread beforehand.
+     *
+     * @param file The file to add to.
+     * @param millis The time of the rows, as System.currentTimeMillis() gives it.
+     * @param gauges The gauges, by name.
+     * @throws IOException If the file can't be written.
+     */
+    public void writeCsv(File file, long millis, Map<String, Long> gauges) throws IOException {
+        boolean isNew = !file.exists();
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file, true)));
+
+        try {
+            if (isNew) {
+                out.println("time,name,metric,value");
+            }
+
+            for (Map.Entry<String, Long> gauge : gauges.entrySet()) {
+                out.printf("%d,gauge,%s,%d%n", millis, gauge.getKey(), gauge.getValue());
+            }
+
+            for (CostCenter center : centers.values()) {
+                String prefix = millis + "," + center.getName() + ",";
+                out.println(prefix + "launches," + center.launches.sum());
+                out.println(prefix + "hits," + center.hits.sum());
+                out.println(prefix + "blocksread," + center.blocksRead.sum());
+                out.println(prefix + "blockswritten," + center.blocksWritten.sum());
+                out.println(prefix + "entitiesspawned," + center.entitiesSpawned.sum());
+                out.println(prefix + "entitiesremoved," + center.entitiesRemoved.sum());
+                writeHistogram(out, prefix + "launch", center.launchNanos);
+                writeHistogram(out, prefix + "tick", center.tickNanos);
+                writeHistogram(out, prefix + "hit", center.hitNanos);
+                writeHistogram(out, prefix + "work", center.workNanos);
+            }
+        } finally {
+            out.close();
+        }
+
+        if (out.checkError()) {
+            throw new IOException(String.format("Could not write to '%s'.", file));
+        }
+    }
+
+    private static void writeHistogram(PrintWriter out, String prefix, LatencyHistogram histogram) {
+        out.println(prefix + "count," + histogram.getCount());
+        out.println(prefix + "nanos," + histogram.getTotal());
+        out.println(prefix + "p50," + histogram.getPercentile(0.5));
+        out.println(prefix + "p99," + histogram.getPercentile(0.99));
+        out.println(prefix + "max," + histogram.getMax());
+    }
+
+    /**
+     * This class holds the counts for one kind of snowball, or one engine. The timings are kept apart: launch(), tick() and
+     * hit() for snowballs, and 'work' for terrain jobs and blasts done for them later; an engine's own time is its tick time.
+     */
+    public static final class CostCenter {
+
+        private final String name;
+        public final LongAdder launches = new LongAdder();
+        public final LongAdder hits = new LongAdder();
+        public final LongAdder blocksRead = new LongAdder();
+        public final LongAdder blocksWritten = new LongAdder();
+        public final LongAdder entitiesSpawned = new LongAdder();
+        public final LongAdder entitiesRemoved = new LongAdder();
+        public final LatencyHistogram launchNanos = new LatencyHistogram();
+        public final LatencyHistogram tickNanos = new LatencyHistogram();
+        public final LatencyHistogram hitNanos = new LatencyHistogram();
+        public final LatencyHistogram workNanos = new LatencyHistogram();
+
+        private CostCenter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * This returns all the time spent on this cost center.
+         *
+         * @return The total in nanoseconds.
+         */
+        public long getTotalNanos() {
+            return launchNanos.getTotal() + tickNanos.getTotal() + hitNanos.getTotal() + workNanos.getTotal();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -14,6 +14,18 @@ import org.bukkit.util.*;
  * This snowball logic spawns a cluster of additional snowballs at impact, and these may have a second logic attached to them (and
  * that can be a multiplier too, for total chaos!)
  *
+ * We work out the logic for the cluster once, as a SnowballPlan, and every snowball in the cluster shares it. A multiplier
+ * launched from the inventory resolves its plan from a snapshot of it taken at launch; multipliers further down the chain are
+ * given their part of the plan and never read the inventory at all.
+ *
+ * Every snowball we spawn counts against the budget of the family the first one was thrown in (see Lineage). Snowballs the
+ * budget won't allow are folded in, if their logic can coalesce (and so scales by multiplicity): they add to the multiplicity of
+ * the first secondary instead, or if there is no room for even that, one snowball's worth of the secondary logic hits right
+ * where this snowball did. Snowballs whose logic can't stand for several are dropped, and counted in the Lineage.
+ *
+ * If no player is near enough to see the cluster, the secondaries fly as virtual snowballs, without entities (see
+ * VirtualSnowballs); plain snowballs with no logic are not spawned at all then, since they would do nothing.
+ *
  * @author DanJ
  */
 public class MultiplierSnowballLogic extends SnowballLogic {
@@ -21,41 +33,65 @@ public class MultiplierSnowballLogic extends SnowballLogic {
     private static long inFlightSyncDeadline = 0;
     private final String targetName;
     private final int numberOfSnowballs;
-    private int serverBusy = 5;
-    private final InventorySlice inventory;
+    private final SnowballPlan downstream;
 
     public MultiplierSnowballLogic(int numberOfSnowballs, String targetName, InventorySlice inventory) {
         this.numberOfSnowballs = numberOfSnowballs;
         this.targetName = targetName;
-        this.inventory = Preconditions.checkNotNull(inventory);
+        this.downstream = SnowballPlan.resolve(Preconditions.checkNotNull(inventory).snapshot());
+    }
+
+    public MultiplierSnowballLogic(int numberOfSnowballs, String targetName, SnowballPlan downstream) {
+        this.numberOfSnowballs = numberOfSnowballs;
+        this.targetName = targetName;
+        this.downstream = Preconditions.checkNotNull(downstream);
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
+
+        SnowballLogic secondaryLogic = downstream.getLogic();
+        Lineage lineage = state.getLineage();
+        int allowed = lineage != null ? lineage.claim(numberOfSnowballs, getFamilyBudget()) : numberOfSnowballs;
 
-        World world = snowball.getWorld();
-        ProjectileSource shooter = snowball.getShooter();
-        Location source = snowball.getLocation().clone();
+        if (allowed == 0) {
+            if (secondaryLogic != null && (lineage == null || !lineage.isCancelled())) {
+                //the family has spawned all it may; the secondaries all land
+                //here, as one. They get a state of their own, so ours is not
+                //changed under us.
+                FlightState folded = new FlightState();
+                folded.joinFamily(state, info.getShooter());
+                fold(secondaryLogic, folded, numberOfSnowballs - 1, lineage);
+                secondaryLogic.hit(hit, info, folded);
+            }
+            return;
+        }
+
+        ProjectileSource shooter = hit.getShooter();
+        Location source = hit.getLocation().clone();
         source.setY(source.getY() + 0.25);
+        boolean watched = VirtualSnowballs.isWatched(source);
 
-        Vector bounce = snowball.getVelocity().clone();
+        Vector bounce = hit.getVelocity().clone();
         bounce.setY(-(bounce.getY()));
         //we are not going to amplify the bounce because the initial velocity should
         //be what's amplified. Thus we needn't amplify it again.
 
-        Snowball skipper = world.spawn(source, Snowball.class);
-        skipper.setShooter(shooter);
-        skipper.setVelocity(bounce);
-
-        performLaunch(inventory, skipper, info);
+        FlightState skipperState = launchSecondary(secondaryLogic, source, bounce, shooter, info, state, watched);
         //the purpose of this change is to make the first one in the stack always
         //bounce like a skipping rock, for better distance shots and ICBMs
         //successive snowballs will be directed increasingly randomly
 
-        for (int i = 1; i < numberOfSnowballs; ++i) {
-            Snowball secondary = world.spawn(source, Snowball.class);
+        if (allowed < numberOfSnowballs) {
+            if (skipperState != null) {
+                fold(secondaryLogic, skipperState, numberOfSnowballs - allowed, lineage);
+            } else if (lineage != null && secondaryLogic != null) {
+                lineage.recordDropped(numberOfSnowballs - allowed);
+            }
+        }
 
+        for (int i = 1; i < allowed; ++i) {
             Vector vector = Vector.getRandom();
             vector.setX(vector.getX() - 0.5);
             vector.setZ(vector.getZ() - 0.5);
@@ -71,11 +107,41 @@ public class MultiplierSnowballLogic extends SnowballLogic {
             //and we add bounce scaled to the inverse of that amount. Lower i numbers make the
             //bounce component high. as you keep adding more i you get more randomness and scatter.
 
-            secondary.setShooter(shooter);
-            secondary.setVelocity(vector);
+            launchSecondary(secondaryLogic, source, vector, shooter, info, state, watched);
+        }
+    }
+
+    /**
+     * This folds snowballs the budget won't allow into one that will fly, if the logic scales by multiplicity; if it does not,
+     * they are dropped and we count them against the family.
+     */
+    private static void fold(SnowballLogic logic, FlightState carrier, int count, Lineage lineage) {
+        if (logic.canCoalesce()) {
+            carrier.addMultiplicity(count);
+        } else if (lineage != null) {
+            lineage.recordDropped(count);
+        }
+    }
+
+    private static FlightState launchSecondary(SnowballLogic logic, Location source, Vector velocity,
+            ProjectileSource shooter, SnowballInfo info, FlightState parent, boolean watched) {
+        if (!watched) {
+            if (logic == null) {
+                return null;
+            } else if (logic.canFlyVirtually()) {
+                return getVirtualSnowballs().launch(logic, source, velocity, info, parent);
+            }
+        }
 
-            performLaunch(inventory, secondary, info);
+        Snowball secondary = source.getWorld().spawn(source, Snowball.class);
+        secondary.setShooter(shooter);
+        secondary.setVelocity(velocity);
+
+        if (logic != null) {
+            return performLaunch(logic, secondary, info, parent);
         }
+
+        return null;
     }
 
     @Override
@@ -83,6 +149,6 @@ public class MultiplierSnowballLogic extends SnowballLogic {
         return String.format("%s -> (x%d) %s",
                 super.toString(),
                 numberOfSnowballs,
-                createLogic(inventory));
+                downstream);
     }
 }
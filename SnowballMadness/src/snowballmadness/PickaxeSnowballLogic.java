@@ -1,11 +1,9 @@
 package snowballmadness;
 
 import com.google.common.base.Preconditions;
-import java.util.Random;
 import org.bukkit.*;
 import org.bukkit.block.*;
 import org.bukkit.entity.*;
-import org.bukkit.util.Vector;
 
 /**
  * This logic mines blocks with picks, with a broad set of rules for what can be replaced with air. It drops nothing, it's just a
@@ -22,8 +20,8 @@ public class PickaxeSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
         int baseTool = 2; //wooden pick
         switch (toolUsed) {
             case DIAMOND_PICKAXE:
@@ -45,52 +43,43 @@ public class PickaxeSnowballLogic extends SnowballLogic {
 
         //size is heavily dependent on tool type, power expands so aggressively with
         //doubling that we must control it. Max will still be very huge.
-        final int diameter = (int) (radius * 2);
-        World world = snowball.getWorld();
-        Random rand = new Random();
-        Location snowballLoc = snowball.getLocation().clone();
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(1, snowballLoc.getBlockY() - 1); // must be 1 min, for flat bedrock floor
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = Math.min(world.getMaxHeight(), beginY + radius);
-        final int endZ = beginZ + diameter;
+        //the cave runs from one block below the snowball up to 'radius' blocks above that.
+        final long caveLimit = VoxelShape.below(distanceSquaredLimit);
+        final VoxelShape box = VoxelShape.of(VoxelShape.Metric.SPHERICAL, -1, Long.MAX_VALUE, radius, 1, radius - 1);
+        // we keep physics on, as digging must: sand and gravel over the cave
+        // fall, torches and plants on it drop, and liquids beside it flow in.
+        // The cave and the enclosure around it are one job, going column by
+        // column, so the loose blocks and liquids over each column go with the
+        // cave below them, and the governor can't take the cave and drop the
+        // enclosure.
+        // The lowest y must be 1, for flat bedrock floor.
+        submit(info, new TerrainJob(hit.getLocation(), box, 1, true) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                final Material material = block.getType();
+                long dx = block.getX() - getCenterX();
+                long dy = block.getY() - getCenterY();
+                long dz = block.getZ() - getCenterZ();
 
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-
-        for (int x = beginX; x < endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                double moddedRoof = distanceSquaredLimit;
-                //value required is squared, remember: not a fixed amount
-                for (int y = beginY; y <= endY; ++y) {
-                    locationBuffer.setX(x + 0.5);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z + 0.5);
-                    final Block beingMined = world.getBlockAt(x, y, z);
-                    final Material material = beingMined.getType();
-                    if (snowballLoc.distanceSquared(locationBuffer) < moddedRoof) {
-                        if (material == Material.CHEST
-                                || (material == Material.ENDER_CHEST)) {
-                            //don't mine
-                        } else {
-                            beingMined.setType(Material.AIR);
-                        }//literally anything not a chest becomes air within our cave size
-                        //which is also now a smooth form
+                if (dx * dx + dy * dy + dz * dz <= caveLimit) {
+                    if (material == Material.CHEST
+                            || (material == Material.ENDER_CHEST)) {
+                        //don't mine
                     } else {
-                        //in the enclosing, larger box, if we have messy liquids and falling things
-                        //we try to remove those
-                        if (material == Material.SAND
-                                || (material == Material.GRAVEL)
-                                || (material == Material.WATER)
-                                || (material == Material.STATIONARY_WATER)
-                                || (material == Material.LAVA)
-                                || (material == Material.STATIONARY_LAVA)) {
-                            beingMined.setType(Material.AIR);
-                        }
-                    }
+                        batch.set(block, Material.AIR);
+                    }//literally anything not a chest becomes air within our cave size
+                    //which is also now a smooth form
+                } else if (material == Material.SAND
+                        || (material == Material.GRAVEL)
+                        || (material == Material.WATER)
+                        || (material == Material.STATIONARY_WATER)
+                        || (material == Material.LAVA)
+                        || (material == Material.STATIONARY_LAVA)) {
+                    //in the enclosing, larger box, if we have messy liquids and falling things
+                    //we try to remove those
+                    batch.set(block, Material.AIR);
                 }
-
             }
-        }
+        });
     }
 }
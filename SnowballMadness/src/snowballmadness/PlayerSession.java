@@ -0,0 +1,136 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.entity.*;
+
+/**
+ * This class holds what we keep about each player who is online: respawn timing and throw counts. A session starts when the
+ * player joins and ends when they quit, and sessions are kept by the player's UUID, so nothing here depends on the garbage
+ * collector to clear it, and nothing else needs to hold on to Player objects.
+ *
+ * Each player's share of the terrain budget is not kept here, but in EditGovernor, by UUID; a player's terrain jobs may run on
+ * after they quit, and must still be charged to them.
+ */
+public final class PlayerSession {
+
+    private static final Map<UUID, PlayerSession> sessions = new HashMap<UUID, PlayerSession>();
+    private final UUID id;
+    private final Player player;
+    private long lastRespawnMillis;
+    private int failedRespawnCount;
+    private long throwCount;
+    private long lastThrowTick;
+
+    private PlayerSession(Player player) {
+        this.id = player.getUniqueId();
+        this.player = player;
+    }
+
+    /**
+     * This method starts a session for a player who has joined, replacing any they had.
+     *
+     * @param player The player.
+     * @return The new session.
+     */
+    public static PlayerSession start(Player player) {
+        PlayerSession session = new PlayerSession(player);
+        sessions.put(session.id, session);
+        return session;
+    }
+
+    /**
+     * This method ends the session of a player who has quit.
+     *
+     * @param player The player.
+     */
+    public static void end(Player player) {
+        sessions.remove(player.getUniqueId());
+    }
+
+    /**
+     * This returns a player's session. A player who joined before the plugin was enabled has none yet, so we start one.
+     *
+     * @param player The player.
+     * @return The session.
+     */
+    public static PlayerSession get(Player player) {
+        PlayerSession session = sessions.get(player.getUniqueId());
+        return session != null ? session : start(player);
+    }
+
+    /**
+     * This returns the player with a UUID, if they are online.
+     *
+     * @param id The player's UUID; may be null.
+     * @return The player, or null if they have no session.
+     */
+    public static Player getPlayer(UUID id) {
+        PlayerSession session = id != null ? sessions.get(id) : null;
+        return session != null ? session.player : null;
+    }
+
+    /**
+     * This method ends every session; we use this when the plugin is disabled.
+     */
+    public static void clearAll() {
+        sessions.clear();
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Respawns
+    //
+    /**
+     * This returns the time of the player's last respawn, as System.currentTimeMillis() gave it; 0 if they have not respawned
+     * lately.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getLastRespawnMillis() {
+        return lastRespawnMillis;
+    }
+
+    public int getFailedRespawnCount() {
+        return failedRespawnCount;
+    }
+
+    void recordRespawn(long now, boolean failed) {
+        lastRespawnMillis = now;
+
+        if (failed) {
+            ++failedRespawnCount;
+        }
+    }
+
+    /**
+     * This method forgets the player's respawns, once they have survived long enough.
+     */
+    void forgetRespawns() {
+        lastRespawnMillis = 0;
+        failedRespawnCount = 0;
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Throws
+    //
+    /**
+     * This returns the number of snowballs with logic this player has thrown this session.
+     *
+     * @return The throw count.
+     */
+    public long getThrowCount() {
+        return throwCount;
+    }
+
+    public long getLastThrowTick() {
+        return lastThrowTick;
+    }
+
+    void recordThrow(long tick) {
+        ++throwCount;
+        lastThrowTick = tick;
+    }
+}
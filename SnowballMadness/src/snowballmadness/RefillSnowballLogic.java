@@ -15,7 +15,7 @@ import org.bukkit.World.Environment;
 public class RefillSnowballLogic extends SnowballLogic {
 
     private final Material purpose;
-    private int boxSize;
+    private final int boxSize;
 
     public RefillSnowballLogic(Material purpose, int boxSize) {
         this.purpose = purpose;
@@ -23,99 +23,64 @@ public class RefillSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
 
-        boxSize = (int) Math.min(boxSize, info.power);
+        final int size = (int) Math.min(boxSize, info.power);
         //size of bukkit is limited by how high level you are
-        final int radius = boxSize / 2;
-        final int diameter = boxSize;
+        final int radius = size / 2;
         final double distanceLimit = radius + 1.0;
+        final long distanceSquaredLimit = VoxelShape.atMost(distanceLimit * distanceLimit);
 
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
+        Location snowballLoc = hit.getLocation();
+        final int centerY = snowballLoc.getBlockY();
+        // the water and lava versions fill only the bottom layer of the ball.
+        final int bottomY = Math.max(centerY - radius, 1);
 
-        // while in theory x anx z are unlimited, we want to keep y
-        // within the normal world.
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(snowballLoc.getBlockY() - radius, 1);
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = beginY + diameter;
-        final int endZ = beginZ + diameter;
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-
-        // no worries- all this executes before Minecraft can send anything
-        // back to the client, so we can set the blocks in any order. This one
-        // is convenient!
         if (purpose == Material.BUCKET) {
-            for (int x = beginX; x <= endX; ++x) {
-                for (int z = beginZ; z <= endZ; ++z) {
-                    for (int y = beginY; y <= endY; ++y) {
-                        locationBuffer.setX(x);
-                        locationBuffer.setY(y);
-                        locationBuffer.setZ(z);
-                        if (snowballLoc.distance(locationBuffer) <= distanceLimit) {
-                            Block target = world.getBlockAt(x, y, z);
-                            if (target.getType() == Material.GLASS
-                                    || target.getType() == Material.FIRE
-                                    || target.getType() == Material.LAVA
-                                    || target.getType() == Material.STATIONARY_LAVA
-                                    || target.getType() == Material.WATER
-                                    || target.getType() == Material.STATIONARY_WATER) {
-                                target.setType(Material.AIR);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        //the normal world empty-stuff version
+            final VoxelShape shape = VoxelShape.of(VoxelShape.Metric.SPHERICAL, -1, distanceSquaredLimit, radius, radius, radius);
 
-        if (purpose == Material.WATER_BUCKET) {
-            int y = beginY;
-            for (int x = beginX; x <= endX; ++x) {
-                for (int z = beginZ; z <= endZ; ++z) {
-                    locationBuffer.setX(x);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z);
-                    if (snowballLoc.distance(locationBuffer) <= distanceLimit) {
-                        Block target = world.getBlockAt(x, y, z);
-                        if (target.getType() == Material.AIR
-                                || target.getType() == Material.WATER) {
-                            target.setType(Material.STATIONARY_WATER);
-                        }
+            // this drains the ball; we skip physics so the liquid around it
+            // stays put instead of flowing straight back in.
+            submit(info, new TerrainJob(snowballLoc, shape, 1, false) {
+                @Override
+                protected void edit(Block block, BlockEditBatch batch) {
+                    final Material material = block.getType();
+                    if (material == Material.GLASS
+                            || material == Material.FIRE
+                            || material == Material.LAVA
+                            || material == Material.STATIONARY_LAVA
+                            || material == Material.WATER
+                            || material == Material.STATIONARY_WATER) {
+                        batch.set(block, Material.AIR);
                     }
                 }
-            }
+            });
         }
-        //the normal world water filling version
+        //the normal world empty-stuff version
 
-        if (purpose == Material.LAVA_BUCKET) {
-            int y = beginY;
-            for (int x = beginX; x <= endX; ++x) {
-                for (int z = beginZ; z <= endZ; ++z) {
+        if (purpose == Material.WATER_BUCKET || purpose == Material.LAVA_BUCKET) {
+            final int dy = bottomY - centerY;
+            final VoxelShape shape = VoxelShape.of(VoxelShape.Metric.SPHERICAL, -1, distanceSquaredLimit, radius, -dy, dy);
 
-                    for (int yz = 130; yz >= 40; --yz) {
-                        locationBuffer.setX(x);
-                        locationBuffer.setY(yz);
-                        locationBuffer.setZ(z);
-                        if (snowballLoc.distance(locationBuffer) <= distanceLimit) {
-                            locationBuffer.setX(x);
-                            locationBuffer.setY(y);
-                            locationBuffer.setZ(z);
-                            if (snowballLoc.distance(locationBuffer) <= distanceLimit) {
-                                Block target = world.getBlockAt(x, y, z);
-                                if (target.getType() == Material.AIR
-                                        || target.getType() == Material.WATER
-                                        || target.getType() == Material.STATIONARY_WATER) {
-                                    target.setType(Material.STATIONARY_LAVA);
-                                }
-                            }
+            // we place stationary liquids, so we can skip physics; nothing will flow.
+            submit(info, new TerrainJob(snowballLoc, shape, 1, false) {
+                @Override
+                protected void edit(Block block, BlockEditBatch batch) {
+                    final Material material = block.getType();
+                    if (purpose == Material.WATER_BUCKET) {
+                        if (material == Material.AIR
+                                || material == Material.WATER) {
+                            batch.set(block, Material.STATIONARY_WATER);
                         }
+                    } else if (material == Material.AIR
+                            || material == Material.WATER
+                            || material == Material.STATIONARY_WATER) {
+                        batch.set(block, Material.STATIONARY_LAVA);
                     }
                 }
-            }
+            });
         }
+        //the normal world water and lava filling versions
     }
 }
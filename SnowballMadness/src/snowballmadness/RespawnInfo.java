@@ -4,22 +4,15 @@
  */
 package snowballmadness;
 
-import java.util.Map;
-import java.util.WeakHashMap;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.World;
-import org.bukkit.World.Environment;
-import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
 
 /**
  * RespawnInfo tracks when players have respawned and gives them a little boost if they are respawning too fast. The spawn area
- * can be destroyed very completely, and this tries to help players spawn in if its not survivable.
+ * can be destroyed very completely, and this tries to help players spawn in if its not survivable. The times are kept in each
+ * player's PlayerSession.
  *
  * @author DanJ
  */
@@ -30,12 +23,9 @@ public final class RespawnInfo {
      * flinging you about.
      */
     private static final long flingRespawnMillis = 10000;
-    /**
-     * This holds onto a player info for every player who has respawned, but might be respawning too fast.
-     */
-    private static final Map<Player, RespawnInfo> infos = new WeakHashMap<Player, RespawnInfo>();
-    private long lastRespawnTime;
-    private int failedRespawnCount;
+
+    private RespawnInfo() {
+    }
 
     /**
      * This method handles bad respawns; call this every time a player respawns. If he is respawning too quickly, this gives him a
@@ -43,126 +33,60 @@ public final class RespawnInfo {
      *
      * @param player The player who has just respawned.
      */
-    public static void checkRespawn(Player player, Plugin plugin) {
+    public static void checkRespawn(Player player) {
         long now = System.currentTimeMillis();
-        double randX;
-        double randZ;
-        boolean foundSpawn;
-        boolean badPlace;
-        Block block; //we'll just keep using this one
-
-        /**
-         * before doing the respawn fling testing, we will override the player's spawn location. We are going to check the
-         * immediate vicinity of the spawn location for solid ground that doesn't include any bad blocks.
-         */
-        foundSpawn = false;
-        badPlace = false;
-
-        if (player.hasPlayedBefore()) {
-            foundSpawn = true;
-            //crazy random only on first logon ever
-        }
 
-        while (foundSpawn == false) {
-            randX = -1000 + Math.random() * 2001;
-            randZ = -1000 + Math.random() * 2001;
-            World world = player.getWorld();
-            Location loc;
-            if (badPlace) {
-                loc = new Location(player.getWorld(), randX, 127, randZ);
-            } else {
-                loc = player.getLocation().clone();
-            }
-            world.getChunkAt(loc).load();
-            block = loc.getBlock();
-            if (world.getEnvironment().equals(Environment.NETHER)) {
-                while (block.getType() != Material.AIR && block.getY() > 1) {
-                    loc.setY(loc.getY() - 1);
-                    block = loc.getBlock(); //step down until air is reached if nether
-                }
-            }
-            while (block.getType() == Material.AIR && block.getY() > 1) {
-                loc.setY(loc.getY() - 1);
-                block = loc.getBlock();
-            }
-            //step down until we've hit anything that's not air (or fallen into the void)
-            //now we've hit something or our Y is 1
-            if (block.getY() > 1) {
-                //only if our Y is greater than one, do we even check to see that the ground is valid
-                //otherwise we'll just try again
-                Material material = block.getType();
-                if (material == Material.WATER
-                        || material == Material.STATIONARY_WATER
-                        || material == Material.LAVA
-                        || material == Material.STATIONARY_LAVA
-                        || material == Material.WEB
-                        || material == Material.TNT
-                        || material == Material.FIRE
-                        || material == Material.CACTUS
-                        || material == Material.PORTAL
-                        || material == Material.ENDER_PORTAL) {
-                    badPlace = true;
-                    //it's a bad thing we hit! we leave foundSpawn as false! and randomize location!
-                } else {
-                    loc.setY(loc.getY() + 1.5);
-                    //step back up into the air again
-                    foundSpawn = true; //score!
-                    player.setFallDistance(0);
-                    player.teleport(loc);
-                    player.setVelocity(new Vector(0.0, 0.3, 0.0));
-                    block = loc.getBlock(); //now let's touch the ground blocks below
-                    while (block.getY() > 1) {
-                        player.sendBlockChange(block.getLocation(), block.getType(), block.getData());
-                        loc.setY(loc.getY() - 1);
-                        block = loc.getBlock(); //step down to zero sending changes
-                    }
-                }
-            }
-        }
-        //if we pass this point, we have a legit random spawn, probably!!
+        if (!player.hasPlayedBefore()) {
+            //crazy random only on first logon ever: if the ground where they
+            //are isn't safe, they go to a random spot from the spawn pool,
+            //or to the world's spawn if the pool is empty.
+            Location loc = player.getLocation();
+            Location spawn = SpawnPool.findSafeSpot(player.getWorld(), loc.getBlockX(), loc.getBlockZ());
 
+            if (spawn == null) {
+                spawn = SnowballLogic.getSpawnPool().take(player.getWorld());
+            }
 
-        /*
-         * back to DanJ code :D
-         */
+            player.setFallDistance(0);
+            player.teleport(spawn);
+            player.setVelocity(new Vector(0.0, 0.3, 0.0));
+            //resend the ground, as the client sometimes misses it
+            spawn.getWorld().refreshChunk(spawn.getBlockX() >> 4, spawn.getBlockZ() >> 4);
+        }
 
-        RespawnInfo info = infos.get(player);
+        PlayerSession session = PlayerSession.get(player);
 
-        if (info == null) {
-            info = new RespawnInfo();
-            info.lastRespawnTime = now;
-            infos.put(player, info);
+        if (session.getLastRespawnMillis() == 0) {
+            session.recordRespawn(now, false);
             return;
         }
 
-        long elapsed = now - info.lastRespawnTime;
-        info.lastRespawnTime = now;
+        long elapsed = now - session.getLastRespawnMillis();
 
         if (elapsed < flingRespawnMillis) {
-            info.failedRespawnCount++;
+            session.recordRespawn(now, true);
 
             Bukkit.getLogger().info(String.format(
                     "Player %s spawned %d seconds after last respawn, applying fling.",
                     player.getName(),
                     elapsed / 1000));
 
-            startFling(player, info.failedRespawnCount, plugin);
+            startFling(player, session.getFailedRespawnCount());
         } else {
-            infos.remove(player);
+            session.forgetRespawns();
         }
     }
 
     /**
-     * This method begins the flinging process; it gives the player an initial velocity, and sets up a runnable to periodicity
+     * This method begins the flinging process; it gives the player an initial velocity, and sets up a timer to periodicity
      * apply the velocity again. We reduce the Y velocity each time to avoid hoisting the player into the stratosphere.
      *
-     * We stop this repated boosting process if the player dies, or lands on the ground.
+     * We stop this repated boosting process if the player dies, logs out, or lands on the ground.
      *
      * @param player THe player that is respawning.
      * @param boostCount The number of times to boost the player after the initial spawn event.
-     * @param plugin The plugin; used to schedule boosts.
      */
-    private static void startFling(final Player player, final int boostCount, Plugin plugin) {
+    private static void startFling(final Player player, final int boostCount) {
         final Vector boost = Vector.getRandom().add(new Vector(-0.5, 0.0, -0.5)).
                 setY(0).
                 normalize().
@@ -171,28 +95,29 @@ public final class RespawnInfo {
 
         player.setVelocity(boost);
 
-        new BukkitRunnable() {
+        SnowballLogic.getTimingWheel().schedule(new TimingWheel.Timer() {
             private int runCount = 0;
             private double deltaY = 1.0;
 
             @Override
-            public void run() {
+            protected boolean run() {
                 if (runCount >= boostCount) {
-                    cancel();
+                    return false;
                 } else if (runCount > 4 && player.isOnGround()) {
                     // we have to wait a bit after the initial spawn, since
                     // the 'is on ground' flag is not immediately updated.
-                    cancel();
+                    return false;
                 } else if (player.isDead()) {
-                    cancel();
+                    return false;
                 } else {
                     player.setFallDistance(0);
                     player.setFireTicks(0);
                     player.setVelocity(boost.clone().setY(deltaY));
                     deltaY *= 0.75;
                     ++runCount;
+                    return true;
                 }
             }
-        }.runTaskTimer(plugin, 10, 10);
+        }, player, 10, 10);
     }
 }
@@ -18,62 +18,27 @@ public class ShearsSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
 
         final int radius = (int) Math.sqrt(16 * info.power);
         final double distanceSquaredLimit = (radius * (double) radius);
 
         //size is heavily dependent on tool type, power expands so aggressively with
         //doubling that we must control it. Max will still be very huge.
-        final int diameter = (int) (radius * 2);
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(0, snowballLoc.getBlockY() - radius);
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = Math.min(world.getMaxHeight(), beginY + diameter);
-        final int endZ = beginZ + diameter;
-
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-
-        for (int x = beginX; x < endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                for (int y = beginY; y <= endY; ++y) {
-                    locationBuffer.setX(x + 0.5);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z + 0.5);
-                    if (snowballLoc.distanceSquared(locationBuffer) < distanceSquaredLimit) {
-                        final Block beingMined = world.getBlockAt(x, y, z);
-                        if (canMine(beingMined)) {
-                            beingMined.setType(Material.AIR);
-                        }
-                    }
+        //we keep physics on; snow and cactus we clear may hold up other blocks.
+        final VoxelShape shape = VoxelShape.ball(VoxelShape.below(distanceSquaredLimit));
+        submit(info, new TerrainJob(hit.getLocation(), shape, 0, true) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                if (canMine(block)) {
+                    batch.set(block, Material.AIR);
                 }
             }
-        }
+        });
     }
 
     protected boolean canMine(Block target) {
-        Material material = target.getType();
-
-        return target.getType() == Material.LEAVES //the simplest case: clear leaves.
-                || (material == Material.LEAVES_2)
-                || (material == Material.LONG_GRASS)
-                || (material == Material.DOUBLE_PLANT)
-                || (material == Material.RED_ROSE)
-                || (material == Material.YELLOW_FLOWER)
-                || (material == Material.DEAD_BUSH)
-                || (material == Material.DEAD_BUSH)
-                || (material == Material.DEAD_BUSH)
-                || (material == Material.SNOW) 
-                || (material == Material.CACTUS)
-                || (material == Material.CROPS)
-                || (material == Material.MELON)
-                || (material == Material.MELON_STEM)
-                || (material == Material.POTATO)
-                || (material == Material.PUMPKIN) 
-                || (material == Material.PUMPKIN_STEM);
+        return MaterialClass.SHEARABLE.contains(target);
     }
 }
\ No newline at end of file
@@ -19,15 +19,19 @@ public class ShellSnowballLogic extends SnowballLogic {
 
     public ShellSnowballLogic(Material helmetType, InventorySlice inventory) {
         this.helmetType = helmetType;
-        this.inventory = Preconditions.checkNotNull(inventory);
+        this.inventory = Preconditions.checkNotNull(inventory).snapshot();
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
-        ProjectileSource shooter = snowball.getShooter();
-        final Material wallMaterial = inventory.getBottomItem().getType();
-        
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
+        ProjectileSource shooter = hit.getShooter();
+        final Material wallMaterial = inventory.getBottomMaterial();
+
+        if (wallMaterial == null) {
+            return;
+        }
+
         int baseTool = 0; //no effect
         switch (helmetType) {
             case CHAINMAIL_HELMET:
@@ -48,41 +52,18 @@ public class ShellSnowballLogic extends SnowballLogic {
         }
 
         final int radius = baseTool;
-        final int diameter = radius * 2;
         final double distanceSquaredLimit = (radius * (double) radius) + 1.0;
+        final VoxelShape shape = VoxelShape.ballShell(
+                VoxelShape.atMost((distanceSquaredLimit * 0.9) - 9.0),
+                VoxelShape.atMost(distanceSquaredLimit));
 
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
-
-        // while in theory x anx z are unlimited, we want to keep y
-        // within the normal world.
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(1, snowballLoc.getBlockY() - radius);
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = Math.min(world.getMaxHeight(), beginY + diameter);
-        final int endZ = beginZ + diameter;
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-        double distanceSquared = 0;
-
-        // no worries- all this executes before Minecraft can send anything
-        // back to the client, so we can set the blocks in any order. This one
-        // is convenient!
-        for (int x = beginX; x <= endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                for (int y = beginY; y <= endY; ++y) {
-                    locationBuffer.setX(x);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z);
-                    distanceSquared = snowballLoc.distanceSquared(locationBuffer);
-                    if (distanceSquared > ((distanceSquaredLimit * 0.9) - 9.0)
-                            && distanceSquared <= distanceSquaredLimit) {
-                        Block target = world.getBlockAt(x, y, z);
-                        Material material = target.getType();
-                        target.setType(wallMaterial);
-                    }
-                }
+        // the wall may be made of anything in the inventory, sand or water
+        // included, so we keep physics on.
+        submit(info, new TerrainJob(hit.getLocation(), shape, 1, true) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                batch.set(block, wallMaterial);
             }
-        }
+        });
     }
 }
@@ -25,9 +25,9 @@ public class ShulkerBoxSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
-        Location loc = snowball.getLocation().clone();
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
+        Location loc = hit.getLocation().clone();
 
         BlockStateMeta sourcemeta = (BlockStateMeta) item.getItemMeta();
         ShulkerBox sourcebox = (ShulkerBox) sourcemeta.getBlockState();
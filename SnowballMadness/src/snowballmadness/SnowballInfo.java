@@ -1,6 +1,7 @@
 package snowballmadness;
 
 import com.google.common.base.*;
+import java.util.UUID;
 import org.bukkit.*;
 import org.bukkit.entity.Snowball;
 import org.bukkit.entity.Player;
@@ -22,9 +23,14 @@ public final class SnowballInfo {
      */
     public final Location launchLocation;
     /**
-     * This is the player who launched it.
+     * This is the UUID of the player who launched it; we keep this rather than the player, so a snowball in flight does not
+     * hold on to a player who has quit.
      */
-    public final Player shooter;
+    public final UUID shooterId;
+    /**
+     * This is the name of the player who launched it.
+     */
+    public final String shooterName;
     /**
      * This gives the logic your EXP. Used to scale many magic effects
      */
@@ -33,18 +39,17 @@ public final class SnowballInfo {
     public SnowballInfo(SnowballMadness plugin, Location launchLocation, Player shooter) {
         this.plugin = Preconditions.checkNotNull(plugin);
         this.launchLocation = launchLocation.clone();
-        this.shooter = shooter.getPlayer();
+        this.shooterId = shooter.getUniqueId();
+        this.shooterName = shooter.getName();
         this.power = Math.max(1.0, shooter.getLevel());
     }
 
-    private SnowballInfo(double speed, double power, SnowballInfo original) {
-        this(speed, power, original.launchLocation, original.shooter, original);
-    }
-
-    private SnowballInfo(double speed, double power, Location launchLocation, Player shooter, SnowballInfo original) {
-        this.plugin = original.plugin;
-        this.launchLocation = launchLocation.clone();
-        this.shooter = shooter.getPlayer();
-        this.power = Math.max(1.0, shooter.getLevel());
+    /**
+     * This returns the player who launched the snowball.
+     *
+     * @return The player, or null if they are no longer online.
+     */
+    public Player getShooter() {
+        return PlayerSession.getPlayer(shooterId);
     }
 }
@@ -5,22 +5,28 @@ import com.google.common.base.*;
 import org.bukkit.*;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.block.Block;
 import org.bukkit.entity.*;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockIgniteEvent;
 import org.bukkit.event.entity.*;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.inventory.*;
 import org.bukkit.inventory.meta.SkullMeta;
 import org.bukkit.inventory.meta.LeatherArmorMeta;
-import org.bukkit.plugin.Plugin;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.projectiles.*;
 
 /**
  * This class is the base class that hosts the logic that triggers when a snowball hits a target.
  *
- * We keep these in a weak hash map, so it is important that this object (and all subclasses) not hold onto a reference to a
- * Snowball, or that snowball may never be collected.
+ * We keep these in the in-flight registry, keyed on the snowball's entity id. The registry holds the snowball, so this object
+ * (and all subclasses) should still not hold onto a reference to a Snowball; the registry drops it when the snowball is done.
+ *
+ * Logic objects must not change once they are created; one logic may be shared by many snowballs in flight at once. Anything
+ * a logic needs to remember about a particular snowball goes in the FlightState the registry passes to tick() and hit().
  *
  * @author DanJ
  */
@@ -43,8 +49,43 @@ public abstract class SnowballLogic {
      *
      * @param snowball A snowball that gets a chance to do something.
      * @param info Other information about the snowball.
+     * @param state What this logic remembers about this particular snowball.
+     */
+    public void tick(Snowball snowball, SnowballInfo info, FlightState state) {
+    }
+
+    /**
+     * This returns the number of server ticks between calls to tick(); logics that need to react quickly can return 1, and
+     * those that don't need to do much can return a larger number. This is checked again after each tick, so it can change
+     * as the snowball flies.
+     *
+     * @param snowball The snowball being scheduled.
+     * @param info Other information about the snowball.
+     * @return The number of ticks to wait before the next tick().
+     */
+    public int getTickInterval(Snowball snowball, SnowballInfo info) {
+        return DEFAULT_TICK_INTERVAL;
+    }
+
+    /**
+     * This returns true if snowballs with this logic may be merged when they fly together; the merged snowball's FlightState
+     * then has a multiplicity above 1, and the logic must scale its effect by that.
+     *
+     * @return True to allow merging.
+     */
+    public boolean canCoalesce() {
+        return false;
+    }
+
+    /**
+     * This returns true if a snowball with this logic may fly without an entity when no player is near enough to see it; then
+     * only the hit() that takes a HitContext is called, when it lands. Logics that need launch() or tick(), that must hit
+     * entities, or that need the Snowball itself in hit(), return false.
+     *
+     * @return True to allow virtual flight.
      */
-    public void tick(Snowball snowball, SnowballInfo info) {
+    public boolean canFlyVirtually() {
+        return true;
     }
 
     /**
@@ -61,12 +102,26 @@ public abstract class SnowballLogic {
     }
 
     /**
-     * This is called when the snowball hits something.
+     * This is called when the snowball hits something. By default this passes the hit on to the other hit(), which most logics
+     * override instead; a logic that overrides this one must return false from canFlyVirtually().
      *
      * @param snowball The snowball hitting something.
      * @param info Other information about the snowball.
+     * @param state What this logic remembers about this particular snowball.
+     */
+    public void hit(Snowball snowball, SnowballInfo info, FlightState state) {
+        hit(new HitContext(snowball), info, state);
+    }
+
+    /**
+     * This is called when the snowball hits something, or when a virtual snowball lands; it gets only where and how the
+     * snowball hit, not the snowball itself.
+     *
+     * @param hit Where and how the snowball hit.
+     * @param info Other information about the snowball.
+     * @param state What this logic remembers about this particular snowball.
      */
-    public void hit(Snowball snowball, SnowballInfo info) {
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
     }
 
     @Override
@@ -79,722 +134,700 @@ public abstract class SnowballLogic {
 
     /**
      * This method creates a new logic, but does not start it. It chooses the logic based on 'hint', which is the stack
-     * immediately above the snowball being thrown.
+     * immediately above the snowball being thrown. Logics with no state of their own are shared, so this may return the same
+     * object for many snowballs.
      *
      * @param slice The inventory slice above the snowball in the inventory.
      * @return The new logic, not yet started or attached to a snowball, or null if the snowball will be illogical.
      */
     public static SnowballLogic createLogic(InventorySlice slice) {
-        ItemStack hint = slice.getBottomItem();
+        Material material = slice.getBottomMaterial();
 
-        if (hint == null) {
+        if (material == null) {
             return null;
         }
 
-        if (hint.getType().isBlock()) {
-            if (hint.getType() == Material.DRAGON_EGG) {
-                return new DeathVortexSnowballLogic();
-            } else if (hint.getType() == Material.RED_ROSE) {
-                return new FireworkSnowballLogic(hint);
-            } else if (hint.getType() == Material.YELLOW_FLOWER) {
+        // only factories that look at the hint stack get one; the rest need
+        // nothing but the material.
+        LogicFactory factory = getLogicFactories().get(material);
+
+        if (factory instanceof SharedLogicFactory) {
+            return ((SharedLogicFactory) factory).logic;
+        } else if (factory != null) {
+            return factory.create(slice.getBottomItem(), slice);
+        } else if (material.isBlock()) {
+            return BlockPlacementSnowballLogic.fromMaterial(material, slice.getBottomData());
+            //everything else is just cloned one at a time, because magic. Up to and including beacons.
+        } else {
+            return null;
+        }
+    }
+
+    private static EnumMap<Material, LogicFactory> logicFactories;
+
+    /**
+     * This method builds the table createLogic() uses; we call this from onEnable(), but createLogic() will build it if it has
+     * not been built yet.
+     */
+    public static void registerLogicFactories() {
+        logicFactories = buildLogicFactories();
+    }
+
+    private static EnumMap<Material, LogicFactory> getLogicFactories() {
+        if (logicFactories == null) {
+            registerLogicFactories();
+        }
+
+        return logicFactories;
+    }
+
+    /**
+     * This method adds a factory to the table for each material given.
+     *
+     * @param factories The table being built.
+     * @param factory The factory to use.
+     * @param materials The hint materials that select this factory.
+     */
+    private static void register(Map<Material, LogicFactory> factories, LogicFactory factory, Material... materials) {
+        for (Material material : materials) {
+            factories.put(material, factory);
+        }
+    }
+
+    /**
+     * This method adds a logic that has no state of its own to the table; every snowball thrown with one of these materials
+     * shares the same logic object.
+     *
+     * @param factories The table being built.
+     * @param logic The logic to share.
+     * @param materials The hint materials that select this logic.
+     */
+    private static void registerShared(Map<Material, LogicFactory> factories, SnowballLogic logic, Material... materials) {
+        register(factories, new SharedLogicFactory(logic), materials);
+    }
+
+    /**
+     * This factory always returns the same logic; createLogic() takes the logic straight from it, without building the hint
+     * stack.
+     */
+    private static final class SharedLogicFactory implements LogicFactory {
+
+        public final SnowballLogic logic;
+
+        public SharedLogicFactory(SnowballLogic logic) {
+            this.logic = logic;
+        }
+
+        @Override
+        public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+            return logic;
+        }
+    }
+
+    /**
+     * This method adds a logic that depends only on the hint material; we make one for each material, and share it.
+     *
+     * @param factories The table being built.
+     * @param creator The factory that creates the logic; this is called once per material, with a hint of just that material.
+     * @param materials The hint materials to register.
+     */
+    private static void registerSharedPerMaterial(Map<Material, LogicFactory> factories, LogicFactory creator, Material... materials) {
+        for (Material material : materials) {
+            registerShared(factories, creator.create(new ItemStack(material), null), material);
+        }
+    }
+
+    private static EnumMap<Material, LogicFactory> buildLogicFactories() {
+        EnumMap<Material, LogicFactory> factories = new EnumMap<Material, LogicFactory>(Material.class);
+
+        //these logics depend on the hint stack itself, so each snowball gets its own.
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
                 return new FireworkSnowballLogic(hint);
-            } else if (hint.getType() == Material.TORCH) {
-                return new TorchPlaceSnowballLogic();
-            } else if (hint.getType() == Material.SAPLING) {
+            }
+        }, Material.RED_ROSE, Material.YELLOW_FLOWER);
+
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
                 return new ArboristSnowballLogic(hint);
-            } else if (hint.getType() == Material.REDSTONE_TORCH_ON) {
-                return BlockEmbedSnowballLogic.fromMaterial(hint.getType());
-            } else if (hint.getType() == Material.LADDER) {
-                return BlockEmbedSnowballLogic.fromMaterial(hint.getType());
-            } else if (hint.getType() == Material.TNT) {
+            }
+        }, Material.SAPLING);
+
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
                 return new TNTSnowballLogic(hint.getAmount());
-            } else if (hint.getType() == Material.STONE) {
-                return new WallPaintingSnowballLogic(Material.STONE, hint.getDurability(), hint.getAmount());
-            } else if (hint.getType() == Material.CONCRETE) {
-                return new WallPaintingSnowballLogic(Material.CONCRETE, hint.getDurability(), hint.getAmount());
-            } else if (hint.getType() == Material.QUARTZ_BLOCK) {
-                return new WallPaintingSnowballLogic(Material.QUARTZ_BLOCK, hint.getDurability(), hint.getAmount());
-            } else if (hint.getType() == Material.HARD_CLAY) {
-                return new WallPaintingSnowballLogic(Material.HARD_CLAY, hint.getDurability(), hint.getAmount());
-            } else if (hint.getType() == Material.STAINED_CLAY) {
-                return new WallPaintingSnowballLogic(Material.STAINED_CLAY, hint.getDurability(), hint.getAmount());
-            } else if (hint.getType() == Material.VINE) {
+            }
+        }, Material.TNT);
+
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return new WallPaintingSnowballLogic(hint.getType(), hint.getDurability(), hint.getAmount());
+            }
+        }, Material.STONE, Material.CONCRETE, Material.QUARTZ_BLOCK, Material.HARD_CLAY, Material.STAINED_CLAY);
+
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return new SphereSnowballLogic(Material.GLASS, Material.AIR, hint.getAmount());
+            }
+        }, Material.GLASS_BOTTLE);
+
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return BlockPlacementSnowballLogic.fromMaterial(Material.WATER, hint.getDurability());
+                //return new RefillSnowballLogic(Material.WATER_BUCKET, 32);
+            }
+        }, Material.WATER_BUCKET);
+
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return BlockPlacementSnowballLogic.fromMaterial(Material.LAVA, hint.getDurability());
+                //return new RefillSnowballLogic(Material.LAVA_BUCKET, 32);
+            }
+        }, Material.LAVA_BUCKET);
+
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return new TippedArrowSnowballLogic(hint);
+            }
+        }, Material.TIPPED_ARROW, Material.SPECTRAL_ARROW);
+
+        /*register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return new ShellSnowballLogic(hint.getType(), slice.skip(1));
+            }
+        }, Material.LEATHER_HELMET, Material.IRON_HELMET, Material.GOLD_HELMET, Material.DIAMOND_HELMET, Material.CHAINMAIL_HELMET);
+
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return new CylinderSnowballLogic(hint.getType(), slice.skip(1));
+            }
+        }, Material.LEATHER_CHESTPLATE, Material.IRON_CHESTPLATE, Material.GOLD_CHESTPLATE, Material.DIAMOND_CHESTPLATE, Material.CHAINMAIL_CHESTPLATE);*/
+
+        register(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                String targetName = hint.getItemMeta().getDisplayName();
+                return new MultiplierSnowballLogic(hint.getAmount(), targetName, slice.skip(1));
+            }
+        }, Material.SNOW_BALL);
+
+        //these logics do not depend on the hint stack beyond its material,
+        //so one object serves every snowball.
+        registerShared(factories, new TorchPlaceSnowballLogic(), Material.TORCH);
+        registerShared(factories, new FeatherSnowballLogic(), Material.FEATHER);
+        registerShared(factories, new JetpackSnowballLogic(), Material.FIREWORK);
+        registerShared(factories, new WatchSnowballLogic(), Material.WATCH);
+        registerShared(factories, new ArrowSnowballLogic(), Material.ARROW);
+        registerShared(factories, new DeathVortexSnowballLogic(), Material.DRAGON_EGG);
+        registerShared(factories, new RefillSnowballLogic(Material.BUCKET, 64), Material.BUCKET);
+        registerShared(factories, new SphereSnowballLogic(Material.FIRE, Material.FIRE, 16), Material.FLINT_AND_STEEL);
+        registerShared(factories, new ComeAlongSnowballLogic(Material.FISHING_ROD), Material.FISHING_ROD);
+        registerShared(factories, new MagneticSnowballLogic(), Material.IRON_INGOT);
+        registerShared(factories, new ShearsSnowballLogic(), Material.SHEARS);
+        registerShared(factories, new ItemDropSnowballLogic(
+                Material.BOOK,
+                Material.LEATHER_HELMET,
+                Material.LEATHER_CHESTPLATE,
+                Material.LEATHER_LEGGINGS,
+                Material.LEATHER_BOOTS,
+                Material.SADDLE), Material.LEATHER);
+
+        registerSharedPerMaterial(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
                 return BlockEmbedSnowballLogic.fromMaterial(hint.getType());
                 //TNT, Ladders and Vines are special blocks
-            } else {
-                return new BlockPlacementSnowballLogic(hint.getType(), hint.getDurability());
-                //everything else is just cloned one at a time, because magic. Up to and including beacons.
             }
-        } else {
-            switch (hint.getType()) {
-                case GLASS_BOTTLE:
-                    return new SphereSnowballLogic(Material.GLASS, Material.AIR, hint.getAmount());
-
-                case LEATHER:
-                    return new ItemDropSnowballLogic(
-                            Material.BOOK,
-                            Material.LEATHER_HELMET,
-                            Material.LEATHER_CHESTPLATE,
-                            Material.LEATHER_LEGGINGS,
-                            Material.LEATHER_BOOTS,
-                            Material.SADDLE);
-
-                case WATER_BUCKET:
-                    return new BlockPlacementSnowballLogic(Material.WATER, hint.getDurability());
-                    //return new RefillSnowballLogic(Material.WATER_BUCKET, 32);
-
-                case LAVA_BUCKET:
-                    return new BlockPlacementSnowballLogic(Material.LAVA, hint.getDurability());
-                    //return new RefillSnowballLogic(Material.LAVA_BUCKET, 32);
-
-                case WOOD_SPADE:
-                    return BlockEmbedSnowballLogic.fromMaterial(hint.getType());
-
-                case BUCKET:
-                    return new RefillSnowballLogic(Material.BUCKET, 64);
-
-                case FEATHER:
-                    return new FeatherSnowballLogic();
-
-                case FLINT_AND_STEEL:
-                    return new SphereSnowballLogic(Material.FIRE, Material.FIRE, 16);
-
-                case FIREWORK:
-                    return new JetpackSnowballLogic();
-
-                case FISHING_ROD:
-                    return new ComeAlongSnowballLogic(Material.FISHING_ROD);
-
-                case WATCH:
-                    return new WatchSnowballLogic();
-
-                case IRON_INGOT:
-                    return new MagneticSnowballLogic();
-
-                case ARROW:
-                    return new ArrowSnowballLogic();
-
-                case TIPPED_ARROW:
-                case SPECTRAL_ARROW:
-                    return new TippedArrowSnowballLogic(hint);
-
-                case STONE_PICKAXE:
-                case IRON_PICKAXE:
-                case GOLD_PICKAXE:
-                case DIAMOND_PICKAXE:
-                    return new PickaxeSnowballLogic(hint.getType());
-
-                case STONE_AXE:
-                case IRON_AXE:
-                case GOLD_AXE:
-                case DIAMOND_AXE:
-                    return new AxeSnowballLogic(hint.getType());
-
-                case STONE_SPADE:
-                case IRON_SPADE:
-                case GOLD_SPADE:
-                case DIAMOND_SPADE:
-                    return new SpadeSnowballLogic(hint.getType());
-
-                case STONE_HOE:
-                case IRON_HOE:
-                case GOLD_HOE:
-                case DIAMOND_HOE:
-                    return new HoeSnowballLogic(hint.getType());
-
-                case SHEARS:
-                    return new ShearsSnowballLogic();
-
-                /*case LEATHER_HELMET:
-                case IRON_HELMET:
-                case GOLD_HELMET:
-                case DIAMOND_HELMET:
-                case CHAINMAIL_HELMET:
-                    return new ShellSnowballLogic(hint.getType(), slice.skip(1));
-
-                case LEATHER_CHESTPLATE:
-                case IRON_CHESTPLATE:
-                case GOLD_CHESTPLATE:
-                case DIAMOND_CHESTPLATE:
-                case CHAINMAIL_CHESTPLATE:
-                    return new CylinderSnowballLogic(hint.getType(), slice.skip(1));*/
-
-                case SNOW_BALL:
-                    String targetName = hint.getItemMeta().getDisplayName();
-                    return new MultiplierSnowballLogic(hint.getAmount(), targetName, slice.skip(1));
+        }, Material.REDSTONE_TORCH_ON, Material.LADDER, Material.VINE, Material.WOOD_SPADE);
+
+        registerSharedPerMaterial(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return new PickaxeSnowballLogic(hint.getType());
+            }
+        }, Material.STONE_PICKAXE, Material.IRON_PICKAXE, Material.GOLD_PICKAXE, Material.DIAMOND_PICKAXE);
+
+        registerSharedPerMaterial(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return new AxeSnowballLogic(hint.getType());
+            }
+        }, Material.STONE_AXE, Material.IRON_AXE, Material.GOLD_AXE, Material.DIAMOND_AXE);
+
+        registerSharedPerMaterial(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return new SpadeSnowballLogic(hint.getType());
+            }
+        }, Material.STONE_SPADE, Material.IRON_SPADE, Material.GOLD_SPADE, Material.DIAMOND_SPADE);
+
+        registerSharedPerMaterial(factories, new LogicFactory() {
+            @Override
+            public SnowballLogic create(ItemStack hint, InventorySlice slice) {
+                return new HoeSnowballLogic(hint.getType());
+            }
+        }, Material.STONE_HOE, Material.IRON_HOE, Material.GOLD_HOE, Material.DIAMOND_HOE);
+
 //________________________________________________________________________________________________________________________________
 //Food Animals Spawn As Babies
+        registerShared(factories, new SpawnSnowballLogic<Chicken>(Chicken.class) {
+            @Override
+            protected void equipEntity(Chicken spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                spawned.setBaby();
+            }
+        }, Material.EGG);
 
-                case EGG:
-                    return new SpawnSnowballLogic<Chicken>(Chicken.class) {
-                        @Override
-                        protected void equipEntity(final Chicken spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    spawned.setBaby();
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case PORK:
-                    return new SpawnSnowballLogic<Pig>(Pig.class) {
-                        @Override
-                        protected void equipEntity(final Pig spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    spawned.setBaby();
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case RABBIT_FOOT:
-                case RABBIT_HIDE:
-                    return new SpawnSnowballLogic<Rabbit>(Rabbit.class) {
-                        @Override
-                        protected void equipEntity(final Rabbit spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    spawned.setBaby();
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case MILK_BUCKET:
-                    return new SpawnSnowballLogic<Cow>(Cow.class) {
-                        @Override
-                        protected void equipEntity(final Cow spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    spawned.setBaby();
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case MUSHROOM_SOUP:
-                    return new SpawnSnowballLogic<MushroomCow>(MushroomCow.class) {
-                        @Override
-                        protected void equipEntity(final MushroomCow spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    spawned.setBaby();
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
+        registerShared(factories, new SpawnSnowballLogic<Pig>(Pig.class) {
+            @Override
+            protected void equipEntity(Pig spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                spawned.setBaby();
+            }
+        }, Material.PORK);
+
+        registerShared(factories, new SpawnSnowballLogic<Rabbit>(Rabbit.class) {
+            @Override
+            protected void equipEntity(Rabbit spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                spawned.setBaby();
+            }
+        }, Material.RABBIT_FOOT, Material.RABBIT_HIDE);
+
+        registerShared(factories, new SpawnSnowballLogic<Cow>(Cow.class) {
+            @Override
+            protected void equipEntity(Cow spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                spawned.setBaby();
+            }
+        }, Material.MILK_BUCKET);
+
+        registerShared(factories, new SpawnSnowballLogic<MushroomCow>(MushroomCow.class) {
+            @Override
+            protected void equipEntity(MushroomCow spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                spawned.setBaby();
+            }
+        }, Material.MUSHROOM_SOUP);
 
 //________________________________________________________________________________________________________________________________
 //Tame Interesting Animals
-                case SADDLE:
-                    return new SpawnSnowballLogic<Horse>(Horse.class) {
-                        @Override
-                        protected void initializeEntity(Horse spawned, SnowballInfo info) {
-                            super.initializeEntity(spawned, info);
-                        }
-
-                        @Override
-                        protected void equipEntity(final Horse spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        spawned.setCustomName(info.shooter.getName() + "'s Horse");
-                                        spawned.setCustomNameVisible(false);
-                                        spawned.setRemoveWhenFarAway(false);
-                                        spawned.setMaxDomestication(1);
-                                        spawned.setJumpStrength(2.0); //default 0.7, max 2.0
-                                        AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
-                                        speedAttribute.setBaseValue(info.power);
-                                        //spawned.setTamed(true);
-                                        //spawned.setOwner(info.shooter);
-                                        spawned.setAdult();
-                                        //spawned.setBaby();
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case STRING:
-                    return new SpawnSnowballLogic<Ocelot>(Ocelot.class) {
-                        @Override
-                        protected void initializeEntity(Ocelot spawned, SnowballInfo info) {
-                            super.initializeEntity(spawned, info);
-                        }
-
-                        @Override
-                        protected void equipEntity(final Ocelot spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        spawned.setCustomName(info.shooter.getName() + "'s Cat");
-                                        spawned.setCustomNameVisible(false);
-                                        spawned.setRemoveWhenFarAway(false);
-                                        int kitty = (int) Math.floor(Math.random() * 3.0);
-                                        if (kitty == 0) {
-                                            spawned.setCatType(Ocelot.Type.BLACK_CAT);
-                                        } else if (kitty == 1) {
-                                            spawned.setCatType(Ocelot.Type.RED_CAT);
-                                        } else if (kitty == 2) {
-                                            spawned.setCatType(Ocelot.Type.SIAMESE_CAT);
-                                        } else {
-                                            spawned.setCatType(Ocelot.Type.WILD_OCELOT);
-                                        }
-                                        spawned.setBaby();
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case LEASH:
-                    return new SpawnSnowballLogic<Wolf>(Wolf.class) {
-                        @Override
-                        protected void initializeEntity(Wolf spawned, SnowballInfo info) {
-                            super.initializeEntity(spawned, info);
-                        }
-
-                        @Override
-                        protected void equipEntity(final Wolf spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        spawned.setCustomName(info.shooter.getName() + "'s Dog");
-                                        spawned.setCustomNameVisible(false);
-                                        spawned.setRemoveWhenFarAway(false);
-                                        spawned.setTamed(true);
-                                        spawned.setOwner(info.shooter);
-                                        spawned.setBaby();
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case CARROT_ITEM:
-                    return new SpawnSnowballLogic<Snowman>(Snowman.class) {
-                        @Override
-                        protected void initializeEntity(Snowman spawned, SnowballInfo info) {
-                            super.initializeEntity(spawned, info);
-                            spawned.addPotionEffect(new PotionEffect(PotionEffectType.FIRE_RESISTANCE, Integer.MAX_VALUE, Integer.MAX_VALUE), true);
-                        }
-
-                        @Override
-                        protected void equipEntity(final Snowman spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    spawned.setCustomName(info.shooter.getName() + "'s Snow Bank");
-                                    spawned.setCustomNameVisible(false);
-                                    //spawned.setRemoveWhenFarAway(false);
-                                    //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
-                                    //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
-                                    //AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
-                                    //speedAttribute.setBaseValue(info.power / 4.0f);
-                                } //the magic snowman is an all-biome source that doesn't wander. Still works as a turret.
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
+        registerShared(factories, new SpawnSnowballLogic<Horse>(Horse.class) {
+            @Override
+            protected void initializeEntity(Horse spawned, SnowballInfo info) {
+                super.initializeEntity(spawned, info);
+            }
+
+            @Override
+            protected void equipEntity(Horse spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    spawned.setCustomName(info.shooterName + "'s Horse");
+                    spawned.setCustomNameVisible(false);
+                    spawned.setRemoveWhenFarAway(false);
+                    spawned.setMaxDomestication(1);
+                    spawned.setJumpStrength(2.0); //default 0.7, max 2.0
+                    AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
+                    speedAttribute.setBaseValue(info.power);
+                    //spawned.setTamed(true);
+                    //spawned.setOwner(info.getShooter());
+                    spawned.setAdult();
+                    //spawned.setBaby();
+                }
+            }
+        }, Material.SADDLE);
+
+        registerShared(factories, new SpawnSnowballLogic<Ocelot>(Ocelot.class) {
+            @Override
+            protected void initializeEntity(Ocelot spawned, SnowballInfo info) {
+                super.initializeEntity(spawned, info);
+            }
+
+            @Override
+            protected void equipEntity(Ocelot spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    spawned.setCustomName(info.shooterName + "'s Cat");
+                    spawned.setCustomNameVisible(false);
+                    spawned.setRemoveWhenFarAway(false);
+                    int kitty = (int) Math.floor(Math.random() * 3.0);
+                    if (kitty == 0) {
+                        spawned.setCatType(Ocelot.Type.BLACK_CAT);
+                    } else if (kitty == 1) {
+                        spawned.setCatType(Ocelot.Type.RED_CAT);
+                    } else if (kitty == 2) {
+                        spawned.setCatType(Ocelot.Type.SIAMESE_CAT);
+                    } else {
+                        spawned.setCatType(Ocelot.Type.WILD_OCELOT);
+                    }
+                    spawned.setBaby();
+                }
+            }
+        }, Material.STRING);
+
+        registerShared(factories, new SpawnSnowballLogic<Wolf>(Wolf.class) {
+            @Override
+            protected void initializeEntity(Wolf spawned, SnowballInfo info) {
+                super.initializeEntity(spawned, info);
+            }
+
+            @Override
+            protected void equipEntity(Wolf spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    spawned.setCustomName(info.shooterName + "'s Dog");
+                    spawned.setCustomNameVisible(false);
+                    spawned.setRemoveWhenFarAway(false);
+                    spawned.setTamed(true);
+                    spawned.setOwner(info.getShooter());
+                    spawned.setBaby();
+                }
+            }
+        }, Material.LEASH);
+
+        registerShared(factories, new SpawnSnowballLogic<Snowman>(Snowman.class) {
+            @Override
+            protected void initializeEntity(Snowman spawned, SnowballInfo info) {
+                super.initializeEntity(spawned, info);
+                spawned.addPotionEffect(new PotionEffect(PotionEffectType.FIRE_RESISTANCE, Integer.MAX_VALUE, Integer.MAX_VALUE), true);
+            }
+
+            @Override
+            protected void equipEntity(Snowman spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                spawned.setCustomName(info.shooterName + "'s Snow Bank");
+                spawned.setCustomNameVisible(false);
+                //spawned.setRemoveWhenFarAway(false);
+                //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
+                //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
+                //AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
+                //speedAttribute.setBaseValue(info.power / 4.0f);
+                //the magic snowman is an all-biome source that doesn't wander. Still works as a turret.
+            }
+        }, Material.CARROT_ITEM);
 
 //________________________________________________________________________________________________________________________________
 //Hostile Mobs But Still Relatively Normal
-                case PRISMARINE_SHARD:
-                case PRISMARINE_CRYSTALS:
-                    return new SpawnSnowballLogic<Guardian>(Guardian.class) {
-                    };
-
-                case POTION:
-                    return new SpawnSnowballLogic<Witch>(Witch.class) {
-                    };
-
-                case GOLD_NUGGET:
-                    return new SpawnSnowballLogic<PigZombie>(PigZombie.class) {
-                    };
-                case GHAST_TEAR:
-                    return new SpawnSnowballLogic<Ghast>(Ghast.class) {
-                    };
-
-                case ENDER_PEARL:
-                    return new SpawnSnowballLogic<Enderman>(Enderman.class) {
-                    };
-
-                case SPIDER_EYE:
-                    return new SpawnSnowballLogic<Spider>(Spider.class) {
-                    };
+        registerShared(factories, SpawnSnowballLogic.fromEntityClass(Guardian.class), Material.PRISMARINE_SHARD, Material.PRISMARINE_CRYSTALS);
+
+        registerShared(factories, SpawnSnowballLogic.fromEntityClass(Witch.class), Material.POTION);
+
+        registerShared(factories, SpawnSnowballLogic.fromEntityClass(PigZombie.class), Material.GOLD_NUGGET);
+
+        registerShared(factories, SpawnSnowballLogic.fromEntityClass(Ghast.class), Material.GHAST_TEAR);
+
+        registerShared(factories, SpawnSnowballLogic.fromEntityClass(Enderman.class), Material.ENDER_PEARL);
+
+        registerShared(factories, SpawnSnowballLogic.fromEntityClass(Spider.class), Material.SPIDER_EYE);
 
 //________________________________________________________________________________________________________________________________
 //Horrifyingly Hostile Mobs
-                case SLIME_BALL:
-                    return new SpawnSnowballLogic<Slime>(Slime.class) {
-                        @Override
-                        protected void initializeEntity(Slime spawned, final SnowballInfo info) {
-                            super.initializeEntity(spawned, info);
-                            spawned.setSize((int) Math.floor(info.power));
-                        }
-
-                        @Override
-                        protected void equipEntity(final Slime spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        spawned.setCustomName(info.shooter.getName() + "'s Jello");
-                                        spawned.setCustomNameVisible(false);
-                                        //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
-                                        //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
-                                        //spawned.setRemoveWhenFarAway(false);
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case MAGMA_CREAM:
-                    return new SpawnSnowballLogic<MagmaCube>(MagmaCube.class) {
-                        @Override
-                        protected void initializeEntity(MagmaCube spawned, final SnowballInfo info) {
-                            super.initializeEntity(spawned, info);
-                            spawned.setSize((int) Math.floor(info.power));
-                        }
-
-                        @Override
-                        protected void equipEntity(final MagmaCube spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        spawned.setCustomName(info.shooter.getName() + "'s Jello");
-                                        spawned.setCustomNameVisible(false);
-                                        //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
-                                        //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
-                                        //spawned.setRemoveWhenFarAway(false);
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case FERMENTED_SPIDER_EYE:
-                    return new SpawnSnowballLogic<CaveSpider>(CaveSpider.class) {
-                        @Override
-                        protected void initializeEntity(CaveSpider spawned, final SnowballInfo info) {
-                            super.initializeEntity(spawned, info);
-                        }
-
-                        @Override
-                        protected void equipEntity(final CaveSpider spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        spawned.setCustomName(info.shooter.getName() + "'s Fault");
-                                        spawned.setCustomNameVisible(false);
-                                        //spawned.setRemoveWhenFarAway(false);
-                                        //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
-                                        //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
-                                        //AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
-                                        //speedAttribute.setBaseValue(info.power / 4.0f);
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case BLAZE_POWDER:
-                case BLAZE_ROD:
-                    return new SpawnSnowballLogic<Blaze>(Blaze.class) {
-                        @Override
-                        protected void initializeEntity(Blaze spawned, final SnowballInfo info) {
-                            super.initializeEntity(spawned, info);
-                        }
-
-                        @Override
-                        protected void equipEntity(final Blaze spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        spawned.setCustomName(info.shooter.getName() + "'s Air Force");
-                                        spawned.setCustomNameVisible(false);
-                                        //spawned.setRemoveWhenFarAway(false);
-                                        //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
-                                        //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
-                                        //AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
-                                        //speedAttribute.setBaseValue(info.power);
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                case POISONOUS_POTATO:
-                    return new SpawnSnowballLogic<Giant>(Giant.class) {
-                        @Override
-                        protected void equipEntity(final Giant spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        spawned.setCustomName(info.shooter.getName() + "'s Tank");
-                                        spawned.setCustomNameVisible(false);
-                                        //spawned.setRemoveWhenFarAway(false);
-                                        //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
-                                        //followAttribute.setBaseValue((info.power * info.power) + 40f); //default 16 + caster level
-                                        //AttributeInstance damageAttribute = spawned.getAttribute(Attribute.GENERIC_ATTACK_DAMAGE);
-                                        //damageAttribute.setBaseValue(info.power);
-                                        //AttributeInstance healthAttribute = spawned.getAttribute(Attribute.GENERIC_MAX_HEALTH);
-                                        //healthAttribute.setBaseValue(info.power * info.power); //HP in half-hearts
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
+        registerShared(factories, new SpawnSnowballLogic<Slime>(Slime.class) {
+            @Override
+            protected void initializeEntity(Slime spawned, final SnowballInfo info) {
+                super.initializeEntity(spawned, info);
+                spawned.setSize((int) Math.floor(info.power));
+            }
+
+            @Override
+            protected void equipEntity(Slime spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    spawned.setCustomName(info.shooterName + "'s Jello");
+                    spawned.setCustomNameVisible(false);
+                    //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
+                    //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
+                    //spawned.setRemoveWhenFarAway(false);
+                }
+            }
+        }, Material.SLIME_BALL);
+
+        registerShared(factories, new SpawnSnowballLogic<MagmaCube>(MagmaCube.class) {
+            @Override
+            protected void initializeEntity(MagmaCube spawned, final SnowballInfo info) {
+                super.initializeEntity(spawned, info);
+                spawned.setSize((int) Math.floor(info.power));
+            }
+
+            @Override
+            protected void equipEntity(MagmaCube spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    spawned.setCustomName(info.shooterName + "'s Jello");
+                    spawned.setCustomNameVisible(false);
+                    //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
+                    //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
+                    //spawned.setRemoveWhenFarAway(false);
+                }
+            }
+        }, Material.MAGMA_CREAM);
+
+        registerShared(factories, new SpawnSnowballLogic<CaveSpider>(CaveSpider.class) {
+            @Override
+            protected void initializeEntity(CaveSpider spawned, final SnowballInfo info) {
+                super.initializeEntity(spawned, info);
+            }
+
+            @Override
+            protected void equipEntity(CaveSpider spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    spawned.setCustomName(info.shooterName + "'s Fault");
+                    spawned.setCustomNameVisible(false);
+                    //spawned.setRemoveWhenFarAway(false);
+                    //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
+                    //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
+                    //AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
+                    //speedAttribute.setBaseValue(info.power / 4.0f);
+                }
+            }
+        }, Material.FERMENTED_SPIDER_EYE);
+
+        registerShared(factories, new SpawnSnowballLogic<Blaze>(Blaze.class) {
+            @Override
+            protected void initializeEntity(Blaze spawned, final SnowballInfo info) {
+                super.initializeEntity(spawned, info);
+            }
+
+            @Override
+            protected void equipEntity(Blaze spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    spawned.setCustomName(info.shooterName + "'s Air Force");
+                    spawned.setCustomNameVisible(false);
+                    //spawned.setRemoveWhenFarAway(false);
+                    //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
+                    //followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
+                    //AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
+                    //speedAttribute.setBaseValue(info.power);
+                }
+            }
+        }, Material.BLAZE_POWDER, Material.BLAZE_ROD);
+
+        registerShared(factories, new SpawnSnowballLogic<Giant>(Giant.class) {
+            @Override
+            protected void equipEntity(Giant spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    spawned.setCustomName(info.shooterName + "'s Tank");
+                    spawned.setCustomNameVisible(false);
+                    //spawned.setRemoveWhenFarAway(false);
+                    //AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
+                    //followAttribute.setBaseValue((info.power * info.power) + 40f); //default 16 + caster level
+                    //AttributeInstance damageAttribute = spawned.getAttribute(Attribute.GENERIC_ATTACK_DAMAGE);
+                    //damageAttribute.setBaseValue(info.power);
+                    //AttributeInstance healthAttribute = spawned.getAttribute(Attribute.GENERIC_MAX_HEALTH);
+                    //healthAttribute.setBaseValue(info.power * info.power); //HP in half-hearts
+                }
+            }
+        }, Material.POISONOUS_POTATO);
 
 //________________________________________________________________________________________________________________________________
 //Ninjas and Armies In Uniforms
-                case BONE:
-                    return new SpawnSnowballLogic<Skeleton>(Skeleton.class) {
-                        @Override
-                        protected void equipEntity(final Skeleton spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        ItemStack gear;
-
-                                        /*LeatherArmorMeta dye;
-                                        Color belt = Color.WHITE;
-                                        if (info.power < 2) {
-                                            belt = Color.WHITE; //noob
-                                        } else if (info.power < 3) {
-                                            belt = Color.YELLOW; //4
-                                        } else if (info.power < 4) {
-                                            belt = Color.ORANGE; //9
-                                        } else if (info.power < 5) {
-                                            belt = Color.LIME; //16
-                                        } else if (info.power < 6) {
-                                            belt = Color.BLUE; //25
-                                        } else if (info.power < 7) {
-                                            belt = Color.PURPLE; //36
-                                        } else if (info.power < 8) {
-                                            belt = Color.GRAY; //49
-                                        } else if (info.power < 9) {
-                                            belt = Color.RED; //64
-                                        } else if (info.power < 10) {
-                                            belt = Color.BLACK; //81
-                                        }*/
-
-                                        gear = new ItemStack(Material.SKULL_ITEM, 1, (byte) 3);
-                                        SkullMeta meta = (SkullMeta) gear.getItemMeta();
-                                        meta.setOwner(info.shooter.getName());
-                                        gear.setItemMeta(meta);
-                                        // OH GOD IT HAS MY FAAAAAAACE!
-                                        spawned.getEquipment().setHelmet(gear);
-                                        spawned.getEquipment().setHelmetDropChance(0.0001f);
-
-                                        /*gear = new ItemStack(Material.LEATHER_CHESTPLATE, 1);
-                                        dye = (LeatherArmorMeta) gear.getItemMeta();
-                                        dye.setColor(belt);
-                                        gear.setItemMeta(dye);
-                                        spawned.getEquipment().setChestplate(gear);
-                                        spawned.getEquipment().setChestplateDropChance(0.0f);
-
-                                        gear = new ItemStack(Material.LEATHER_LEGGINGS, 1);
-                                        dye = (LeatherArmorMeta) gear.getItemMeta();
-                                        dye.setColor(belt);
-                                        gear.setItemMeta(dye);
-                                        spawned.getEquipment().setLeggings(gear);
-                                        spawned.getEquipment().setLeggingsDropChance(0.0f);
-
-                                        gear = new ItemStack(Material.LEATHER_BOOTS, 1);
-                                        dye = (LeatherArmorMeta) gear.getItemMeta();
-                                        dye.setColor(belt);
-                                        gear.setItemMeta(dye);
-                                        spawned.getEquipment().setBoots(gear);
-                                        spawned.getEquipment().setBootsDropChance(0.0f);*/
-
-                                        gear = info.shooter.getInventory().getItem(0);
-                                        if (gear != null) {
-                                            gear = info.shooter.getInventory().getItem(0).clone();
-                                            //we are altering the itemStack, must clone or we alter it right in our inventory!
-                                            //gear.setAmount(1); nerfs item stack duplication
-                                            spawned.getEquipment().setItemInMainHand(gear);
-                                            spawned.getEquipment().setItemInMainHandDropChance(1.0f);
-                                            //max grindage for minion stuffmaking
-                                        }
-
-                                        spawned.setCustomName(info.shooter.getName() + "'s Ninja");
-                                        spawned.setCustomNameVisible(false);
-                                        /*AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
-                                        followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
-                                        AttributeInstance healthAttribute = spawned.getAttribute(Attribute.GENERIC_MAX_HEALTH);
-                                        healthAttribute.setBaseValue(20 + info.power); //HP down
-                                        AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
-                                        speedAttribute.setBaseValue(info.power / 5.0f); //speed == caster level*/
-                                        spawned.setRemoveWhenFarAway(false);
-                                        spawned.setHealth(spawned.getMaxHealth());
-                                    }
-                                }
-                            }
-                                    .runTaskLater(info.plugin,
-                                            1L);
-                        }
-                    };
-
-                case ROTTEN_FLESH:
-                    return new SpawnSnowballLogic<Zombie>(Zombie.class) {
-                        @Override
-                        protected void equipEntity(final Zombie spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        ItemStack gear;
-                                        /*LeatherArmorMeta dye;
-                                        Color belt = Color.WHITE;
-                                        if (info.power < 2) {
-                                            belt = Color.WHITE; //noob
-                                        } else if (info.power < 3) {
-                                            belt = Color.YELLOW; //4
-                                        } else if (info.power < 4) {
-                                            belt = Color.ORANGE; //9
-                                        } else if (info.power < 5) {
-                                            belt = Color.LIME; //16
-                                        } else if (info.power < 6) {
-                                            belt = Color.BLUE; //25
-                                        } else if (info.power < 7) {
-                                            belt = Color.PURPLE; //36
-                                        } else if (info.power < 8) {
-                                            belt = Color.GRAY; //49
-                                        } else if (info.power < 9) {
-                                            belt = Color.RED; //64
-                                        } else if (info.power < 10) {
-                                            belt = Color.BLACK; //81
-                                        }*/
-
-                                        gear = new ItemStack(Material.SKULL_ITEM, 1, (byte) 3);
-                                        SkullMeta meta = (SkullMeta) gear.getItemMeta();
-                                        meta.setOwner(info.shooter.getName());
-                                        gear.setItemMeta(meta);
-                                        // OH GOD IT HAS MY FAAAAAAACE!
-                                        spawned.getEquipment().setHelmet(gear);
-                                        spawned.getEquipment().setHelmetDropChance(0.0001f);
-
-                                        /*gear = new ItemStack(Material.LEATHER_CHESTPLATE, 1);
-                                        dye = (LeatherArmorMeta) gear.getItemMeta();
-                                        dye.setColor(belt);
-                                        gear.setItemMeta(dye);
-                                        spawned.getEquipment().setChestplate(gear);
-                                        spawned.getEquipment().setChestplateDropChance(0.0f);
-
-                                        gear = new ItemStack(Material.LEATHER_LEGGINGS, 1);
-                                        dye = (LeatherArmorMeta) gear.getItemMeta();
-                                        dye.setColor(belt);
-                                        gear.setItemMeta(dye);
-                                        spawned.getEquipment().setLeggings(gear);
-                                        spawned.getEquipment().setLeggingsDropChance(0.0f);
-
-                                        gear = new ItemStack(Material.LEATHER_BOOTS, 1);
-                                        dye = (LeatherArmorMeta) gear.getItemMeta();
-                                        dye.setColor(belt);
-                                        gear.setItemMeta(dye);
-                                        spawned.getEquipment().setBoots(gear);
-                                        spawned.getEquipment().setBootsDropChance(0.0f);*/
-
-                                        gear = info.shooter.getInventory().getItem(0);
-                                        if (gear != null) {
-                                            gear = info.shooter.getInventory().getItem(0).clone();
-                                            //we are altering the itemStack, must clone or we alter it right in our inventory!
-                                            //gear.setAmount(1); nerfs item stack duplication
-                                            spawned.getEquipment().setItemInMainHand(gear);
-                                            spawned.getEquipment().setItemInMainHandDropChance(1.0f);
-                                            //max grindage for minion stuffmaking
-                                        }
-                                        spawned.setCustomName(info.shooter.getName() + "'s Army");
-                                        spawned.setCustomNameVisible(false);
-                                        spawned.setRemoveWhenFarAway(false);
-                                        /*AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
-                                        followAttribute.setBaseValue((info.power * info.power) + 40f); //default 40 + caster level
-                                        AttributeInstance healthAttribute = spawned.getAttribute(Attribute.GENERIC_MAX_HEALTH);
-                                        healthAttribute.setBaseValue(20 + (info.power * info.power)); //HP equal to your level + 20
-                                        AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
-                                        speedAttribute.setBaseValue((info.power / 50.0f) + 0.23); //speed == moderate fast*/
-                                        AttributeInstance zomAttribute = spawned.getAttribute(Attribute.ZOMBIE_SPAWN_REINFORCEMENTS);
-                                        zomAttribute.setBaseValue(0.0f); //army zoms don't hire civilians!
-                                        /*spawned.setHealth(spawned.getMaxHealth());
-                                        if (info.power > 11) {
-                                            spawned.setBaby(true);
-                                        } else {
-                                            spawned.setBaby(false);
-                                        } // at level 100, all the zombie ninjas are BABY NINJAS*/
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-                case SULPHUR:
-                    return new SpawnSnowballLogic<Creeper>(Creeper.class) {
-                        @Override
-                        protected void initializeEntity(Creeper spawned, SnowballInfo info) {
-                            super.initializeEntity(spawned, info);
-                        }
-
-                        @Override
-                        protected void equipEntity(final Creeper spawned, final SnowballInfo info) {
-                            super.equipEntity(spawned, info);
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (info.shooter != null) {
-                                        if (info.power > 64) {
-                                            spawned.setPowered(true);
-                                            spawned.setCustomName(info.shooter.getName() + "'s Nightmare");
-                                        } else {
-                                            spawned.setCustomName(info.shooter.getName() + "'s Mistake");
-                                        }
-                                        spawned.setCustomNameVisible(false);
-                                        spawned.setRemoveWhenFarAway(false);
-                                        /*AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
-                                        followAttribute.setBaseValue((info.power * info.power) + 60f); //default 60 + caster level*/
-                                    }
-                                }
-                            }.runTaskLater(info.plugin, 1L);
-                        }
-                    };
-
-                default:
-                    return null;
+        registerShared(factories, new SpawnSnowballLogic<Skeleton>(Skeleton.class) {
+            @Override
+            protected void equipEntity(Skeleton spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    ItemStack gear;
+
+                    /*LeatherArmorMeta dye;
+                    Color belt = Color.WHITE;
+                    if (info.power < 2) {
+                        belt = Color.WHITE; //noob
+                    } else if (info.power < 3) {
+                        belt = Color.YELLOW; //4
+                    } else if (info.power < 4) {
+                        belt = Color.ORANGE; //9
+                    } else if (info.power < 5) {
+                        belt = Color.LIME; //16
+                    } else if (info.power < 6) {
+                        belt = Color.BLUE; //25
+                    } else if (info.power < 7) {
+                        belt = Color.PURPLE; //36
+                    } else if (info.power < 8) {
+                        belt = Color.GRAY; //49
+                    } else if (info.power < 9) {
+                        belt = Color.RED; //64
+                    } else if (info.power < 10) {
+                        belt = Color.BLACK; //81
+                    }*/
+
+                    gear = new ItemStack(Material.SKULL_ITEM, 1, (byte) 3);
+                    SkullMeta meta = (SkullMeta) gear.getItemMeta();
+                    meta.setOwner(info.shooterName);
+                    gear.setItemMeta(meta);
+                    // OH GOD IT HAS MY FAAAAAAACE!
+                    spawned.getEquipment().setHelmet(gear);
+                    spawned.getEquipment().setHelmetDropChance(0.0001f);
+
+                    /*gear = new ItemStack(Material.LEATHER_CHESTPLATE, 1);
+                    dye = (LeatherArmorMeta) gear.getItemMeta();
+                    dye.setColor(belt);
+                    gear.setItemMeta(dye);
+                    spawned.getEquipment().setChestplate(gear);
+                    spawned.getEquipment().setChestplateDropChance(0.0f);
+
+                    gear = new ItemStack(Material.LEATHER_LEGGINGS, 1);
+                    dye = (LeatherArmorMeta) gear.getItemMeta();
+                    dye.setColor(belt);
+                    gear.setItemMeta(dye);
+                    spawned.getEquipment().setLeggings(gear);
+                    spawned.getEquipment().setLeggingsDropChance(0.0f);
+
+                    gear = new ItemStack(Material.LEATHER_BOOTS, 1);
+                    dye = (LeatherArmorMeta) gear.getItemMeta();
+                    dye.setColor(belt);
+                    gear.setItemMeta(dye);
+                    spawned.getEquipment().setBoots(gear);
+                    spawned.getEquipment().setBootsDropChance(0.0f);*/
+
+                    gear = info.getShooter().getInventory().getItem(0);
+                    if (gear != null) {
+                        gear = info.getShooter().getInventory().getItem(0).clone();
+                        //we are altering the itemStack, must clone or we alter it right in our inventory!
+                        //gear.setAmount(1); nerfs item stack duplication
+                        spawned.getEquipment().setItemInMainHand(gear);
+                        spawned.getEquipment().setItemInMainHandDropChance(1.0f);
+                        //max grindage for minion stuffmaking
+                    }
+
+                    spawned.setCustomName(info.shooterName + "'s Ninja");
+                    spawned.setCustomNameVisible(false);
+                    /*AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
+                    followAttribute.setBaseValue((info.power * info.power) + 16f); //default 16 + caster level
+                    AttributeInstance healthAttribute = spawned.getAttribute(Attribute.GENERIC_MAX_HEALTH);
+                    healthAttribute.setBaseValue(20 + info.power); //HP down
+                    AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
+                    speedAttribute.setBaseValue(info.power / 5.0f); //speed == caster level*/
+                    spawned.setRemoveWhenFarAway(false);
+                    spawned.setHealth(spawned.getMaxHealth());
+                }
             }
-        }
+        }, Material.BONE);
+
+        registerShared(factories, new SpawnSnowballLogic<Zombie>(Zombie.class) {
+            @Override
+            protected void equipEntity(Zombie spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    ItemStack gear;
+                    /*LeatherArmorMeta dye;
+                    Color belt = Color.WHITE;
+                    if (info.power < 2) {
+                        belt = Color.WHITE; //noob
+                    } else if (info.power < 3) {
+                        belt = Color.YELLOW; //4
+                    } else if (info.power < 4) {
+                        belt = Color.ORANGE; //9
+                    } else if (info.power < 5) {
+                        belt = Color.LIME; //16
+                    } else if (info.power < 6) {
+                        belt = Color.BLUE; //25
+                    } else if (info.power < 7) {
+                        belt = Color.PURPLE; //36
+                    } else if (info.power < 8) {
+                        belt = Color.GRAY; //49
+                    } else if (info.power < 9) {
+                        belt = Color.RED; //64
+                    } else if (info.power < 10) {
+                        belt = Color.BLACK; //81
+                    }*/
+
+                    gear = new ItemStack(Material.SKULL_ITEM, 1, (byte) 3);
+                    SkullMeta meta = (SkullMeta) gear.getItemMeta();
+                    meta.setOwner(info.shooterName);
+                    gear.setItemMeta(meta);
+                    // OH GOD IT HAS MY FAAAAAAACE!
+                    spawned.getEquipment().setHelmet(gear);
+                    spawned.getEquipment().setHelmetDropChance(0.0001f);
+
+                    /*gear = new ItemStack(Material.LEATHER_CHESTPLATE, 1);
+                    dye = (LeatherArmorMeta) gear.getItemMeta();
+                    dye.setColor(belt);
+                    gear.setItemMeta(dye);
+                    spawned.getEquipment().setChestplate(gear);
+                    spawned.getEquipment().setChestplateDropChance(0.0f);
+
+                    gear = new ItemStack(Material.LEATHER_LEGGINGS, 1);
+                    dye = (LeatherArmorMeta) gear.getItemMeta();
+                    dye.setColor(belt);
+                    gear.setItemMeta(dye);
+                    spawned.getEquipment().setLeggings(gear);
+                    spawned.getEquipment().setLeggingsDropChance(0.0f);
+
+                    gear = new ItemStack(Material.LEATHER_BOOTS, 1);
+                    dye = (LeatherArmorMeta) gear.getItemMeta();
+                    dye.setColor(belt);
+                    gear.setItemMeta(dye);
+                    spawned.getEquipment().setBoots(gear);
+                    spawned.getEquipment().setBootsDropChance(0.0f);*/
+
+                    gear = info.getShooter().getInventory().getItem(0);
+                    if (gear != null) {
+                        gear = info.getShooter().getInventory().getItem(0).clone();
+                        //we are altering the itemStack, must clone or we alter it right in our inventory!
+                        //gear.setAmount(1); nerfs item stack duplication
+                        spawned.getEquipment().setItemInMainHand(gear);
+                        spawned.getEquipment().setItemInMainHandDropChance(1.0f);
+                        //max grindage for minion stuffmaking
+                    }
+                    spawned.setCustomName(info.shooterName + "'s Army");
+                    spawned.setCustomNameVisible(false);
+                    spawned.setRemoveWhenFarAway(false);
+                    /*AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
+                    followAttribute.setBaseValue((info.power * info.power) + 40f); //default 40 + caster level
+                    AttributeInstance healthAttribute = spawned.getAttribute(Attribute.GENERIC_MAX_HEALTH);
+                    healthAttribute.setBaseValue(20 + (info.power * info.power)); //HP equal to your level + 20
+                    AttributeInstance speedAttribute = spawned.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
+                    speedAttribute.setBaseValue((info.power / 50.0f) + 0.23); //speed == moderate fast*/
+                    AttributeInstance zomAttribute = spawned.getAttribute(Attribute.ZOMBIE_SPAWN_REINFORCEMENTS);
+                    zomAttribute.setBaseValue(0.0f); //army zoms don't hire civilians!
+                    /*spawned.setHealth(spawned.getMaxHealth());
+                    if (info.power > 11) {
+                        spawned.setBaby(true);
+                    } else {
+                        spawned.setBaby(false);
+                    } // at level 100, all the zombie ninjas are BABY NINJAS*/
+                }
+            }
+        }, Material.ROTTEN_FLESH);
+
+        registerShared(factories, new SpawnSnowballLogic<Creeper>(Creeper.class) {
+            @Override
+            protected void initializeEntity(Creeper spawned, SnowballInfo info) {
+                super.initializeEntity(spawned, info);
+            }
+
+            @Override
+            protected void equipEntity(Creeper spawned, SnowballInfo info) {
+                super.equipEntity(spawned, info);
+                if (info.getShooter() != null) {
+                    if (info.power > 64) {
+                        spawned.setPowered(true);
+                        spawned.setCustomName(info.shooterName + "'s Nightmare");
+                    } else {
+                        spawned.setCustomName(info.shooterName + "'s Mistake");
+                    }
+                    spawned.setCustomNameVisible(false);
+                    spawned.setRemoveWhenFarAway(false);
+                    /*AttributeInstance followAttribute = spawned.getAttribute(Attribute.GENERIC_FOLLOW_RANGE);
+                    followAttribute.setBaseValue((info.power * info.power) + 60f); //default 60 + caster level*/
+                }
+            }
+        }, Material.SULPHUR);
+
+        return factories;
     }
 
     ////////////////////////////////////////////////////////////////
@@ -830,8 +863,63 @@ public abstract class SnowballLogic {
      * @param info The info record that describes the snowball.
      */
     public static void performLaunch(SnowballLogic logic, Snowball snowball, SnowballInfo info) {
-        inFlight.put(snowball, new SnowballLogicData(logic, info));
-        logic.launch(snowball, info);
+        performLaunch(logic, snowball, info, null);
+    }
+
+    /**
+     * This overload of performLaunch launches a snowball spawned by another; the new snowball joins the parent's family, one
+     * generation further down. If the parent is null, the snowball starts a family of its own.
+     *
+     * @param logic The logic to apply to the snowball; can't be null.
+     * @param snowball The snowball to be launched.
+     * @param info The info record that describes the snowball.
+     * @param parent The flight state of the snowball that spawned this one; may be null.
+     * @return The flight state of the new snowball, or null if it did not survive its launch.
+     */
+    public static FlightState performLaunch(SnowballLogic logic, Snowball snowball, SnowballInfo info, FlightState parent) {
+        int slot = inFlight.put(snowball, logic, info);
+        inFlight.stateAt(slot).joinFamily(parent, info.getShooter());
+        long firstTick = TickScheduler.firstTickFor(snowball, logic, info, currentTick);
+        inFlight.setTicks(slot, currentTick, firstTick);
+        scheduler.schedule(snowball.getEntityId(), firstTick);
+
+        Metrics.CostCenter center = metrics.forLogic(logic);
+        center.launches.increment();
+        metrics.enter(center);
+
+        try {
+            logic.launch(snowball, info);
+        } finally {
+            center.launchNanos.record(metrics.exit());
+        }
+
+        if (snowball.isDead()) {
+            inFlight.remove(snowball);
+            //some logics (arrows, jetpacks) replace the snowball on launch; there will be no hit.
+            return null;
+        }
+
+        // launch() may have launched other snowballs, and those may have
+        // moved ours to another slot.
+        slot = inFlight.indexOf(snowball);
+        return slot >= 0 ? inFlight.stateAt(slot) : null;
+    }
+
+    /**
+     * This method takes on a snowball that has been flying without an entity, now that it has one. Its logic was launched
+     * already, so we don't do that again; we just record it and carry its flight state over.
+     *
+     * @param logic The snowball's logic.
+     * @param snowball The new entity for it.
+     * @param info The info record that describes the snowball.
+     * @param state Its flight state so far.
+     */
+    static void performAdopt(SnowballLogic logic, Snowball snowball, SnowballInfo info, FlightState state) {
+        int slot = inFlight.put(snowball, logic, info);
+        inFlight.stateAt(slot).copyFrom(state);
+        long firstTick = TickScheduler.firstTickFor(snowball, logic, info, currentTick);
+        inFlight.setTicks(slot, currentTick, firstTick);
+        scheduler.schedule(snowball.getEntityId(), firstTick);
     }
 
     /**
@@ -840,22 +928,32 @@ public abstract class SnowballLogic {
      * @param snowball The impacting snowball.
      */
     public static void performHit(Snowball snowball) {
-        SnowballLogicData data = getData(Preconditions.checkNotNull(snowball));
+        int slot = inFlight.indexOf(Preconditions.checkNotNull(snowball));
+
+        if (slot >= 0) {
+            SnowballLogic logic = inFlight.logicAt(slot);
+            SnowballInfo info = inFlight.infoAt(slot);
+            FlightState state = inFlight.stateAt(slot);
+            Metrics.CostCenter center = metrics.forLogic(logic);
+            center.hits.increment();
+            metrics.enter(center);
+            boolean wasCaused = drops.setSnowballCaused(true);
 
-        if (data != null) {
             try {
-                data.logic.hit(snowball, data.info);
+                logic.hit(snowball, info, state);
             } finally {
+                drops.setSnowballCaused(wasCaused);
+                center.hitNanos.record(metrics.exit());
                 inFlight.remove(snowball);
             }
         }
     }
 
     public static double performDamage(Snowball snowball, Entity target, double damage) {
-        SnowballLogicData data = getData(Preconditions.checkNotNull(snowball));
+        int slot = inFlight.indexOf(Preconditions.checkNotNull(snowball));
 
-        if (data != null) {
-            return data.logic.damage(snowball, data.info, target, damage);
+        if (slot >= 0) {
+            return inFlight.logicAt(slot).damage(snowball, inFlight.infoAt(slot), target, damage);
         }
         return damage;
     }
@@ -881,22 +979,522 @@ public abstract class SnowballLogic {
                     InventorySlice slice = InventorySlice.fromSlot(player, heldSlot).skip(1);
                     SnowballLogic logic = performLaunch(slice, snowball,
                             new SnowballInfo(plugin, snowball.getLocation(), player));
-                    replenishSnowball(plugin, inv, heldSlot);
+                    replenishSnowball(inv, heldSlot);
+
+                    if (logic != null) {
+                        PlayerSession.get(player).recordThrow(currentTick);
+                        metrics.countThrow();
+                    }
                 }
             }
         }
     }
 
     /**
-     * This method calls tick() on each snowball that has any logic.
+     * This method runs everything our ticker does, once each server tick: the work deferred from the last tick and the timers
+     * due, then tick() for each snowball that is due for one, as far as the tick budget allows (the scheduler drops snowballs
+     * that have left the world as they come due). After that we move the virtual snowballs, apply the magnet and vortex
+     * forces, put out fires that have got out of hand, do the next part of any large terrain changes, finish the blasts whose
+     * rays are cast, recount entities and cull a few, and look for spawn spots.
+     *
+     * Each engine's time is counted in the metrics under its own name. Everything here is done for snowballs, so any drops
+     * it causes may be thrown away when their chunk is full.
+     *
+     * @param tickCount The number of ticks since the plugin was enabled.
      */
     public static void onTick(long tickCount) {
-        for (Map.Entry<Snowball, SnowballLogicData> e : inFlight.entrySet()) {
-            Snowball snowball = e.getKey();
-            SnowballLogic logic = e.getValue().logic;
-            SnowballInfo info = e.getValue().info;
-            logic.tick(snowball, info);
+        currentTick = tickCount;
+        metrics.reset();
+        drops.setSnowballCaused(true);
+
+        try {
+            runEngines(tickCount);
+        } finally {
+            drops.setSnowballCaused(false);
+        }
+    }
+
+    private static void runEngines(long tickCount) {
+        metrics.enter(metrics.forName("deferred"));
+        deferred.run();
+        metrics.next("timers");
+        timers.advance();
+
+        if (tickCount % COALESCE_INTERVAL == 0) {
+            metrics.next("coalescer");
+            coalescer.run();
+        }
+
+        metrics.next("scheduler");
+        scheduler.run(tickCount);
+        metrics.next("virtual");
+        virtual.run(tickCount);
+        metrics.next("forces");
+        forces.flush(tickCount);
+        metrics.next("fires");
+        fires.run(tickCount);
+        metrics.next("terrain");
+        terrain.run();
+        metrics.next("blasts");
+        blasts.run();
+        metrics.next("census");
+        census.recount(tickCount);
+        metrics.next("culls");
+        culls.run();
+        metrics.next("spawns");
+        spawns.run(tickCount);
+        metrics.finish();
+    }
+
+    /**
+     * This returns the number of server ticks since the snowball was last ticked; logics that push things around can scale by
+     * this so their effect does not depend on how often they are ticked.
+     *
+     * @param snowball The snowball being ticked.
+     * @return The number of ticks elapsed, at least 1.
+     */
+    protected static int getTickStep(Snowball snowball) {
+        int slot = inFlight.indexOf(snowball);
+
+        if (slot < 0) {
+            return DEFAULT_TICK_INTERVAL;
+        }
+
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, currentTick - inFlight.lastTickAt(slot)));
+    }
+
+    /**
+     * This returns the entity index for a world, as of this tick; logics that affect entities near the snowball use this
+     * instead of looking through every entity in the world.
+     *
+     * @param world The world whose entities are wanted.
+     * @return The index, shared by every snowball this tick.
+     */
+    protected static EntityIndex getEntityIndex(World world) {
+        return EntityIndex.forWorld(world, currentTick);
+    }
+
+    /**
+     * This returns the engine that magnet and vortex snowballs add their pull to; it moves the entities at the end of the tick.
+     *
+     * @return The force engine.
+     */
+    protected static ForceEngine getForceEngine() {
+        return forces;
+    }
+
+    /**
+     * This returns the queue of small jobs waiting for the next tick.
+     *
+     * @return The deferred work queue.
+     */
+    protected static DeferredWork getDeferredWork() {
+        return deferred;
+    }
+
+    /**
+     * This returns the wheel that runs lingering effects and other timers.
+     *
+     * @return The timing wheel.
+     */
+    protected static TimingWheel getTimingWheel() {
+        return timers;
+    }
+
+    /**
+     * This returns the counts of living entities in each world.
+     *
+     * @return The census.
+     */
+    protected static EntityCensus getEntityCensus() {
+        return census;
+    }
+
+    /**
+     * This returns the queue that removes entities from crowded worlds.
+     *
+     * @return The cull queue.
+     */
+    protected static CullQueue getCullQueue() {
+        return culls;
+    }
+
+    /**
+     * This returns the engine that sets off TNT snowball blasts.
+     *
+     * @return The blast engine.
+     */
+    protected static BlastEngine getBlastEngine() {
+        return blasts;
+    }
+
+    /**
+     * This returns the safe places to spawn players that we keep ready.
+     *
+     * @return The spawn pool.
+     */
+    protected static SpawnPool getSpawnPool() {
+        return spawns;
+    }
+
+    /**
+     * This returns the snowballs flying without entities.
+     *
+     * @return The virtual snowballs.
+     */
+    protected static VirtualSnowballs getVirtualSnowballs() {
+        return virtual;
+    }
+
+    /**
+     * This returns the counts and timings kept for each kind of snowball, and each engine.
+     *
+     * @return The metrics.
+     */
+    protected static Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * This sets the time snowball logic may take each server tick; whatever is left over waits for the next tick.
+     *
+     * @param budgetNanos The budget in nanoseconds.
+     */
+    public static void setTickBudget(long budgetNanos) {
+        scheduler.setBudgetNanos(budgetNanos);
+    }
+
+    /**
+     * This sets the number of snowballs that one thrown snowball and its descendants may spawn.
+     *
+     * @param budget The most snowballs a family may spawn.
+     */
+    public static void setFamilyBudget(int budget) {
+        familyBudget = Math.max(0, budget);
+    }
+
+    /**
+     * This sets the number of dropped items allowed in one chunk.
+     *
+     * @param limit The most items a chunk may have.
+     */
+    public static void setDropsPerChunk(int limit) {
+        drops.setItemsPerChunk(limit);
+    }
+
+    protected static int getFamilyBudget() {
+        return familyBudget;
+    }
+
+    /**
+     * This method cancels a family of snowballs: every snowball of it in flight, real or virtual, is removed, and it spawns no
+     * more.
+     *
+     * @param rootId The root id of the family.
+     * @return The number of snowballs removed; -1 if no snowball of that family was in flight.
+     */
+    public static int cancelFamily(int rootId) {
+        boolean found = false;
+        int removed = 0;
+
+        for (int slot = inFlight.size() - 1; slot >= 0; --slot) {
+            Lineage lineage = inFlight.stateAt(slot).getLineage();
+
+            if (lineage != null && lineage.getRootId() == rootId) {
+                found = true;
+                lineage.cancel();
+                Snowball snowball = inFlight.snowballAt(slot);
+                inFlight.removeAt(slot);
+                snowball.remove();
+                ++removed;
+            }
+        }
+
+        int removedVirtual = virtual.cancelFamily(rootId);
+        return found || removedVirtual > 0 ? removed + removedVirtual : -1;
+    }
+
+    /**
+     * This returns each family that has snowballs in flight, with the number it has in flight, in the order they were thrown.
+     *
+     * @return A map from family to in-flight count.
+     */
+    public static Map<Lineage, Integer> getFamilies() {
+        Map<Lineage, Integer> counts = new IdentityHashMap<Lineage, Integer>();
+
+        for (int slot = 0; slot < inFlight.size(); ++slot) {
+            Lineage lineage = inFlight.stateAt(slot).getLineage();
+
+            if (lineage != null) {
+                Integer count = counts.get(lineage);
+                counts.put(lineage, count == null ? 1 : count + 1);
+            }
         }
+
+        virtual.countFamilies(counts);
+
+        List<Lineage> families = new ArrayList<Lineage>(counts.keySet());
+        Collections.sort(families, new Comparator<Lineage>() {
+            @Override
+            public int compare(Lineage left, Lineage right) {
+                return left.getRootId() < right.getRootId() ? -1 : (left.getRootId() > right.getRootId() ? 1 : 0);
+            }
+        });
+
+        Map<Lineage, Integer> ordered = new LinkedHashMap<Lineage, Integer>();
+
+        for (Lineage lineage : families) {
+            ordered.put(lineage, counts.get(lineage));
+        }
+
+        return ordered;
+    }
+
+    /**
+     * This sets how much terrain work we do per tick, and what happens to work that doesn't fit.
+     *
+     * @param voxelsPerTick The number of blocks terrain jobs may look at per tick, for all players together.
+     * @param instantVoxels The largest job, in blocks, we run at once instead of queueing.
+     * @param policy What to do with a job that won't fit in its player's share.
+     */
+    public static void setTerrainBudget(int voxelsPerTick, int instantVoxels, EditGovernor.Policy policy) {
+        governor.setBudgetPerTick(voxelsPerTick);
+        governor.setPolicy(policy);
+        terrain.setInstantVoxels(instantVoxels);
+    }
+
+    /**
+     * This returns the object that shares out the terrain budget; it also counts the blocks admitted, deferred and rejected.
+     *
+     * @return The edit governor.
+     */
+    public static EditGovernor getEditGovernor() {
+        return governor;
+    }
+
+    /**
+     * This method runs a terrain job for a snowball; a small one runs at once, but a large one is queued and done a piece at a
+     * time over the next few ticks, unless the edit governor's policy says otherwise.
+     *
+     * @param info The info of the snowball whose job this is.
+     * @param job The job to run.
+     */
+    protected static void submit(SnowballInfo info, TerrainJob job) {
+        job.setOwner(info.shooterId);
+        terrain.submit(job);
+    }
+
+    /**
+     * This method records fire lit by a snowball, so the fire governor knows about it.
+     *
+     * @param block The block set alight.
+     */
+    protected static void addFire(Block block) {
+        fires.addFire(block, currentTick);
+    }
+
+    /**
+     * This sets the amount of fire a chunk may see before we put it all out.
+     *
+     * @param limit The budget for each chunk.
+     */
+    public static void setFiresPerChunk(int limit) {
+        fires.setFiresPerChunk(limit);
+    }
+
+    /**
+     * This method records a block burning, so the fire governor knows about it.
+     *
+     * @param e The event data.
+     */
+    public static void onBlockBurn(BlockBurnEvent e) {
+        fires.addFire(e.getBlock(), currentTick);
+    }
+
+    /**
+     * This method records a block catching fire, so the fire governor knows about it.
+     *
+     * @param e The event data.
+     */
+    public static void onBlockIgnite(BlockIgniteEvent e) {
+        fires.addFire(e.getBlock(), currentTick);
+    }
+
+    /**
+     * This method starts keeping spawn spots for a world that has loaded.
+     *
+     * @param world The world.
+     */
+    public static void onWorldLoad(World world) {
+        spawns.watch(world);
+    }
+
+    /**
+     * This method keeps a chunk loaded if it holds a spot in the spawn pool.
+     *
+     * @param e The event data.
+     */
+    public static void onChunkUnloading(ChunkUnloadEvent e) {
+        if (spawns.holds(e.getChunk())) {
+            e.setCancelled(true);
+        }
+    }
+
+    /**
+     * This method forgets any snowballs in a chunk that is unloading; they will come back as new entities, without logic, if the
+     * chunk is loaded again.
+     *
+     * @param e The event data.
+     */
+    public static void onChunkUnload(ChunkUnloadEvent e) {
+        for (Entity entity : e.getChunk().getEntities()) {
+            if (entity instanceof Snowball) {
+                inFlight.remove((Snowball) entity);
+            }
+
+            census.remove(entity);
+        }
+
+        drops.forget(e.getChunk());
+    }
+
+    /**
+     * This method counts the entities in a chunk that has loaded.
+     *
+     * @param e The event data.
+     */
+    public static void onChunkLoad(ChunkLoadEvent e) {
+        for (Entity entity : e.getChunk().getEntities()) {
+            census.add(entity);
+        }
+    }
+
+    /**
+     * This method counts an entity that has spawned.
+     *
+     * @param e The event data.
+     */
+    public static void onEntitySpawn(EntitySpawnEvent e) {
+        census.add(e.getEntity());
+        metrics.countSpawned();
+    }
+
+    /**
+     * This method merges a dropped item or experience orb into a pile nearby, or cancels it if snowball logic dropped it and
+     * its chunk has too many drops already.
+     *
+     * @param e The event data.
+     */
+    public static void onDropSpawn(EntitySpawnEvent e) {
+        drops.onSpawn(e, currentTick);
+    }
+
+    /**
+     * This method uncounts an item that has despawned.
+     *
+     * @param e The event data.
+     */
+    public static void onItemDespawn(ItemDespawnEvent e) {
+        drops.onDespawn(e);
+    }
+
+    /**
+     * This method uncounts an item merged into another.
+     *
+     * @param e The event data.
+     */
+    public static void onItemMerge(ItemMergeEvent e) {
+        drops.onMerge(e);
+    }
+
+    /**
+     * This method uncounts an item that has been picked up.
+     *
+     * @param e The event data.
+     */
+    public static void onItemPickup(EntityPickupItemEvent e) {
+        drops.onPickup(e);
+    }
+
+    /**
+     * This method uncounts an entity that has died, and spares its drops.
+     *
+     * @param e The event data.
+     */
+    public static void onEntityDeath(EntityDeathEvent e) {
+        drops.onDeath(e, currentTick);
+        census.remove(e.getEntity());
+        metrics.countRemoved();
+    }
+
+    /**
+     * This method returns the number of snowballs that have logic and are still in flight.
+     *
+     * @return The exact in-flight count.
+     */
+    public static int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * This method returns the number of snowballs in flight, how much work each engine has waiting, and how much each has done
+     * so far. This must be called on the server thread.
+     *
+     * @return The gauges, by name, in a fixed order.
+     */
+    public static Map<String, Long> getGauges() {
+        Map<String, Long> gauges = new LinkedHashMap<String, Long>();
+        gauges.put("inflight", (long) inFlight.size());
+        gauges.put("throws", metrics.getThrowCount());
+        gauges.put("carriedover", (long) scheduler.getDeferredCount());
+        gauges.put("coalesced", coalescer.getMergedCount());
+        gauges.put("virtual", (long) virtual.size());
+        gauges.put("virtuallanded", virtual.getLandedCount());
+        gauges.put("virtualpromoted", virtual.getPromotedCount());
+        gauges.put("deferred", (long) deferred.getDepth());
+        gauges.put("deferredhighwater", (long) deferred.getHighWater());
+        gauges.put("deferredruns", deferred.getRunCount());
+        gauges.put("timers", (long) timers.size());
+        gauges.put("forces", (long) forces.getPendingCount());
+        gauges.put("terrainjobs", (long) terrain.getPendingCount());
+        gauges.put("terrainvoxels", terrain.getPendingVoxels());
+        gauges.put("terrainadmitted", governor.getAdmittedCount());
+        gauges.put("terraindeferred", governor.getDeferredCount());
+        gauges.put("terrainrejected", governor.getRejectedCount());
+        gauges.put("blasts", (long) blasts.getPendingCount());
+        gauges.put("blastsdone", blasts.getBlastCount());
+        gauges.put("blastbroken", blasts.getBrokenCount());
+        gauges.put("culls", (long) culls.getPendingCount());
+        gauges.put("culled", culls.getCulledCount());
+        gauges.put("spawnpool", (long) spawns.getReadyCount());
+        gauges.put("spawncandidates", spawns.getCandidateCount());
+        gauges.put("spawnaccepted", spawns.getAcceptedCount());
+        gauges.put("drops", drops.getItemCount());
+        gauges.put("dropsmerged", drops.getMergedCount());
+        gauges.put("dropsdiscarded", drops.getDiscardedCount());
+        gauges.put("firesdoused", fires.getDousedCount());
+        return gauges;
+    }
+
+    /**
+     * This method forgets every snowball in flight, and drops any unfinished terrain jobs; we use this when the plugin is
+     * disabled.
+     */
+    public static void clearInFlight() {
+        inFlight.clear();
+        scheduler.clear();
+        terrain.clear();
+        virtual.clear();
+        deferred.clear();
+        timers.clear();
+        culls.clear();
+        census.clear();
+        forces.clear();
+        blasts.clear();
+        drops.clear();
+        fires.clear();
+        spawns.clear();
+        EntityIndex.clearAll();
     }
 
     /**
@@ -922,24 +1520,26 @@ public abstract class SnowballLogic {
      * If the indicated slot contains something that is not a snowball, we don't update it. If it is empty, we put one snowball in
      * there.
      *
-     * @param plugin The plugin, used to schedule the update.
      * @param inventory The inventory to update.
      * @param slotIndex The slot to update.
      */
-    private static void replenishSnowball(Plugin plugin, final PlayerInventory inventory, final int slotIndex) {
+    private static void replenishSnowball(PlayerInventory inventory, int slotIndex) {
 
         // ugh. We must delay the inventory update or it won't take.
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                ItemStack replacing = inventory.getItem(slotIndex);
+        deferred.defer(REPLENISH, inventory, null, slotIndex);
+    }
 
-                if (replacing == null) {
-                    inventory.setItem(slotIndex, new ItemStack(Material.SNOW_BALL));
-                }
+    private static final DeferredWork.Task REPLENISH = new DeferredWork.Task() {
+        @Override
+        public void run(Object subject, Object context, int slotIndex) {
+            PlayerInventory inventory = (PlayerInventory) subject;
+            ItemStack replacing = inventory.getItem(slotIndex);
+
+            if (replacing == null) {
+                inventory.setItem(slotIndex, new ItemStack(Material.SNOW_BALL));
             }
-        }.runTaskLater(plugin, 1);
-    }
+        }
+    };
 
     /*
     public static void onEntityTargetPlayer(EntityTargetLivingEntityEvent event) {
@@ -976,37 +1576,32 @@ public abstract class SnowballLogic {
     ////////////////////////////////////////////////////////////////
     // Logic Association
     //
-    final static WeakHashMap<Snowball, SnowballLogicData> inFlight = new WeakHashMap<Snowball, SnowballLogicData>();
-    static int approximateInFlightCount = 0;
-
+    final static InFlightRegistry inFlight = new InFlightRegistry();
+    final static TickScheduler scheduler = new TickScheduler(inFlight);
+    final static Coalescer coalescer = new Coalescer(inFlight);
+    final static VirtualSnowballs virtual = new VirtualSnowballs();
+    final static ForceEngine forces = new ForceEngine();
+    final static DeferredWork deferred = new DeferredWork();
+    final static TimingWheel timers = new TimingWheel();
+    final static BlastEngine blasts = new BlastEngine();
+    final static DropAggregator drops = new DropAggregator();
+    final static EntityCensus census = new EntityCensus();
+    final static CullQueue culls = new CullQueue(census);
+    final static EditGovernor governor = new EditGovernor();
+    final static TerrainJobQueue terrain = new TerrainJobQueue(governor);
+    final static FireGovernor fires = new FireGovernor(terrain);
+    final static SpawnPool spawns = new SpawnPool();
+    final static Metrics metrics = new Metrics();
     /**
-     * this class just holds the snowball logic and info for a snowball; the snowball itself must not be kept here, as this is the
-     * value of a weak-hash-map keyed on the snowballs. We don't want to keep them alive.
+     * This is how often snowballs were ticked before logics could choose; most still use it.
      */
-    private final static class SnowballLogicData {
-
-        public final SnowballLogic logic;
-        public final SnowballInfo info;
-
-        public SnowballLogicData(SnowballLogic logic, SnowballInfo info) {
-            this.logic = logic;
-            this.info = info;
-        }
-    }
-
+    public static final int DEFAULT_TICK_INTERVAL = 4;
     /**
-     * This returns the logic and shooter for a snowball that has one.
-     *
-     * @param snowball The snowball of interest; can be null.
-     * @return The logic and info of the snowball, or null if it is an illogical snowball or it was null.
+     * This is how often, in ticks, we look for snowballs to merge.
      */
-    private static SnowballLogicData getData(Snowball snowball) {
-        if (snowball != null) {
-            return inFlight.get(snowball);
-        } else {
-            return null;
-        }
-    }
+    private static final int COALESCE_INTERVAL = 10;
+    private static long currentTick;
+    private static int familyBudget = Lineage.DEFAULT_BUDGET;
     /*     Templates for all the Attribute stuff
 
      AttributeInstance healthAttribute = spawned.getAttribute(Attribute.GENERIC_MAX_HEALTH);
@@ -1030,38 +1625,38 @@ public abstract class SnowballLogic {
      */
  /* original  army/ninja armoring code: lets you put player head on your minions
 
-     float dropChance = info.shooter.getLevel() * 0.01f;
-     ItemStack gear = info.shooter.getInventory().getHelmet();
+     float dropChance = info.getShooter().getLevel() * 0.01f;
+     ItemStack gear = info.getShooter().getInventory().getHelmet();
      if (gear != null) {
      spawned.getEquipment().setHelmet(gear);
      spawned.getEquipment().setHelmetDropChance(dropChance);
      } else {
      gear = new ItemStack(Material.SKULL_ITEM, 1, (byte) 3);
      SkullMeta meta = (SkullMeta) gear.getItemMeta();
-     meta.setOwner(info.shooter.getName());
+     meta.setOwner(info.shooterName);
      gear.setItemMeta(meta);
      // OH GOD IT HAS MY FAAAAAAACE!
      spawned.getEquipment().setHelmet(gear);
      spawned.getEquipment().setHelmetDropChance(dropChance);
      }
-     gear = info.shooter.getInventory().getChestplate();
+     gear = info.getShooter().getInventory().getChestplate();
      if (gear != null) {
      spawned.getEquipment().setChestplate(gear);
      spawned.getEquipment().setChestplateDropChance(dropChance);
      }
-     gear = info.shooter.getInventory().getLeggings();
+     gear = info.getShooter().getInventory().getLeggings();
      if (gear != null) {
      spawned.getEquipment().setLeggings(gear);
      spawned.getEquipment().setLeggingsDropChance(dropChance);
      }
-     gear = info.shooter.getInventory().getBoots();
+     gear = info.getShooter().getInventory().getBoots();
      if (gear != null) {
      spawned.getEquipment().setBoots(gear);
      spawned.getEquipment().setBootsDropChance(dropChance);
      }
-     gear = info.shooter.getInventory().getItem(0);
+     gear = info.getShooter().getInventory().getItem(0);
      if (gear != null) {
-     gear = info.shooter.getInventory().getItem(0).clone();
+     gear = info.getShooter().getInventory().getItem(0).clone();
      //we are altering the itemStack, must clone or we alter it right in our inventory!
      gear.setAmount(1);
      spawned.getEquipment().setItemInMainHand(gear);
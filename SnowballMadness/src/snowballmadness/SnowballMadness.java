@@ -6,13 +6,17 @@ import java.io.*;
 import java.util.*;
 import org.bukkit.*;
 import org.bukkit.block.*;
+import org.bukkit.command.*;
 import org.bukkit.configuration.file.*;
 import org.bukkit.entity.*;
 import org.bukkit.event.*;
 import org.bukkit.event.block.Action;
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockIgniteEvent;
 import org.bukkit.event.entity.*;
 import org.bukkit.event.entity.EntityDamageEvent.DamageCause;
 import org.bukkit.event.entity.EntityDamageEvent.DamageModifier;
@@ -28,7 +32,10 @@ import org.bukkit.scheduler.BukkitRunnable;
  */
 public class SnowballMadness extends JavaPlugin implements Listener {
 
+    private static final int STATS_TOP_COUNT = 8;
     private BukkitRunnable ticker;
+    private BukkitRunnable statsDumper;
+    private int statsDumpSeconds;
     private boolean shouldLogSnowballs;
     private boolean nukeRegions;
 
@@ -57,6 +64,16 @@ public class SnowballMadness extends JavaPlugin implements Listener {
         FileConfiguration config = getConfig();
         shouldLogSnowballs = config.getBoolean("logsnowballs", false);
         nukeRegions = config.getBoolean("nukeRegions", false);
+        statsDumpSeconds = config.getInt("statsdumpseconds", 300);
+        SnowballLogic.setTickBudget(config.getLong("tickbudgetmicros", TickScheduler.DEFAULT_BUDGET_NANOS / 1000L) * 1000L);
+        SnowballLogic.setFamilyBudget(config.getInt("familybudget", Lineage.DEFAULT_BUDGET));
+        SnowballLogic.setDropsPerChunk(config.getInt("dropsperchunk", DropAggregator.DEFAULT_ITEMS_PER_CHUNK));
+        SnowballLogic.setFiresPerChunk(config.getInt("firesperchunk", FireGovernor.DEFAULT_FIRES_PER_CHUNK));
+        SnowballLogic.setTerrainBudget(
+                config.getInt("terrainvoxelspertick", EditGovernor.DEFAULT_BUDGET_PER_TICK),
+                config.getInt("terraininstantvoxels", TerrainJobQueue.DEFAULT_INSTANT_VOXELS),
+                getEditPolicy(config.getString("terrainpolicy", "queue")));
+        MaterialClass.compile(config.getConfigurationSection("materials"), getLogger());
 
         /*
         List<String> toNuke = config.getStringList("nuke");
@@ -91,6 +108,21 @@ public class SnowballMadness extends JavaPlugin implements Listener {
          */
     }
 
+    /**
+     * This converts the terrain policy named in the config into the enum; if we don't recognize it, we log that and queue.
+     *
+     * @param name The name from the config file.
+     * @return The policy.
+     */
+    private EditGovernor.Policy getEditPolicy(String name) {
+        try {
+            return EditGovernor.Policy.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            getLogger().warning(String.format("Unknown terrainpolicy '%s'; using queue.", name));
+            return EditGovernor.Policy.QUEUE;
+        }
+    }
+
     /**
      * This deletes a directory and all its contents, because Java does not provide that. Stupid Java!
      *
@@ -133,9 +165,20 @@ public class SnowballMadness extends JavaPlugin implements Listener {
 
         // This creates the config file if missing
         saveDefaultConfig();
+        SnowballLogic.registerLogicFactories();
 
         getServer().getPluginManager().registerEvents(this, this);
 
+        // we load at startup, before any world; worlds loaded later are
+        // watched as they load, but after a reload they are already here.
+        for (World world : getServer().getWorlds()) {
+            SnowballLogic.onWorldLoad(world);
+        }
+
+        for (Player player : getServer().getOnlinePlayers()) {
+            PlayerSession.start(player);
+        }
+
         if (ticker != null) {
             ticker.cancel();
         }
@@ -149,7 +192,45 @@ public class SnowballMadness extends JavaPlugin implements Listener {
             }
         };
 
-        ticker.runTaskTimer(this, 4, 4);
+        ticker.runTaskTimer(this, 1, 1);
+
+        if (statsDumper != null) {
+            statsDumper.cancel();
+            statsDumper = null;
+        }
+
+        if (statsDumpSeconds > 0) {
+            statsDumper = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    dumpStats();
+                }
+            };
+
+            statsDumper.runTaskTimer(this, statsDumpSeconds * 20L, statsDumpSeconds * 20L);
+        }
+    }
+
+    /**
+     * This adds the metrics to stats.csv in the plugin's folder. The gauges must be read here, on the server thread, but the file
+     * is written on another.
+     */
+    private void dumpStats() {
+        final Map<String, Long> gauges = SnowballLogic.getGauges();
+        final long millis = System.currentTimeMillis();
+        final File file = new File(getDataFolder(), "stats.csv");
+
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                try {
+                    getDataFolder().mkdirs();
+                    SnowballLogic.getMetrics().writeCsv(file, millis, gauges);
+                } catch (IOException ex) {
+                    getLogger().warning(String.format("Could not write snowball stats: %s", ex.getMessage()));
+                }
+            }
+        }.runTaskAsynchronously(this);
     }
 
     @Override
@@ -160,10 +241,105 @@ public class SnowballMadness extends JavaPlugin implements Listener {
             ticker = null;
         }
 
+        if (statsDumper != null) {
+            statsDumper.cancel();
+            statsDumper = null;
+        }
+
+        SnowballLogic.clearInFlight();
+        PlayerSession.clearAll();
         HandlerList.unregisterAll((JavaPlugin) this);
         super.onDisable();
     }
 
+    /**
+     * This handles the /snowball command, which lets an op see the families of snowballs in flight, and cancel one, or see
+     * which snowballs and engines take the most time.
+     */
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!command.getName().equalsIgnoreCase("snowball") || args.length == 0) {
+            return false;
+        }
+
+        if (args[0].equalsIgnoreCase("families") && args.length == 1) {
+            Map<Lineage, Integer> families = SnowballLogic.getFamilies();
+
+            if (families.isEmpty()) {
+                sender.sendMessage("No snowballs are in flight.");
+            }
+
+            for (Map.Entry<Lineage, Integer> entry : families.entrySet()) {
+                Lineage lineage = entry.getKey();
+                sender.sendMessage(String.format("%s: %d in flight, %d spawned, %d dropped",
+                        lineage, entry.getValue(), lineage.getDescendants(), lineage.getDropped()));
+            }
+
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("cancel") && args.length == 2) {
+            int rootId;
+
+            try {
+                rootId = Integer.parseInt(args[1].startsWith("#") ? args[1].substring(1) : args[1]);
+            } catch (NumberFormatException ex) {
+                sender.sendMessage(String.format("'%s' is not a family id.", args[1]));
+                return true;
+            }
+
+            int removed = SnowballLogic.cancelFamily(rootId);
+
+            if (removed < 0) {
+                sender.sendMessage(String.format("Family #%d has no snowballs in flight.", rootId));
+            } else {
+                sender.sendMessage(String.format("Cancelled family #%d; removed %d snowballs.", rootId, removed));
+            }
+
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("stats") && args.length == 1) {
+            sendStats(sender);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * This sends the cost centers that have taken the most time, and the gauges, to whoever asked.
+     */
+    private static void sendStats(CommandSender sender) {
+        List<Metrics.CostCenter> top = SnowballLogic.getMetrics().getTopCenters(STATS_TOP_COUNT);
+
+        if (top.isEmpty()) {
+            sender.sendMessage("Nothing has been counted yet.");
+        }
+
+        for (Metrics.CostCenter center : top) {
+            sender.sendMessage(String.format("%s: %.1f ms; %d launched, %d hit; p99 tick %.3f ms, hit %.3f ms",
+                    center, center.getTotalNanos() / 1e6,
+                    center.launches.sum(), center.hits.sum(),
+                    center.tickNanos.getPercentile(0.99) / 1e6, center.hitNanos.getPercentile(0.99) / 1e6));
+            sender.sendMessage(String.format("  blocks %d read, %d written; entities %d spawned, %d removed",
+                    center.blocksRead.sum(), center.blocksWritten.sum(),
+                    center.entitiesSpawned.sum(), center.entitiesRemoved.sum()));
+        }
+
+        StringBuilder gauges = new StringBuilder();
+
+        for (Map.Entry<String, Long> gauge : SnowballLogic.getGauges().entrySet()) {
+            if (gauges.length() > 0) {
+                gauges.append(", ");
+            }
+
+            gauges.append(gauge.getKey()).append(' ').append(gauge.getValue());
+        }
+
+        sender.sendMessage(gauges.toString());
+    }
+
     /*
     @EventHandler
     public void onChunkUnload(ChunkUnloadEvent e) {
@@ -237,27 +413,64 @@ public class SnowballMadness extends JavaPlugin implements Listener {
         SnowballLogic.onProjectileHit(e);
     }
 
+    @EventHandler(ignoreCancelled = true)
+    public void onChunkUnloading(ChunkUnloadEvent e) {
+        SnowballLogic.onChunkUnloading(e);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        SnowballLogic.onChunkUnload(e);
+    }
+
     @EventHandler
-    public void onBlockBurn(BlockBurnEvent event) {
-        Block block = event.getBlock();
-        if (block.getRelative(BlockFace.UP).getType() == Material.FIRE) {
-            block.getRelative(BlockFace.UP).setType(Material.AIR);
-        }
-        if (block.getRelative(BlockFace.NORTH).getType() == Material.FIRE) {
-            block.getRelative(BlockFace.NORTH).setType(Material.AIR);
-        }
-        if (block.getRelative(BlockFace.SOUTH).getType() == Material.FIRE) {
-            block.getRelative(BlockFace.SOUTH).setType(Material.AIR);
-        }
-        if (block.getRelative(BlockFace.WEST).getType() == Material.FIRE) {
-            block.getRelative(BlockFace.WEST).setType(Material.AIR);
-        }
-        if (block.getRelative(BlockFace.EAST).getType() == Material.FIRE) {
-            block.getRelative(BlockFace.EAST).setType(Material.AIR);
-        }
-        //rather than disabling fire spread, we make it burn itself out by targeting fire blocks and removing them
-        //This is very aggressive, if you're using it you might consider a random factor. This event doesn't fire as often
-        //so it can be more intelligent.
+    public void onWorldLoad(WorldLoadEvent e) {
+        SnowballLogic.onWorldLoad(e.getWorld());
+    }
+
+    @EventHandler
+    public void onChunkLoad(ChunkLoadEvent e) {
+        SnowballLogic.onChunkLoad(e);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntitySpawn(EntitySpawnEvent e) {
+        SnowballLogic.onEntitySpawn(e);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityDeath(EntityDeathEvent e) {
+        SnowballLogic.onEntityDeath(e);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onDropSpawn(EntitySpawnEvent e) {
+        SnowballLogic.onDropSpawn(e);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemDespawn(ItemDespawnEvent e) {
+        SnowballLogic.onItemDespawn(e);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemMerge(ItemMergeEvent e) {
+        SnowballLogic.onItemMerge(e);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemPickup(EntityPickupItemEvent e) {
+        SnowballLogic.onItemPickup(e);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent e) {
+        SnowballLogic.onBlockBurn(e);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockIgnite(BlockIgniteEvent e) {
+        SnowballLogic.onBlockIgnite(e);
     }
 
     @EventHandler(priority = EventPriority.HIGH)
@@ -271,7 +484,7 @@ public class SnowballMadness extends JavaPlugin implements Listener {
                     ItemStack sourceStack = inv.getItem(heldSlot);
                     if (sourceStack == null || sourceStack.getType() == Material.SNOW_BALL) {
                         InventorySlice slice = InventorySlice.fromSlot(player, heldSlot).skip(1);
-                        if (slice.getBottomItem().getType() == Material.FIREWORK) {
+                        if (slice.getBottomMaterial() == Material.FIREWORK) {
                             player.setFallDistance(0);
                             e.setCancelled(true);
                             //if we have the jetpack engaged, we're free from any fall damage.
@@ -369,6 +582,7 @@ public class SnowballMadness extends JavaPlugin implements Listener {
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent e) {
         Player player = e.getPlayer();
+        PlayerSession.start(player);
         /*Location playerLocation = player.getLocation();
         Location startLocation = player.getCompassTarget();
 
@@ -395,7 +609,12 @@ public class SnowballMadness extends JavaPlugin implements Listener {
             inventory.setItem(8, new ItemStack(Material.SNOW_BALL, 16));
             player.updateInventory();
         } //only upon join do we give only one base snowball, only if slot 8 is empty.
-        RespawnInfo.checkRespawn(player, this);
+        RespawnInfo.checkRespawn(player);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent e) {
+        PlayerSession.end(e.getPlayer());
     }
 
     @EventHandler
@@ -427,6 +646,6 @@ public class SnowballMadness extends JavaPlugin implements Listener {
             inventory.setItem(8, new ItemStack(Material.SNOW_BALL, 16));
             player.updateInventory();
         } //only upon join do we give only one base snowball, only if slot 8 is empty.
-        RespawnInfo.checkRespawn(player, this);
+        RespawnInfo.checkRespawn(player);
     }
 }
@@ -0,0 +1,64 @@
+package snowballmadness;
+
+import org.bukkit.*;
+
+/**
+ * This class holds the logic worked out for a snowball. We build this when a multiplier snowball is thrown, by reading the
+ * inventory once; every secondary snowball then shares the same logic, and multipliers further down the chain are given the
+ * plan for their own secondaries instead of reading the inventory again.
+ *
+ * Plans never change once built; since logics don't either, one plan can be shared by any number of snowballs.
+ */
+public final class SnowballPlan {
+
+    private static final SnowballPlan ILLOGICAL = new SnowballPlan(null);
+    private final SnowballLogic logic;
+
+    private SnowballPlan(SnowballLogic logic) {
+        this.logic = logic;
+    }
+
+    /**
+     * This method reads the inventory slice given and works out the plan for a snowball launched with it; if the slice holds a
+     * column of multipliers, we resolve the whole column.
+     *
+     * @param slice The inventory slice, starting with the hint item.
+     * @return The plan; its logic is null if the snowball will be illogical.
+     */
+    public static SnowballPlan resolve(InventorySlice slice) {
+        Material material = slice.getBottomMaterial();
+
+        if (material == null) {
+            return ILLOGICAL;
+        }
+
+        if (material == Material.SNOW_BALL) {
+            SnowballPlan downstream = resolve(slice.skip(1));
+            int amount = slice.getBottomAmount();
+            SnowballLogic multiplier = new MultiplierSnowballLogic(amount, slice.getBottomName(), downstream);
+            return new SnowballPlan(multiplier);
+        }
+
+        SnowballLogic logic = SnowballLogic.createLogic(slice);
+
+        if (logic == null) {
+            return ILLOGICAL;
+        }
+
+        return new SnowballPlan(logic);
+    }
+
+    /**
+     * This returns the logic for snowballs following this plan.
+     *
+     * @return The logic, or null if they are illogical.
+     */
+    public SnowballLogic getLogic() {
+        return logic;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(logic);
+    }
+}
@@ -21,8 +21,8 @@ public class SpadeSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
 int baseTool = 0; //wooden pick
         switch (toolUsed) {
             case DIAMOND_SPADE:
@@ -44,45 +44,19 @@ int baseTool = 0; //wooden pick
 
         //size is heavily dependent on tool type, power expands so aggressively with
         //doubling that we must control it. Max will still be very huge.
-        final int diameter = (int) (radius * 2);
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(0, snowballLoc.getBlockY() - radius);
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = Math.min(world.getMaxHeight(), beginY + diameter);
-        final int endZ = beginZ + diameter;
-
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-
-        for (int x = beginX; x < endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                for (int y = beginY; y <= endY; ++y) {
-                    locationBuffer.setX(x + 0.5);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z + 0.5);
-                    if (snowballLoc.distanceSquared(locationBuffer) < distanceSquaredLimit) {
-                        final Block beingMined = world.getBlockAt(x, y, z);
-                        if (canMine(beingMined)) {
-                            beingMined.setType(Material.AIR);
-                        }
-                    }
+        //digging keeps physics on, so sand and gravel left overhanging fall.
+        final VoxelShape shape = VoxelShape.ball(VoxelShape.below(distanceSquaredLimit));
+        submit(info, new TerrainJob(hit.getLocation(), shape, 0, true) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                if (canMine(block)) {
+                    batch.set(block, Material.AIR);
                 }
             }
-        }
+        });
     }
 
     protected boolean canMine(Block target) {
-        Material material = target.getType();
-
-        return target.getType() == Material.DIRT //dig up shovel type stuff
-                || (material == Material.GRASS)
-                || (material == Material.SAND)
-                || (material == Material.GRAVEL)
-                || (material == Material.SNOW)
-                || (material == Material.SNOW_BLOCK)
-                || (material == Material.SOIL)
-                || (material == Material.SOUL_SAND);
+        return MaterialClass.SPADE_MINEABLE.contains(target); //dig up shovel type stuff
     }
 }
\ No newline at end of file
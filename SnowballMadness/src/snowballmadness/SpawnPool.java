@@ -0,0 +1,267 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.World.Environment;
+import org.bukkit.block.Block;
+
+/**
+ * This class keeps a few safe places to spawn players in each world, found ahead of time. Finding one used to be done when the
+ * player arrived: pick a random spot, load (or generate!) its chunk, and step down the column looking for ground, again and
+ * again until the ground was safe, all while the player waited.
+ *
+ * Now our ticker tries one random spot per world every REFILL_INTERVAL ticks, until each pool is full, and finds the ground
+ * from the height map rather than block by block; spots on unsafe ground are dropped. Bukkit can only load and generate chunks
+ * on the server thread, so we never do: we only try spots in chunks that are already loaded, and a world with none near its
+ * middle just waits.
+ *
+ * We keep the chunks of the spots in the pool loaded, so a player who needs a spot can take one without waiting for a chunk.
+ * The spawn area is apt to be blown up, so we check a spot again before we hand it out; if its chunk was unloaded after all,
+ * we drop it rather than load it. If the pool runs dry, the player gets the world's own spawn.
+ */
+public final class SpawnPool {
+
+    /**
+     * This is the number of spots we keep ready in each world.
+     */
+    public static final int POOL_SIZE = 8;
+    private static final int REFILL_INTERVAL = 20;
+    private static final int SPAWN_RANGE = 1000;
+    private final Map<World, Deque<Location>> pools = new WeakHashMap<World, Deque<Location>>();
+    private final Random random = new Random();
+    private long candidateCount;
+    private long acceptedCount;
+
+    /**
+     * This method starts keeping spots for a world; the pool is filled over the next few seconds, as chunks near the middle of
+     * the world are loaded.
+     *
+     * @param world The world to keep spots for.
+     */
+    public void watch(World world) {
+        poolFor(world);
+    }
+
+    /**
+     * This returns a safe spot in a world, from the pool if it has one that is still safe. If not, we don't look for one now;
+     * we return the world's spawn location instead.
+     *
+     * @param world The world to spawn in.
+     * @return The spot, a little above the ground.
+     */
+    public Location take(World world) {
+        Deque<Location> pool = poolFor(world);
+
+        while (!pool.isEmpty()) {
+            Location spot = pool.pop();
+
+            if (!world.isChunkLoaded(spot.getBlockX() >> 4, spot.getBlockZ() >> 4)) {
+                continue;
+            }
+
+            Location checked = findSafeSpot(world, spot.getBlockX(), spot.getBlockZ());
+
+            if (checked != null) {
+                return checked;
+            }
+        }
+
+        return world.getSpawnLocation();
+    }
+
+    /**
+     * This tells us whether a chunk holds a spot in the pool; such chunks are kept loaded.
+     *
+     * @param chunk The chunk.
+     * @return True if a spot in the pool is in the chunk.
+     */
+    public boolean holds(Chunk chunk) {
+        Deque<Location> pool = pools.get(chunk.getWorld());
+
+        if (pool != null) {
+            for (Location spot : pool) {
+                if (spot.getBlockX() >> 4 == chunk.getX() && spot.getBlockZ() >> 4 == chunk.getZ()) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * This returns the number of spots ready in a world.
+     *
+     * @param world The world of interest.
+     * @return The number of spots in its pool.
+     */
+    public int size(World world) {
+        Deque<Location> pool = pools.get(world);
+        return pool != null ? pool.size() : 0;
+    }
+
+    /**
+     * This returns the number of spots ready in every world.
+     *
+     * @return The number of spots in all the pools.
+     */
+    public int getReadyCount() {
+        int total = 0;
+
+        for (Deque<Location> pool : pools.values()) {
+            total += pool.size();
+        }
+
+        return total;
+    }
+
+    /**
+     * This returns the number of random spots we've tried.
+     *
+     * @return The candidate count.
+     */
+    public long getCandidateCount() {
+        return candidateCount;
+    }
+
+    /**
+     * This returns the number of random spots that were safe.
+     *
+     * @return The accepted count.
+     */
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * This method tries one random spot for each pool that is not full, every REFILL_INTERVAL ticks.
+     *
+     * @param tick The current tick.
+     */
+    public void run(long tick) {
+        if (tick % REFILL_INTERVAL != 0) {
+            return;
+        }
+
+        for (Map.Entry<World, Deque<Location>> entry : pools.entrySet()) {
+            if (entry.getValue().size() < POOL_SIZE) {
+                Location spot = tryLoadedSpot(entry.getKey());
+
+                if (spot != null) {
+                    entry.getValue().add(spot);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method forgets every spot; we use this when the plugin is disabled.
+     */
+    public void clear() {
+        pools.clear();
+    }
+
+    private Deque<Location> poolFor(World world) {
+        Deque<Location> pool = pools.get(world);
+
+        if (pool == null) {
+            pool = new ArrayDeque<Location>();
+            pools.put(world, pool);
+        }
+
+        return pool;
+    }
+
+    /**
+     * This tries a random spot in a random chunk near the middle of the world, but only among the chunks that are loaded
+     * already.
+     */
+    private Location tryLoadedSpot(World world) {
+        Chunk[] loaded = world.getLoadedChunks();
+        int inRange = 0;
+
+        for (Chunk chunk : loaded) {
+            if (isInRange(chunk)) {
+                ++inRange;
+            }
+        }
+
+        if (inRange == 0) {
+            return null;
+        }
+
+        int pick = random.nextInt(inRange);
+
+        for (Chunk chunk : loaded) {
+            if (isInRange(chunk) && pick-- == 0) {
+                int x = (chunk.getX() << 4) + random.nextInt(16);
+                int z = (chunk.getZ() << 4) + random.nextInt(16);
+
+                ++candidateCount;
+                Location spot = findSafeSpot(world, x, z);
+
+                if (spot != null) {
+                    ++acceptedCount;
+                }
+
+                return spot;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isInRange(Chunk chunk) {
+        int range = SPAWN_RANGE >> 4;
+        return Math.abs(chunk.getX()) <= range && Math.abs(chunk.getZ()) <= range;
+    }
+
+    /**
+     * This finds the ground in a column of blocks and, if it is safe to stand on, returns the spot just above it. In the
+     * Nether the height map only finds the roof, so there we step down from under the roof, through the rock and then the air,
+     * to the ground.
+     *
+     * @param world The world to look in.
+     * @param x The x coordinate of the column.
+     * @param z The z coordinate of the column.
+     * @return The spot to spawn at, or null if the ground is unsafe or there is none.
+     */
+    public static Location findSafeSpot(World world, int x, int z) {
+        int y;
+
+        if (world.getEnvironment() == Environment.NETHER) {
+            y = Math.min(126, world.getMaxHeight() - 2);
+
+            while (y > 1 && world.getBlockAt(x, y, z).getType() != Material.AIR) {
+                --y;
+            }
+
+            while (y > 1 && world.getBlockAt(x, y, z).getType() == Material.AIR) {
+                --y;
+            }
+        } else {
+            y = world.getHighestBlockYAt(x, z) - 1;
+        }
+
+        if (y <= 1) {
+            return null;
+        }
+
+        Block ground = world.getBlockAt(x, y, z);
+        Block feet = ground.getRelative(0, 1, 0);
+        Block head = ground.getRelative(0, 2, 0);
+
+        // the height map skips blocks you can see through, like fire, so fire
+        // burning on the ground is where the player would stand; we check the
+        // blocks above the ground for it too.
+        if (MaterialClass.UNSAFE_GROUND.contains(ground)
+                || MaterialClass.UNSAFE_GROUND.contains(feet)
+                || MaterialClass.UNSAFE_GROUND.contains(head)
+                || feet.getType().isSolid()
+                || head.getType().isSolid()) {
+            return null;
+        }
+
+        return new Location(world, x + 0.5, y + 1.5, z + 0.5);
+    }
+}
@@ -5,7 +5,6 @@ import org.bukkit.*;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.*;
-import org.bukkit.scheduler.BukkitRunnable;
 
 /**
  * This logic creates an entity at the point of impact. We can create a different, better entity for powered snowballs (to get
@@ -18,7 +17,22 @@ import org.bukkit.scheduler.BukkitRunnable;
  */
 public class SpawnSnowballLogic<TEntity extends Entity> extends SnowballLogic {
 
+    /**
+     * This is how many ticks after the spawn we call equipEntity().
+     */
+    private static final int EQUIP_DELAY = 2;
     private final Class<? extends TEntity> entityClass;
+    private final DeferredWork.Task equipTask = new DeferredWork.Task() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run(Object subject, Object context, int ticksLeft) {
+            if (ticksLeft > 1) {
+                getDeferredWork().defer(this, subject, context, ticksLeft - 1);
+            } else {
+                equipEntity((TEntity) subject, (SnowballInfo) context);
+            }
+        }
+    };
 
     public SpawnSnowballLogic(Class<? extends TEntity> entityClass) {
         this.entityClass = Preconditions.checkNotNull(entityClass);
@@ -33,11 +47,11 @@ public class SpawnSnowballLogic<TEntity extends Entity> extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
 
-        if (canSpawnAt(snowball.getLocation(), info)) {
-            spawnEntity(snowball.getLocation(), info);
+        if (canSpawnAt(hit.getLocation(), info)) {
+            spawnEntity(hit.getLocation(), info);
         } //resume nerfing smother traps
     }
 
@@ -48,33 +62,26 @@ public class SpawnSnowballLogic<TEntity extends Entity> extends SnowballLogic {
      * @param location The place to spawn at.
      * @param info The snowball info in effect, if you need it.
      */
-    private void spawnEntity(Location location, final SnowballInfo info) {
+    private void spawnEntity(Location location, SnowballInfo info) {
         World world = location.getWorld();
         Location adjusted = location.clone();
         Class<? extends TEntity> spawnClass = pickSpawnClass(adjusted, info);
 
         if (spawnClass != null) {
-            if (world.getLivingEntities().size() > 1024) {
-                //we check that once, not constantly
-                int bailout = (int)Math.sqrt(world.getEntitiesByClass(spawnClass).size());
-                //our bailout is more intense when the particular type being spammed is saturated
-                for (Entity e : world.getEntitiesByClass(spawnClass)) {
-                    e.remove();
-                    bailout--;
-                    if (bailout < 4) {
-                        break;
-                    } //every spawn is capable of removing many entities of the type being spawned
-                } //from an overloaded pool of such entities. We don't try to delete the whole pool
-            } //and we don't try to do anything intelligent because by definition we're lagged already.
-            
-            final TEntity spawned = world.spawn(adjusted, spawnClass);
+            TEntity spawned = world.spawn(adjusted, spawnClass);
+
+            if (getEntityCensus().getLivingCount(world) > 1024) {
+                int bailout = Math.max(1, (int) Math.sqrt(getEntityCensus().getCount(world, spawned.getType())) - 3);
+                //our bailout is more intense when the particular type being spammed is saturated,
+                //but we always remove at least one
+                getCullQueue().request(world, spawned.getType(), bailout);
+                //every spawn is capable of removing many entities of the type being spawned
+                //from an overloaded pool of such entities. We don't try to delete the whole pool;
+                //the cull queue takes the ones farthest from players, a few each tick.
+            }
+
             initializeEntity(spawned, info);
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    equipEntity(spawned, info);
-                }
-            }.runTaskLater(info.plugin, 1);
+            getDeferredWork().defer(equipTask, spawned, info, EQUIP_DELAY);
         } //we will always spawn one, even if we've had to remove eight
     }
 
@@ -120,7 +127,7 @@ public class SpawnSnowballLogic<TEntity extends Entity> extends SnowballLogic {
     /**
      * This method is called on the spawned entity to populate it with equipment, if appropriate. If decide not to spawn the
      * entity, this method is never called. Unlike initializeEntity(), this method is called only after the entity has entered the
-     * world (it is delayed by one tick)- we can't get equipment to 'stick' without this delay.
+     * world (it is delayed by two ticks)- we can't get equipment to 'stick' without this delay.
      *
      * @param spawned The newly spawned thing.
      * @param info The info of the snowball that spawned it.
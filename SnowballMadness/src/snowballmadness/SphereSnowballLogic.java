@@ -15,7 +15,7 @@ public class SphereSnowballLogic extends SnowballLogic {
 
     private final Material wallMaterial;
     private final Material fillMaterial;
-    private int boxSize;
+    private final int boxSize;
 
     public SphereSnowballLogic(Material wallMaterial, Material fillMaterial, int boxSize) {
         this.wallMaterial = wallMaterial;
@@ -24,65 +24,38 @@ public class SphereSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
-        ProjectileSource shooter = snowball.getShooter();
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
+        ProjectileSource shooter = hit.getShooter();
         int expLevel = 1;
         if (shooter instanceof Player) {
             Player player = (Player) shooter;
             expLevel = player.getLevel();
         }
-        boxSize = (int) Math.min(boxSize, info.power);
-
-        final int radius = boxSize + 1;
-        final int diameter = radius * 2;
-
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
-
-        // while in theory x anx z are unlimited, we want to keep y
-        // within the normal world.
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(1, snowballLoc.getBlockY() - radius);
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = Math.min(world.getMaxHeight(), beginY + diameter);
-        final int endZ = beginZ + diameter;
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-
-        // no worries- all this executes before Minecraft can send anything
-        // back to the client, so we can set the blocks in any order. This one
-        // is convenient!
-        for (int x = beginX; x <= endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                for (int y = beginY; y <= endY; ++y) {
-                    Material replacement = fillMaterial;
-                    locationBuffer.setX(x);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z);
-                    if (snowballLoc.distance(locationBuffer) > (radius - 1)) {
-                        replacement = wallMaterial;
-                    }
-                    if (snowballLoc.distance(locationBuffer) <= radius) {
-                        Block target = world.getBlockAt(x, y, z);
-                        Material material = target.getType();
-                        if (material == Material.AIR
-                                || material == Material.WATER
-                                || material == Material.STATIONARY_WATER
-                                || material == Material.LAVA
-                                || material == Material.STATIONARY_LAVA
-                                || material == Material.WEB
-                                || material == Material.TNT
-                                || material == Material.MONSTER_EGGS
-                                || material == Material.FIRE
-                                || material == Material.LONG_GRASS
-                                || material == Material.RED_ROSE
-                                || material == Material.YELLOW_FLOWER) {
-                            target.setType(replacement);
-                        }
+        final int size = (int) Math.min(boxSize, info.power);
+
+        final int radius = size + 1;
+
+        // the inside of the ball is filled, and the outermost layer is the wall;
+        // we keep y within the normal world. The wall holds the fill in, so we
+        // skip physics. Wall and fill are one job, so the governor can't take
+        // the one and drop the other.
+        final long innerDistanceSquared = (radius - 1) * (long) (radius - 1);
+        submit(info, new TerrainJob(hit.getLocation(), VoxelShape.ball(radius * (long) radius), 1, false) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                if (MaterialClass.REPLACEABLE.contains(block)) {
+                    long dx = block.getX() - getCenterX();
+                    long dy = block.getY() - getCenterY();
+                    long dz = block.getZ() - getCenterZ();
+                    Material replacement = dx * dx + dy * dy + dz * dz > innerDistanceSquared ? wallMaterial : fillMaterial;
+                    batch.set(block, replacement);
+
+                    if (replacement == Material.FIRE) {
+                        addFire(block);
                     }
                 }
             }
-        }
+        });
     }
 }
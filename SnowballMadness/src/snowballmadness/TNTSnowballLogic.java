@@ -3,7 +3,6 @@ package snowballmadness;
 import java.util.List;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Item;
-import org.bukkit.entity.Snowball;
 
 /**
  * This class detonates a TNT explosion at the point of impact of a snwoabll.
@@ -19,13 +18,15 @@ public class TNTSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
         int scaled = (int) Math.sqrt(boomSize) + 1;
-        for (int x = 0; x < boomSize; ++x) {
-            snowball.getWorld().createExplosion(snowball.getLocation().add(0, x/8, 0), scaled);
-            //move them so we can get rid of singleton blocks
+        BlastEngine.Blast blast = new BlastEngine.Blast(hit.getWorld(), scaled);
+        for (int level = 0; level * 8 < boomSize; ++level) {
+            blast.addCenter(hit.getLocation().add(0, level, 0), Math.min(8, boomSize - level * 8));
+            //move them up a block every eight so we can get rid of singleton blocks
         }
+        getBlastEngine().detonate(blast);
         //boom!
 
         /* List<Entity> entList = snowball.getWorld().getEntities();
@@ -43,6 +44,6 @@ public class TNTSnowballLogic extends SnowballLogic {
 
     @Override
     public String toString() {
-        return String.format("%s (%f)", super.toString(), boomSize);
+        return String.format("%s (%d)", super.toString(), boomSize);
     }
 }
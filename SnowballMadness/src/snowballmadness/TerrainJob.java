@@ -0,0 +1,187 @@
+package snowballmadness;
+
+import com.google.common.base.*;
+import java.util.UUID;
+import org.bukkit.*;
+import org.bukkit.block.*;
+
+/**
+ * This class is a change to the terrain over some shape, which can be done a piece at a time. Subclasses decide what to do with
+ * each block, in edit(); this class walks the shape's spans (so the middle of the shape comes first) and collects the changes
+ * into a BlockEditBatch, which is applied at the end of each piece.
+ *
+ * Logics hand these to SnowballLogic.submit(); small jobs run at once, while large ones are queued and run a bit each tick.
+ * Since a job may run after the snowball is long gone, it must not refer to the snowball, or its FlightState.
+ */
+public abstract class TerrainJob {
+
+    private final World world;
+    private final int centerX, centerY, centerZ;
+    private final VoxelShape shape;
+    private final int minY, maxY;
+    private final boolean applyPhysics;
+    private int span;
+    private int nextY = Integer.MIN_VALUE;
+    private int voxelsVisited;
+    private int blocksChanged;
+    private UUID owner;
+    private final Metrics.CostCenter costCenter;
+    /**
+     * The squared distance to the nearest player, as of the last tick; the job queue uses this to decide which job goes first.
+     */
+    double nearestPlayerDistanceSquared;
+
+    /**
+     * This creates a job.
+     *
+     * @param center The location of the center of the shape.
+     * @param shape The shape to cover.
+     * @param minY The lowest y we may change; blocks below this are skipped.
+     * @param applyPhysics True to update physics for each change; false to skip that.
+     */
+    public TerrainJob(Location center, VoxelShape shape, int minY, boolean applyPhysics) {
+        this.world = Preconditions.checkNotNull(center.getWorld());
+        this.centerX = center.getBlockX();
+        this.centerY = center.getBlockY();
+        this.centerZ = center.getBlockZ();
+        this.shape = Preconditions.checkNotNull(shape);
+        this.minY = minY;
+        this.maxY = world.getMaxHeight() - 1;
+        this.applyPhysics = applyPhysics;
+        this.costCenter = SnowballLogic.getMetrics().getCurrent();
+    }
+
+    /**
+     * This method decides what to do with one block of the shape; it should add any change to the batch, rather than changing
+     * the block itself.
+     *
+     * @param block The block to consider.
+     * @param batch The batch to add changes to.
+     */
+    protected abstract void edit(Block block, BlockEditBatch batch);
+
+    /**
+     * This returns the UUID of the player whose snowball made this job; the edit governor uses this to share the budget out
+     * fairly. A job may outlive its player's session, so we don't hold the Player itself.
+     *
+     * @return The player's UUID, or null if we don't know.
+     */
+    public UUID getOwner() {
+        return owner;
+    }
+
+    void setOwner(UUID owner) {
+        this.owner = owner;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getCenterX() {
+        return centerX;
+    }
+
+    public int getCenterY() {
+        return centerY;
+    }
+
+    public int getCenterZ() {
+        return centerZ;
+    }
+
+    /**
+     * This returns the number of blocks this job looks at in all.
+     *
+     * @return The number of blocks in the shape.
+     */
+    public int getVoxelCount() {
+        return shape.getBlockCount();
+    }
+
+    /**
+     * This returns the number of blocks not yet looked at.
+     *
+     * @return The number of blocks left.
+     */
+    public int getRemainingVoxels() {
+        return Math.max(0, shape.getBlockCount() - voxelsVisited);
+    }
+
+    /**
+     * This returns the number of blocks changed so far.
+     *
+     * @return The number of blocks changed.
+     */
+    public int getChangedCount() {
+        return blocksChanged;
+    }
+
+    public boolean isDone() {
+        return span >= shape.getSpanCount();
+    }
+
+    /**
+     * This method does the next piece of the job: it looks at up to the number of blocks given, and applies the changes.
+     *
+     * @param maxVoxels The largest number of blocks to look at.
+     * @return The number of blocks looked at; this counts blocks outside the world, which we skip.
+     */
+    public int run(int maxVoxels) {
+        // the job is counted for whatever made it, even if that is long
+        // gone.
+        Metrics metrics = SnowballLogic.getMetrics();
+        metrics.enter(costCenter);
+
+        try {
+            return runPiece(maxVoxels);
+        } finally {
+            long nanos = metrics.exit();
+
+            if (costCenter != null) {
+                costCenter.workNanos.record(nanos);
+            }
+        }
+    }
+
+    private int runPiece(int maxVoxels) {
+        Metrics metrics = SnowballLogic.getMetrics();
+        BlockEditBatch batch = new BlockEditBatch(world, centerX, centerZ, applyPhysics);
+        int visited = 0;
+
+        while (span < shape.getSpanCount() && visited < maxVoxels) {
+            final int x = centerX + shape.getX(span);
+            final int z = centerZ + shape.getZ(span);
+            final int startY = centerY + shape.getMinY(span);
+            final int endY = centerY + shape.getMaxY(span);
+
+            if (nextY == Integer.MIN_VALUE) {
+                nextY = startY;
+            }
+
+            int y = nextY;
+
+            for (; y <= endY && visited < maxVoxels; ++y) {
+                ++visited;
+
+                if (y >= minY && y <= maxY) {
+                    edit(world.getBlockAt(x, y, z), batch);
+                }
+            }
+
+            if (y > endY) {
+                ++span;
+                nextY = Integer.MIN_VALUE;
+            } else {
+                nextY = y;
+            }
+        }
+
+        int changed = batch.apply();
+        voxelsVisited += visited;
+        blocksChanged += changed;
+        metrics.countBlocksRead(visited);
+        metrics.countBlocksWritten(changed);
+        return visited;
+    }
+}
@@ -0,0 +1,184 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.entity.*;
+
+/**
+ * This class holds the terrain jobs that are too big to do all at once. Each tick we look at a limited number of blocks, and
+ * spread them over the jobs starting with the one nearest a player, so the changes people can see happen first. Small jobs
+ * don't wait at all; they are run as soon as they are submitted, if their owner's share of the budget allows.
+ *
+ * The EditGovernor decides how many blocks each player gets, and what becomes of jobs that don't fit.
+ */
+public final class TerrainJobQueue {
+
+    /**
+     * Jobs of this many blocks or fewer are run at once.
+     */
+    public static final int DEFAULT_INSTANT_VOXELS = 4096;
+    private static final Comparator<TerrainJob> NEAREST_FIRST = new Comparator<TerrainJob>() {
+        @Override
+        public int compare(TerrainJob left, TerrainJob right) {
+            return Double.compare(left.nearestPlayerDistanceSquared, right.nearestPlayerDistanceSquared);
+        }
+    };
+    private final EditGovernor governor;
+    private final List<TerrainJob> jobs = new ArrayList<TerrainJob>();
+    private final Set<UUID> waitingOwners = new HashSet<UUID>();
+    private int instantVoxels = DEFAULT_INSTANT_VOXELS;
+
+    public TerrainJobQueue(EditGovernor governor) {
+        this.governor = governor;
+    }
+
+    /**
+     * This sets the size of job we will run at once, instead of queueing.
+     *
+     * @param instantVoxels The largest number of blocks in a job run at once.
+     */
+    public void setInstantVoxels(int instantVoxels) {
+        this.instantVoxels = Math.max(0, instantVoxels);
+    }
+
+    /**
+     * This method runs a job at once if it is small and its owner's share of the budget allows; otherwise the governor's policy
+     * decides if it is queued, cut down, or dropped.
+     *
+     * @param job The job to run.
+     */
+    public void submit(TerrainJob job) {
+        final UUID owner = job.getOwner();
+        final int count = job.getVoxelCount();
+        final int allowance = governor.getAllowance(owner);
+
+        if (count <= allowance && (count <= instantVoxels || governor.getPolicy() != EditGovernor.Policy.QUEUE)) {
+            governor.charge(owner, job.run(count));
+            return;
+        }
+
+        switch (governor.getPolicy()) {
+            case QUEUE:
+                governor.recordDeferred(count);
+                jobs.add(job);
+                break;
+            case DEGRADE:
+                // the spans run from the middle outward, so doing only the
+                // first part of the job gives a smaller version of the shape.
+                if (allowance > 0) {
+                    governor.charge(owner, job.run(allowance));
+                }
+
+                governor.recordRejected(job.getRemainingVoxels());
+                break;
+            case REFUSE:
+                governor.recordRejected(count);
+                break;
+        }
+    }
+
+    /**
+     * This method runs a job that must not be cut down or dropped, whatever the policy: at once if it is small, and otherwise
+     * from the queue. Its blocks still count against the budget. We use this for putting out fires.
+     *
+     * @param job The job to run.
+     */
+    public void submitAlways(TerrainJob job) {
+        int count = job.getVoxelCount();
+
+        if (count <= instantVoxels) {
+            governor.charge(job.getOwner(), job.run(count));
+        } else {
+            governor.recordDeferred(count);
+            jobs.add(job);
+        }
+    }
+
+    /**
+     * This method does as much of the queued work as this tick allows. Each job gets no more than its owner's share of the
+     * budget at first; if some is left after that, it goes to the jobs in the same order.
+     */
+    public void run() {
+        waitingOwners.clear();
+
+        for (TerrainJob job : jobs) {
+            waitingOwners.add(job.getOwner());
+        }
+
+        governor.beginTick(waitingOwners);
+
+        if (jobs.isEmpty()) {
+            return;
+        }
+
+        for (TerrainJob job : jobs) {
+            job.nearestPlayerDistanceSquared = getNearestPlayerDistanceSquared(job);
+        }
+
+        // this sort is stable, so jobs at the same distance go in the order
+        // they came in.
+        Collections.sort(jobs, NEAREST_FIRST);
+
+        for (int pass = 0; pass < 2 && governor.getRemaining() > 0; ++pass) {
+            for (Iterator<TerrainJob> it = jobs.iterator(); it.hasNext() && governor.getRemaining() > 0;) {
+                TerrainJob job = it.next();
+                int allowance = pass == 0 ? governor.getAllowance(job.getOwner()) : governor.getRemaining();
+
+                if (allowance > 0) {
+                    governor.charge(job.getOwner(), job.run(allowance));
+                }
+
+                if (job.isDone()) {
+                    it.remove();
+                }
+            }
+        }
+
+        waitingOwners.clear();
+    }
+
+    /**
+     * This returns the number of jobs waiting.
+     *
+     * @return The number of queued jobs.
+     */
+    public int getPendingCount() {
+        return jobs.size();
+    }
+
+    /**
+     * This returns the number of blocks the queued jobs have yet to look at.
+     *
+     * @return The number of blocks waiting.
+     */
+    public long getPendingVoxels() {
+        long total = 0;
+
+        for (TerrainJob job : jobs) {
+            total += job.getRemainingVoxels();
+        }
+
+        return total;
+    }
+
+    /**
+     * This method drops every queued job, unfinished.
+     */
+    public void clear() {
+        jobs.clear();
+    }
+
+    private static double getNearestPlayerDistanceSquared(TerrainJob job) {
+        double nearest = Double.MAX_VALUE;
+
+        for (Player player : job.getWorld().getPlayers()) {
+            Location loc = player.getLocation();
+            double dx = loc.getX() - job.getCenterX();
+            double dy = loc.getY() - job.getCenterY();
+            double dz = loc.getZ() - job.getCenterZ();
+            nearest = Math.min(nearest, dx * dx + dy * dy + dz * dz);
+        }
+
+        return nearest;
+    }
+}
@@ -0,0 +1,328 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.entity.*;
+
+/**
+ * This class decides which in-flight snowballs get their tick() each server tick. Each logic says how often it wants to be
+ * ticked, and each snowball is started on a phase taken from its entity id, so that a big volley is spread across several server
+ * ticks instead of all landing on one.
+ *
+ * We don't look through the whole registry to find the snowballs that are due. Each snowball's entity id goes in a ring of
+ * buckets, one for each of the next RING_SIZE ticks, when it is scheduled, and each tick we take only the bucket for that tick.
+ * A snowball due further off than that waits in its bucket and goes round again; an id whose snowball is gone, or has been
+ * scheduled for another tick since, is just dropped when its bucket comes up.
+ *
+ * We also have a budget of nanoseconds per server tick; once that is spent, the snowballs that are due but were not reached stay
+ * in their lanes, and are taken first on the next tick. Snowballs are taken from each shooter in turn, so one player with a great
+ * many snowballs in the air can't starve everyone else's.
+ */
+public final class TickScheduler {
+
+    /**
+     * This is the default budget; the server tick is 50ms, and we don't want to take more than a small part of it.
+     */
+    public static final long DEFAULT_BUDGET_NANOS = 2000000L;
+    private static final int RING_SIZE = 64;
+    private static final int SWEEP_INTERVAL = 20;
+    private final InFlightRegistry registry;
+    private final int[][] buckets = new int[RING_SIZE][];
+    private final int[] bucketCounts = new int[RING_SIZE];
+    private int[] carried = new int[16];
+    private int carriedCount;
+    private final List<Lane> lanes = new ArrayList<Lane>();
+    private final Map<UUID, Lane> lanesByShooter = new HashMap<UUID, Lane>();
+    private int lanesInUse;
+    private long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private int laneCursor;
+    private int deferredCount;
+
+    public TickScheduler(InFlightRegistry registry) {
+        this.registry = registry;
+
+        for (int b = 0; b < RING_SIZE; ++b) {
+            buckets[b] = new int[16];
+        }
+    }
+
+    /**
+     * This sets the time we may spend ticking snowballs per server tick.
+     *
+     * @param budgetNanos The budget, in nanoseconds.
+     */
+    public void setBudgetNanos(long budgetNanos) {
+        this.budgetNanos = Math.max(0, budgetNanos);
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * This returns the number of snowballs that were due on the last tick, but which we did not get to; they will be ticked
+     * first next time.
+     *
+     * @return The number of snowballs carried over.
+     */
+    public int getDeferredCount() {
+        return deferredCount;
+    }
+
+    /**
+     * This method works out the tick on which a newly launched snowball should first be ticked. We use the entity id to pick a
+     * phase, so snowballs launched together are not all ticked together.
+     *
+     * @param snowball The snowball being launched.
+     * @param logic Its logic.
+     * @param info Its info.
+     * @param tickCount The current tick.
+     * @return The tick on which the snowball is first due.
+     */
+    public static long firstTickFor(Snowball snowball, SnowballLogic logic, SnowballInfo info, long tickCount) {
+        int interval = Math.max(1, logic.getTickInterval(snowball, info));
+        int phase = (snowball.getEntityId() & Integer.MAX_VALUE) % interval;
+        return tickCount + 1 + phase;
+    }
+
+    /**
+     * This method puts a snowball in the bucket for the tick it is due on; call this whenever its next tick is set in the
+     * registry.
+     *
+     * @param entityId The snowball's entity id.
+     * @param dueTick The tick on which it is due; this must be after the current tick.
+     */
+    public void schedule(int entityId, long dueTick) {
+        int b = (int) (dueTick & (RING_SIZE - 1));
+        int count = bucketCounts[b];
+
+        if (count == buckets[b].length) {
+            buckets[b] = Arrays.copyOf(buckets[b], count * 2);
+        }
+
+        buckets[b][count] = entityId;
+        bucketCounts[b] = count + 1;
+    }
+
+    /**
+     * This method forgets every snowball scheduled; we use this when the plugin is disabled.
+     */
+    public void clear() {
+        Arrays.fill(bucketCounts, 0);
+        carriedCount = 0;
+        deferredCount = 0;
+        lanes.clear();
+        lanesByShooter.clear();
+    }
+
+    /**
+     * This method ticks the snowballs that are due, until they are all done or the budget runs out.
+     *
+     * @param tickCount The current tick.
+     */
+    public void run(long tickCount) {
+        long start = System.nanoTime();
+
+        // tickOne() drops a snowball that has gone when it comes due, so we
+        // only need to look for the rest now and then.
+        if (tickCount % SWEEP_INTERVAL == 0) {
+            registry.sweepInvalid();
+        }
+
+        collectDue(tickCount);
+
+        int remaining = 0;
+
+        for (Lane lane : lanes) {
+            remaining += lane.count;
+        }
+
+        if (lanes.isEmpty()) {
+            deferredCount = 0;
+            return;
+        }
+
+        int laneIndex = laneCursor % lanes.size();
+        int ticked = 0;
+
+        while (remaining > 0) {
+            Lane lane = lanes.get(laneIndex);
+
+            if (lane.next < lane.count) {
+                // we always do at least one, so that we make progress
+                // even if the budget is tiny.
+                if (ticked > 0 && System.nanoTime() - start > budgetNanos) {
+                    break;
+                }
+
+                tickOne(lane.ids[lane.next++], tickCount);
+                --remaining;
+                ++ticked;
+            }
+
+            laneIndex = (laneIndex + 1) % lanes.size();
+        }
+
+        laneCursor = laneIndex;
+        deferredCount = remaining;
+        carriedCount = 0;
+
+        for (Lane lane : lanes) {
+            for (int i = lane.next; i < lane.count; ++i) {
+                carry(lane.ids[i]);
+            }
+
+            lane.shooter = null;
+        }
+
+        lanesByShooter.clear();
+    }
+
+    /**
+     * This method sorts the snowballs that are due into lanes, one per shooter. Snowballs carried over from the last tick go to
+     * the front of each lane, then those in this tick's bucket. We record entity ids rather than slots, since ticking a snowball
+     * can launch or remove others, which moves slots around.
+     */
+    private void collectDue(long tickCount) {
+        for (Lane lane : lanes) {
+            lane.count = 0;
+            lane.next = 0;
+        }
+
+        lanesByShooter.clear();
+        lanesInUse = 0;
+
+        // a carried snowball that has been scheduled again since (by being
+        // launched anew) is in a bucket already.
+        for (int i = 0; i < carriedCount; ++i) {
+            int slot = registry.indexOf(carried[i]);
+
+            if (slot >= 0 && registry.nextTickAt(slot) < tickCount) {
+                laneFor(registry.infoAt(slot).shooterId).add(carried[i]);
+            }
+        }
+
+        carriedCount = 0;
+
+        int b = (int) (tickCount & (RING_SIZE - 1));
+        int[] bucket = buckets[b];
+        int count = bucketCounts[b];
+        int kept = 0;
+
+        for (int i = 0; i < count; ++i) {
+            int id = bucket[i];
+            int slot = registry.indexOf(id);
+
+            if (slot < 0) {
+                continue;
+            }
+
+            long due = registry.nextTickAt(slot);
+
+            if (due == tickCount) {
+                laneFor(registry.infoAt(slot).shooterId).add(id);
+            } else if (due > tickCount && (due & (RING_SIZE - 1)) == b) {
+                // due on a later trip round the ring; new snowballs are
+                // never due this tick, so these can stay in the bucket.
+                bucket[kept++] = id;
+            }
+        }
+
+        bucketCounts[b] = kept;
+
+        for (Iterator<Lane> it = lanes.iterator(); it.hasNext();) {
+            if (it.next().count == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    private void carry(int entityId) {
+        if (carriedCount == carried.length) {
+            carried = Arrays.copyOf(carried, carriedCount * 2);
+        }
+
+        carried[carriedCount++] = entityId;
+    }
+
+    /**
+     * This returns the lane for a shooter, taking the next spare one if they have none yet this tick. Snowballs with no shooter
+     * share the lane for the null UUID.
+     */
+    private Lane laneFor(UUID shooter) {
+        Lane lane = lanesByShooter.get(shooter);
+
+        if (lane == null) {
+            if (lanesInUse < lanes.size()) {
+                lane = lanes.get(lanesInUse);
+            } else {
+                lane = new Lane();
+                lanes.add(lane);
+            }
+
+            ++lanesInUse;
+            lane.shooter = shooter;
+            lanesByShooter.put(shooter, lane);
+        }
+
+        return lane;
+    }
+
+    private void tickOne(int entityId, long tickCount) {
+        int slot = registry.indexOf(entityId);
+
+        // a snowball put in a bucket twice for the same tick is only
+        // ticked once; after that its next tick is later.
+        if (slot < 0 || registry.nextTickAt(slot) > tickCount) {
+            return;
+        }
+
+        Snowball snowball = registry.snowballAt(slot);
+
+        if (!snowball.isValid()) {
+            registry.removeAt(slot);
+            return;
+        }
+
+        SnowballLogic logic = registry.logicAt(slot);
+        SnowballInfo info = registry.infoAt(slot);
+        Metrics metrics = SnowballLogic.getMetrics();
+        Metrics.CostCenter center = metrics.forLogic(logic);
+        metrics.enter(center);
+
+        try {
+            logic.tick(snowball, info, registry.stateAt(slot));
+        } finally {
+            center.tickNanos.record(metrics.exit());
+        }
+
+        // the tick may have moved this snowball to another slot, or
+        // removed it altogether.
+        slot = registry.indexOf(entityId);
+
+        if (slot >= 0) {
+            int interval = Math.max(1, logic.getTickInterval(snowball, info));
+            registry.setTicks(slot, tickCount, tickCount + interval);
+            schedule(entityId, tickCount + interval);
+        }
+    }
+
+    /**
+     * This class holds the entity ids of the snowballs due for one shooter. We keep these between ticks to reuse the arrays, but
+     * we drop the shooter reference at the end of each tick.
+     */
+    private static final class Lane {
+
+        public UUID shooter;
+        public int[] ids = new int[16];
+        public int count;
+        public int next;
+
+        public void add(int id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+
+            ids[count++] = id;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package snowballmadness;
+
+import java.util.logging.*;
+import org.bukkit.entity.*;
+
+/**
+ * This class runs timers for effects that go on after a snowball hits: lingering logics, and the boosts we give a player flung
+ * on respawn. Each of these used to be its own BukkitRunnable; now our ticker advances this wheel once a tick, and it runs
+ * whatever timers are due.
+ *
+ * The wheel has three levels. The first has a slot for each of the next 256 ticks; the second a slot for each of the next 64
+ * spans of 256 ticks, and the third for spans of 16384 ticks. A timer goes in the slot for its due time, on a linked list, so
+ * scheduling and cancelling are both constant time; when the first level comes round, the next second-level slot is spread
+ * out over it, and likewise for the third.
+ *
+ * A timer may have a target entity. If the target is dead or unloaded when the timer comes due, the timer is cancelled instead
+ * of being run.
+ */
+public final class TimingWheel {
+
+    private static final Logger logger = Logger.getLogger(TimingWheel.class.getName());
+    private static final int LEVEL0_BITS = 8;
+    private static final int LEVEL1_BITS = 6;
+    private static final int LEVEL2_BITS = 6;
+    private static final int LEVEL1_SHIFT = LEVEL0_BITS;
+    private static final int LEVEL2_SHIFT = LEVEL0_BITS + LEVEL1_BITS;
+    private static final long LEVEL0_SPAN = 1L << LEVEL1_SHIFT;
+    private static final long LEVEL1_SPAN = 1L << LEVEL2_SHIFT;
+    private static final long LEVEL2_SPAN = 1L << (LEVEL2_SHIFT + LEVEL2_BITS);
+    private final Timer[] level0 = new Timer[1 << LEVEL0_BITS];
+    private final Timer[] level1 = new Timer[1 << LEVEL1_BITS];
+    private final Timer[] level2 = new Timer[1 << LEVEL2_BITS];
+    private long now;
+    private int scheduledCount;
+
+    /**
+     * This is something to be run by the wheel, once or repeatedly.
+     */
+    public abstract static class Timer {
+
+        private TimingWheel wheel;
+        private Timer[] bucket;
+        private int slot;
+        private Timer prev, next;
+        private long due;
+        private int period;
+        private Entity target;
+
+        /**
+         * This is called when the timer comes due.
+         *
+         * @return True to run again after the period; false to stop. A timer with no period stops anyway.
+         */
+        protected abstract boolean run();
+
+        /**
+         * This method stops the timer; it won't be run again. It does nothing if the timer is not scheduled.
+         */
+        public final void cancel() {
+            if (wheel != null) {
+                wheel.unlink(this);
+            }
+        }
+
+        public final boolean isScheduled() {
+            return wheel != null;
+        }
+    }
+
+    /**
+     * This method schedules a timer.
+     *
+     * @param timer The timer to schedule; if it is scheduled already, it is moved.
+     * @param target The entity the timer affects; the timer is cancelled if this entity dies or is unloaded. May be null.
+     * @param delay The number of ticks before the first run; at least 1.
+     * @param period The number of ticks between runs after that; 0 to run only once.
+     */
+    public void schedule(Timer timer, Entity target, int delay, int period) {
+        timer.cancel();
+        timer.target = target;
+        timer.period = Math.max(0, period);
+        timer.due = now + Math.max(1, delay);
+        insert(timer);
+    }
+
+    /**
+     * This returns the number of timers scheduled.
+     *
+     * @return The timer count.
+     */
+    public int size() {
+        return scheduledCount;
+    }
+
+    /**
+     * This method moves the wheel on by one tick, and runs the timers that are then due.
+     */
+    public void advance() {
+        ++now;
+
+        if ((now & (LEVEL0_SPAN - 1)) == 0) {
+            if ((now & (LEVEL1_SPAN - 1)) == 0) {
+                cascade(level2, (int) (now >>> LEVEL2_SHIFT) & (level2.length - 1));
+            }
+
+            cascade(level1, (int) (now >>> LEVEL1_SHIFT) & (level1.length - 1));
+        }
+
+        int slot = (int) now & (level0.length - 1);
+
+        // new timers are always due at least a tick from now, so they never
+        // land in this slot while we empty it.
+        while (level0[slot] != null) {
+            Timer timer = level0[slot];
+            unlink(timer);
+
+            if (timer.due > now) {
+                insert(timer);
+            } else {
+                fire(timer);
+            }
+        }
+    }
+
+    /**
+     * This method drops every timer.
+     */
+    public void clear() {
+        clear(level0);
+        clear(level1);
+        clear(level2);
+    }
+
+    private void clear(Timer[] level) {
+        for (int slot = 0; slot < level.length; ++slot) {
+            while (level[slot] != null) {
+                unlink(level[slot]);
+            }
+        }
+    }
+
+    private void fire(Timer timer) {
+        if (timer.target != null && !timer.target.isValid()) {
+            return;
+        }
+
+        boolean again;
+
+        try {
+            again = timer.run();
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "A snowball timer failed.", ex);
+            again = false;
+        }
+
+        // run() may have rescheduled or cancelled the timer itself.
+        if (again && timer.period > 0 && !timer.isScheduled()) {
+            timer.due = now + timer.period;
+            insert(timer);
+        }
+    }
+
+    private void cascade(Timer[] level, int slot) {
+        while (level[slot] != null) {
+            Timer timer = level[slot];
+            unlink(timer);
+            insert(timer);
+        }
+    }
+
+    private void insert(Timer timer) {
+        long delta = timer.due - now;
+        Timer[] level;
+        int slot;
+
+        if (delta < LEVEL0_SPAN) {
+            level = level0;
+            slot = (int) timer.due & (level0.length - 1);
+        } else if (delta < LEVEL1_SPAN) {
+            level = level1;
+            slot = (int) (timer.due >>> LEVEL1_SHIFT) & (level1.length - 1);
+        } else {
+            // a timer beyond the last level waits in its last slot, and is
+            // placed again when that comes round.
+            long placed = delta < LEVEL2_SPAN ? timer.due : now + LEVEL2_SPAN - 1;
+            level = level2;
+            slot = (int) (placed >>> LEVEL2_SHIFT) & (level2.length - 1);
+        }
+
+        timer.wheel = this;
+        timer.bucket = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = level[slot];
+
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+
+        level[slot] = timer;
+        ++scheduledCount;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            timer.bucket[timer.slot] = timer.next;
+        }
+
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+
+        timer.wheel = null;
+        timer.bucket = null;
+        timer.prev = null;
+        timer.next = null;
+        --scheduledCount;
+    }
+}
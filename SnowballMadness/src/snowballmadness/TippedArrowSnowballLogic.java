@@ -22,6 +22,11 @@ public class TippedArrowSnowballLogic extends SnowballLogic {
         this.arrowUsed = Preconditions.checkNotNull(arrowUsed);
     }
 
+    @Override
+    public boolean canFlyVirtually() {
+        return false;
+    }
+
     @Override
     public void launch(Snowball snowball, SnowballInfo info) {
         super.launch(snowball, info);
@@ -16,27 +16,20 @@ public class TorchPlaceSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
 
-        Location loc = snowball.getLocation();
+        Location loc = hit.getLocation();
 
         loc.setY(loc.getBlockY() + 1);
         Block target = loc.getBlock();
         if (target.getType() == Material.AIR) {
             target = target.getRelative(BlockFace.DOWN);
         }
-        if (target.getType() == Material.AIR
-                || target.getType() == Material.DOUBLE_PLANT) {
+        if (MaterialClass.TORCH_SKIPPABLE.contains(target)) {
             target = target.getRelative(BlockFace.DOWN);
         }
-        if (target.getType() == Material.AIR
-                || target.getType() == Material.LEAVES
-                || target.getType() == Material.LONG_GRASS
-                || target.getType() == Material.DOUBLE_PLANT
-                || target.getType() == Material.RED_ROSE
-                || target.getType() == Material.YELLOW_FLOWER
-                || target.getType() == Material.DEAD_BUSH) {
+        if (MaterialClass.TORCH_REPLACEABLE.contains(target)) {
             target = target.getRelative(BlockFace.DOWN);
         }
         //this is primitive, but it starts with our location and goes to find a spot that's not air
@@ -59,13 +52,7 @@ public class TorchPlaceSnowballLogic extends SnowballLogic {
             place = false;
         }
         if (place == true) {*/
-        if (target.getType() == Material.AIR
-                || target.getType() == Material.LEAVES
-                || target.getType() == Material.LONG_GRASS
-                || target.getType() == Material.DOUBLE_PLANT
-                || target.getType() == Material.RED_ROSE
-                || target.getType() == Material.YELLOW_FLOWER
-                || target.getType() == Material.DEAD_BUSH) {
+        if (MaterialClass.TORCH_REPLACEABLE.contains(target)) {
             target.setType(Material.TORCH);
         }
 
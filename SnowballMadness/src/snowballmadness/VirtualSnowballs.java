@@ -0,0 +1,405 @@
+package snowballmadness;
+
+import java.util.*;
+import org.bukkit.*;
+import org.bukkit.entity.*;
+import org.bukkit.util.Vector;
+
+/**
+ * This class flies snowballs that have no entity. A multiplier far from any player spawns its secondaries here instead of into
+ * the world: each is a handful of numbers in the arrays below, stepped once a tick with the same gravity and drag as a real
+ * snowball, and traced against the blocks it passes through. Nobody is near enough to see them, so there is nothing to send to
+ * clients and nothing for the server to track.
+ *
+ * When one lands we call its logic's hit() with a HitContext, which gives where it was, its velocity and its shooter; no entity
+ * is ever spawned for it. If a player comes within sight of a virtual snowball while it flies, we turn it into a real one so
+ * they can see it.
+ *
+ * Virtual snowballs only hit blocks; they pass through entities. Only logics whose canFlyVirtually() returns true are flown
+ * this way.
+ */
+public final class VirtualSnowballs {
+
+    /**
+     * Snowballs within this many blocks of a player are real entities; this is how far a client is sent snowballs.
+     */
+    public static final double WATCH_RANGE = 64.0;
+    private static final double GRAVITY = 0.03;
+    private static final double DRAG = 0.99;
+    private static final double WATER_DRAG = 0.8;
+    private static final int PROMOTE_INTERVAL = 10;
+    private static final int CLEAR = 0;
+    private static final int IN_WATER = 1;
+    private static final int BLOCKED = 2;
+    private static final int UNLOADED = 3;
+    private int count;
+    private World[] worlds = new World[64];
+    private double[] xs = new double[64], ys = new double[64], zs = new double[64];
+    private double[] vxs = new double[64], vys = new double[64], vzs = new double[64];
+    private SnowballLogic[] logics = new SnowballLogic[64];
+    private SnowballInfo[] infos = new SnowballInfo[64];
+    private FlightState[] states = new FlightState[64];
+    private final Map<World, List<Location>> watchers = new IdentityHashMap<World, List<Location>>();
+    private long landedCount;
+    private long promotedCount;
+
+    /**
+     * This method launches a virtual snowball.
+     *
+     * @param logic The logic to run when it lands; can't be null.
+     * @param source Where it starts.
+     * @param velocity Its velocity, in blocks per tick; we copy this.
+     * @param info The info that goes with it.
+     * @param parent The flight state of the snowball that spawned this one.
+     * @return The flight state of the new snowball.
+     */
+    public FlightState launch(SnowballLogic logic, Location source, Vector velocity, SnowballInfo info, FlightState parent) {
+        if (count == xs.length) {
+            grow();
+        }
+
+        FlightState state = new FlightState();
+        state.joinFamily(parent, info.getShooter());
+        SnowballLogic.getMetrics().forLogic(logic).launches.increment();
+
+        int i = count++;
+        worlds[i] = source.getWorld();
+        xs[i] = source.getX();
+        ys[i] = source.getY();
+        zs[i] = source.getZ();
+        vxs[i] = velocity.getX();
+        vys[i] = velocity.getY();
+        vzs[i] = velocity.getZ();
+        logics[i] = logic;
+        infos[i] = info;
+        states[i] = state;
+        return state;
+    }
+
+    /**
+     * This returns true if a player is near enough to a place to see a snowball there.
+     *
+     * @param location The place to check.
+     * @return True if a player is within WATCH_RANGE.
+     */
+    public static boolean isWatched(Location location) {
+        for (Player player : location.getWorld().getPlayers()) {
+            if (player.getLocation().distanceSquared(location) <= WATCH_RANGE * WATCH_RANGE) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * This returns the number of virtual snowballs that have landed.
+     *
+     * @return The landed count.
+     */
+    public long getLandedCount() {
+        return landedCount;
+    }
+
+    /**
+     * This returns the number of virtual snowballs we've turned into real ones because a player came near.
+     *
+     * @return The promoted count.
+     */
+    public long getPromotedCount() {
+        return promotedCount;
+    }
+
+    /**
+     * This method moves every virtual snowball on by one tick, and lands those that hit something. Every so often it also
+     * turns those a player can see into real snowballs.
+     *
+     * @param tick The current tick.
+     */
+    public void run(long tick) {
+        boolean promote = tick % PROMOTE_INTERVAL == 0;
+
+        // we go backwards, since removing one moves the last into its place;
+        // snowballs launched by a landing one go on the end, and start
+        // moving next tick.
+        for (int i = count - 1; i >= 0; --i) {
+            if (i >= count) {
+                continue;
+            }
+
+            if (promote && isWatched(i)) {
+                promote(i);
+            } else {
+                step(i);
+            }
+        }
+
+        watchers.clear();
+    }
+
+    /**
+     * This method removes every virtual snowball of a family.
+     *
+     * @param rootId The root id of the family.
+     * @return The number removed.
+     */
+    public int cancelFamily(int rootId) {
+        int removed = 0;
+
+        for (int i = count - 1; i >= 0; --i) {
+            Lineage lineage = states[i].getLineage();
+
+            if (lineage != null && lineage.getRootId() == rootId) {
+                lineage.cancel();
+                removeAt(i);
+                ++removed;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * This method adds the number of virtual snowballs each family has to the counts given.
+     *
+     * @param counts The counts to add to.
+     */
+    public void countFamilies(Map<Lineage, Integer> counts) {
+        for (int i = 0; i < count; ++i) {
+            Lineage lineage = states[i].getLineage();
+
+            if (lineage != null) {
+                Integer existing = counts.get(lineage);
+                counts.put(lineage, existing == null ? 1 : existing + 1);
+            }
+        }
+    }
+
+    /**
+     * This method drops every virtual snowball, without landing it.
+     */
+    public void clear() {
+        for (int i = count - 1; i >= 0; --i) {
+            removeAt(i);
+        }
+
+        watchers.clear();
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Flight
+    //
+    /**
+     * This moves one snowball on by a tick, in the same order a real snowball does it: trace the move, then move, then slow
+     * down and fall.
+     */
+    private void step(int i) {
+        double x = xs[i], y = ys[i], z = zs[i];
+        double vx = vxs[i], vy = vys[i], vz = vzs[i];
+
+        switch (trace(worlds[i], x, y, z, x + vx, y + vy, z + vz)) {
+            case BLOCKED:
+                land(i);
+                return;
+            case UNLOADED:
+                removeAt(i);
+                //a real snowball would stop here too, and be forgotten when
+                //the chunk unloads.
+                return;
+            case IN_WATER:
+                move(i, WATER_DRAG);
+                break;
+            default:
+                move(i, DRAG);
+                break;
+        }
+
+        if (ys[i] < 0) {
+            removeAt(i);
+            //fell out of the world
+        }
+    }
+
+    private void move(int i, double drag) {
+        xs[i] += vxs[i];
+        ys[i] += vys[i];
+        zs[i] += vzs[i];
+        vxs[i] *= drag;
+        vys[i] = vys[i] * drag - GRAVITY;
+        vzs[i] *= drag;
+    }
+
+    /**
+     * This walks the blocks on the line from one point to another, in order, and reports the first solid one. If none is, it
+     * says whether the last block is water, since that slows the snowball down.
+     */
+    private static int trace(World world, double x0, double y0, double z0, double x1, double y1, double z1) {
+        int bx = floor(x0), by = floor(y0), bz = floor(z0);
+        final int ex = floor(x1), ey = floor(y1), ez = floor(z1);
+        final double dx = x1 - x0, dy = y1 - y0, dz = z1 - z0;
+        final int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        final int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+        final int stepZ = dz > 0 ? 1 : (dz < 0 ? -1 : 0);
+        final double deltaX = stepX != 0 ? Math.abs(1.0 / dx) : Double.MAX_VALUE;
+        final double deltaY = stepY != 0 ? Math.abs(1.0 / dy) : Double.MAX_VALUE;
+        final double deltaZ = stepZ != 0 ? Math.abs(1.0 / dz) : Double.MAX_VALUE;
+        double maxX = stepX > 0 ? (bx + 1 - x0) * deltaX : (stepX < 0 ? (x0 - bx) * deltaX : Double.MAX_VALUE);
+        double maxY = stepY > 0 ? (by + 1 - y0) * deltaY : (stepY < 0 ? (y0 - by) * deltaY : Double.MAX_VALUE);
+        double maxZ = stepZ > 0 ? (bz + 1 - z0) * deltaZ : (stepZ < 0 ? (z0 - bz) * deltaZ : Double.MAX_VALUE);
+        int loadedChunkX = Integer.MIN_VALUE, loadedChunkZ = Integer.MIN_VALUE;
+
+        while (true) {
+            Material type = Material.AIR;
+
+            if (by >= 0 && by < world.getMaxHeight()) {
+                int chunkX = bx >> 4, chunkZ = bz >> 4;
+
+                if (chunkX != loadedChunkX || chunkZ != loadedChunkZ) {
+                    if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                        return UNLOADED;
+                    }
+
+                    loadedChunkX = chunkX;
+                    loadedChunkZ = chunkZ;
+                }
+
+                type = world.getBlockAt(bx, by, bz).getType();
+
+                if (type.isSolid()) {
+                    return BLOCKED;
+                }
+            }
+
+            // the floating point can leave us a hair short of or past the
+            // last block, so we stop when every boundary is beyond the end.
+            if ((bx == ex && by == ey && bz == ez) || (maxX > 1.0 && maxY > 1.0 && maxZ > 1.0)) {
+                return type == Material.WATER || type == Material.STATIONARY_WATER ? IN_WATER : CLEAR;
+            }
+
+            if (maxX < maxY && maxX < maxZ) {
+                bx += stepX;
+                maxX += deltaX;
+            } else if (maxY < maxZ) {
+                by += stepY;
+                maxY += deltaY;
+            } else {
+                bz += stepZ;
+                maxZ += deltaZ;
+            }
+        }
+    }
+
+    private static int floor(double value) {
+        return (int) Math.floor(value);
+    }
+
+    /**
+     * This lands a snowball: it hits where it was at the start of the tick, as a real snowball does. The snowball is removed
+     * first, so whatever its logic launches can go in the arrays.
+     */
+    private void land(int i) {
+        SnowballLogic logic = logics[i];
+        SnowballInfo info = infos[i];
+        FlightState state = states[i];
+        HitContext hit = new HitContext(
+                new Location(worlds[i], xs[i], ys[i], zs[i]),
+                new Vector(vxs[i], vys[i], vzs[i]),
+                info.getShooter());
+        removeAt(i);
+
+        Metrics metrics = SnowballLogic.getMetrics();
+        Metrics.CostCenter center = metrics.forLogic(logic);
+        center.hits.increment();
+        metrics.enter(center);
+
+        try {
+            logic.hit(hit, info, state);
+        } finally {
+            center.hitNanos.record(metrics.exit());
+        }
+
+        ++landedCount;
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Promotion
+    //
+    private boolean isWatched(int i) {
+        List<Location> players = watchers.get(worlds[i]);
+
+        if (players == null) {
+            players = new ArrayList<Location>();
+
+            for (Player player : worlds[i].getPlayers()) {
+                players.add(player.getLocation());
+            }
+
+            watchers.put(worlds[i], players);
+        }
+
+        for (Location player : players) {
+            double dx = player.getX() - xs[i];
+            double dy = player.getY() - ys[i];
+            double dz = player.getZ() - zs[i];
+
+            if (dx * dx + dy * dy + dz * dz <= WATCH_RANGE * WATCH_RANGE) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void promote(int i) {
+        World world = worlds[i];
+        Snowball snowball = world.spawn(new Location(world, xs[i], ys[i], zs[i]), Snowball.class);
+        snowball.setShooter(infos[i].getShooter());
+        snowball.setVelocity(new Vector(vxs[i], vys[i], vzs[i]));
+        SnowballLogic.performAdopt(logics[i], snowball, infos[i], states[i]);
+        removeAt(i);
+        ++promotedCount;
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Storage
+    //
+    private void removeAt(int i) {
+        int last = --count;
+
+        if (i != last) {
+            worlds[i] = worlds[last];
+            xs[i] = xs[last];
+            ys[i] = ys[last];
+            zs[i] = zs[last];
+            vxs[i] = vxs[last];
+            vys[i] = vys[last];
+            vzs[i] = vzs[last];
+            logics[i] = logics[last];
+            infos[i] = infos[last];
+            states[i] = states[last];
+        }
+
+        worlds[last] = null;
+        logics[last] = null;
+        infos[last] = null;
+        states[last] = null;
+    }
+
+    private void grow() {
+        int capacity = xs.length * 2;
+        worlds = Arrays.copyOf(worlds, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+        vxs = Arrays.copyOf(vxs, capacity);
+        vys = Arrays.copyOf(vys, capacity);
+        vzs = Arrays.copyOf(vzs, capacity);
+        logics = Arrays.copyOf(logics, capacity);
+        infos = Arrays.copyOf(infos, capacity);
+        states = Arrays.copyOf(states, capacity);
+    }
+}
@@ -0,0 +1,283 @@
+package snowballmadness;
+
+import java.util.*;
+
+/**
+ * This class holds the blocks covered by a shape (a ball, a ring, and so on) as offsets from its center block, worked out once
+ * and then reused. The blocks are grouped into spans: each span is a run of blocks in one column, from minY to maxY. Logics walk
+ * the spans instead of looping over a bounding box and measuring distances; the corners of the box that are outside the shape
+ * are never visited at all.
+ *
+ * Spans are sorted by the distance of their column from the center, nearest first, so the middle of the shape comes first.
+ *
+ * We keep the most recently used shapes in a small cache, since each logic only ever asks for a few sizes.
+ */
+public final class VoxelShape {
+
+    /**
+     * This says how we measure the distance that decides if a block is in a shape.
+     */
+    public enum Metric {
+
+        /**
+         * The distance in all three dimensions; this gives balls.
+         */
+        SPHERICAL,
+        /**
+         * The distance ignoring height; this gives cylinders.
+         */
+        CYLINDRICAL
+    }
+    private static final int CACHE_SIZE = 64;
+    private static final Map<Key, VoxelShape> cache = new LinkedHashMap<Key, VoxelShape>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, VoxelShape> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final int[] spanX;
+    private final int[] spanZ;
+    private final int[] spanMinY;
+    private final int[] spanMaxY;
+    private final int blockCount;
+
+    private VoxelShape(int[] spanX, int[] spanZ, int[] spanMinY, int[] spanMaxY, int blockCount) {
+        this.spanX = spanX;
+        this.spanZ = spanZ;
+        this.spanMinY = spanMinY;
+        this.spanMaxY = spanMaxY;
+        this.blockCount = blockCount;
+    }
+
+    /**
+     * This returns a ball: every block whose squared distance from the center is no more than the limit given.
+     *
+     * @param maxDistanceSquared The largest squared distance included.
+     * @return The shape.
+     */
+    public static VoxelShape ball(long maxDistanceSquared) {
+        int radius = isqrt(maxDistanceSquared);
+        return of(Metric.SPHERICAL, -1, maxDistanceSquared, radius, radius, radius);
+    }
+
+    /**
+     * This returns a hollow ball: the blocks whose squared distance is more than the inner limit, but no more than the outer.
+     *
+     * @param minDistanceSquared The largest squared distance excluded.
+     * @param maxDistanceSquared The largest squared distance included.
+     * @return The shape.
+     */
+    public static VoxelShape ballShell(long minDistanceSquared, long maxDistanceSquared) {
+        int radius = isqrt(maxDistanceSquared);
+        return of(Metric.SPHERICAL, minDistanceSquared, maxDistanceSquared, radius, radius, radius);
+    }
+
+    /**
+     * This returns a shape given all its parameters. A block is included if it is within halfWidth of the center in x and z,
+     * between 'below' blocks below and 'above' blocks above the center, and its squared distance (measured by the metric) is
+     * more than the minimum and no more than the maximum.
+     *
+     * @param metric How distance is measured.
+     * @param minDistanceSquared The largest squared distance excluded; use -1 to exclude nothing.
+     * @param maxDistanceSquared The largest squared distance included; use Long.MAX_VALUE to include the whole box.
+     * @param halfWidth The largest x or z offset included.
+     * @param below The number of blocks below the center included.
+     * @param above The number of blocks above the center included; this can be negative, if 'below' is large enough.
+     * @return The shape, possibly shared with other callers.
+     */
+    public static VoxelShape of(Metric metric, long minDistanceSquared, long maxDistanceSquared, int halfWidth, int below, int above) {
+        Key key = new Key(metric, minDistanceSquared, maxDistanceSquared, Math.max(0, halfWidth), below, above);
+
+        synchronized (cache) {
+            VoxelShape shape = cache.get(key);
+
+            if (shape == null) {
+                shape = build(key);
+                cache.put(key, shape);
+            }
+
+            return shape;
+        }
+    }
+
+    /**
+     * This returns the largest integer less than the value given; we use this to turn a test like 'distanceSquared < limit' into
+     * the inclusive limit the shapes use.
+     *
+     * @param limit The limit to convert.
+     * @return The largest whole number below the limit.
+     */
+    public static long below(double limit) {
+        return (long) Math.ceil(limit) - 1;
+    }
+
+    /**
+     * This returns the largest integer no more than the value given; we use this to turn a test like 'distanceSquared <= limit'
+     * into the inclusive limit the shapes use.
+     *
+     * @param limit The limit to convert.
+     * @return The largest whole number no more than the limit.
+     */
+    public static long atMost(double limit) {
+        return (long) Math.floor(limit);
+    }
+
+    public int getSpanCount() {
+        return spanX.length;
+    }
+
+    public int getX(int span) {
+        return spanX[span];
+    }
+
+    public int getZ(int span) {
+        return spanZ[span];
+    }
+
+    public int getMinY(int span) {
+        return spanMinY[span];
+    }
+
+    public int getMaxY(int span) {
+        return spanMaxY[span];
+    }
+
+    /**
+     * This returns the number of blocks in the shape, before any clipping to the world's height.
+     *
+     * @return The block count.
+     */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    ////////////////////////////////////////////////////////////////
+    // Building
+    //
+    private static VoxelShape build(Key key) {
+        int w = key.halfWidth;
+        List<long[]> spans = new ArrayList<long[]>();
+        int blockCount = 0;
+
+        for (int dx = -w; dx <= w; ++dx) {
+            for (int dz = -w; dz <= w; ++dz) {
+                long columnSq = (long) dx * dx + (long) dz * dz;
+                int runStart = 0;
+                boolean inRun = false;
+
+                for (int dy = -key.below; dy <= key.above + 1; ++dy) {
+                    boolean inside = dy <= key.above && key.contains(columnSq, dy);
+
+                    if (inside && !inRun) {
+                        runStart = dy;
+                        inRun = true;
+                    } else if (!inside && inRun) {
+                        spans.add(new long[]{columnSq, dx, dz, runStart, dy - 1});
+                        blockCount += dy - runStart;
+                        inRun = false;
+                    }
+                }
+            }
+        }
+
+        Collections.sort(spans, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] left, long[] right) {
+                for (int i = 0; i < left.length; ++i) {
+                    if (left[i] != right[i]) {
+                        return left[i] < right[i] ? -1 : 1;
+                    }
+                }
+
+                return 0;
+            }
+        });
+
+        int count = spans.size();
+        int[] spanX = new int[count];
+        int[] spanZ = new int[count];
+        int[] spanMinY = new int[count];
+        int[] spanMaxY = new int[count];
+
+        for (int i = 0; i < count; ++i) {
+            long[] span = spans.get(i);
+            spanX[i] = (int) span[1];
+            spanZ[i] = (int) span[2];
+            spanMinY[i] = (int) span[3];
+            spanMaxY[i] = (int) span[4];
+        }
+
+        return new VoxelShape(spanX, spanZ, spanMinY, spanMaxY, blockCount);
+    }
+
+    private static int isqrt(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+
+        int root = (int) Math.sqrt((double) value);
+
+        while ((long) (root + 1) * (root + 1) <= value) {
+            ++root;
+        }
+
+        while ((long) root * root > value) {
+            --root;
+        }
+
+        return root;
+    }
+
+    /**
+     * This class identifies a shape in the cache.
+     */
+    private static final class Key {
+
+        public final Metric metric;
+        public final long minDistanceSquared;
+        public final long maxDistanceSquared;
+        public final int halfWidth;
+        public final int below;
+        public final int above;
+
+        public Key(Metric metric, long minDistanceSquared, long maxDistanceSquared, int halfWidth, int below, int above) {
+            this.metric = metric;
+            this.minDistanceSquared = minDistanceSquared;
+            this.maxDistanceSquared = maxDistanceSquared;
+            this.halfWidth = halfWidth;
+            this.below = below;
+            this.above = above;
+        }
+
+        public boolean contains(long columnSq, int dy) {
+            long distanceSq = metric == Metric.SPHERICAL ? columnSq + (long) dy * dy : columnSq;
+            return distanceSq > minDistanceSquared && distanceSq <= maxDistanceSquared;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return metric == other.metric
+                    && minDistanceSquared == other.minDistanceSquared
+                    && maxDistanceSquared == other.maxDistanceSquared
+                    && halfWidth == other.halfWidth
+                    && below == other.below
+                    && above == other.above;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = metric.hashCode();
+            h = h * 31 + (int) (minDistanceSquared ^ (minDistanceSquared >>> 32));
+            h = h * 31 + (int) (maxDistanceSquared ^ (maxDistanceSquared >>> 32));
+            h = h * 31 + halfWidth;
+            h = h * 31 + below;
+            h = h * 31 + above;
+            return h;
+        }
+    }
+}
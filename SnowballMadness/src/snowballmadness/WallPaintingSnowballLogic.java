@@ -17,7 +17,7 @@ public class WallPaintingSnowballLogic extends SnowballLogic {
 
     private final Material paint;
     private final short durability;
-    private int boxSize;
+    private final int boxSize;
 
     public WallPaintingSnowballLogic(Material purpose, short durability, int boxSize) {
         this.paint = purpose;
@@ -26,45 +26,25 @@ public class WallPaintingSnowballLogic extends SnowballLogic {
     }
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
-        boxSize = (int) Math.min(boxSize, info.power);
-        final int radius = boxSize + 1;
-        final int diameter = radius * 2;
-
-        World world = snowball.getWorld();
-        Location snowballLoc = snowball.getLocation().clone();
-
-        final int beginX = snowballLoc.getBlockX() - radius;
-        final int beginY = Math.max(1, snowballLoc.getBlockY() - radius);
-        final int beginZ = snowballLoc.getBlockZ() - radius;
-        final int endX = beginX + diameter;
-        final int endY = Math.min(world.getMaxHeight(), beginY + diameter);
-        final int endZ = beginZ + diameter;
-        final Location locationBuffer = new Location(world, 0, 0, 0);
-
-        // no worries- all this executes before Minecraft can send anything
-        // back to the client, so we can set the blocks in any order. This one
-        // is convenient!
-        for (int x = beginX; x <= endX; ++x) {
-            for (int z = beginZ; z <= endZ; ++z) {
-                for (int y = beginY; y <= endY; ++y) {
-                    locationBuffer.setX(x);
-                    locationBuffer.setY(y);
-                    locationBuffer.setZ(z);
-                    if (snowballLoc.distance(locationBuffer) <= radius) {
-                        Block target = world.getBlockAt(x, y, z);
-                        if (target.getType() == Material.STONE
-                                || target.getType() == Material.CONCRETE
-                                || target.getType() == Material.HARD_CLAY
-                                || target.getType() == Material.QUARTZ_BLOCK
-                                || target.getType() == Material.STAINED_CLAY) {
-                            target.setType(paint);
-                            target.setData((byte) durability);
-                        } //this logic repaints things in shades of stone or concrete (colored)
-                    }
-                }
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
+        final int size = (int) Math.min(boxSize, info.power);
+        final int radius = size + 1;
+        final VoxelShape shape = VoxelShape.ball(radius * (long) radius);
+
+        // one solid block is swapped for another, so we can skip physics.
+        submit(info, new TerrainJob(hit.getLocation(), shape, 1, false) {
+            @Override
+            protected void edit(Block block, BlockEditBatch batch) {
+                final Material material = block.getType();
+                if (material == Material.STONE
+                        || material == Material.CONCRETE
+                        || material == Material.HARD_CLAY
+                        || material == Material.QUARTZ_BLOCK
+                        || material == Material.STAINED_CLAY) {
+                    batch.set(block, paint, (byte) durability);
+                } //this logic repaints things in shades of stone or concrete (colored)
             }
-        }
+        });
     }
 }
@@ -11,9 +11,9 @@ import org.bukkit.entity.*;
 public class WatchSnowballLogic extends SnowballLogic {
 
     @Override
-    public void hit(Snowball snowball, SnowballInfo info) {
-        super.hit(snowball, info);
-        World world = snowball.getWorld();
+    public void hit(HitContext hit, SnowballInfo info, FlightState state) {
+        super.hit(hit, info, state);
+        World world = hit.getWorld();
         world.setTime((long) (world.getTime() + (100.0 * Math.sqrt(info.power))));
     }
 }